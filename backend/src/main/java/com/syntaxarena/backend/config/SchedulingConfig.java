@@ -0,0 +1,10 @@
+package com.syntaxarena.backend.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+    // Enables @Scheduled housekeeping tasks such as the workspace sweeper
+}
@@ -1,6 +1,7 @@
 package com.syntaxarena.backend.config;
 
 import com.syntaxarena.backend.security.FirebaseAuthFilter;
+import jakarta.servlet.DispatcherType;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -24,6 +25,9 @@ public class SecurityConfig {
                 .cors(cors -> cors.configurationSource(corsConfigurationSource()))
                 .csrf(csrf -> csrf.disable())
                 .authorizeHttpRequests(auth -> auth
+                        // The request was authorized before it went async; the
+                        // token filter does not run again for the dispatch
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         .requestMatchers("/api/public/**").permitAll() // Add public endpoints here
                         .requestMatchers("/api/**").authenticated()
                         .anyRequest().permitAll())
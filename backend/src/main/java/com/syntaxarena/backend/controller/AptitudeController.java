@@ -6,6 +6,8 @@ import com.syntaxarena.backend.service.AptitudeService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.concurrent.CompletableFuture;
+
 @RestController
 @RequestMapping("/api")
 @CrossOrigin(origins = "*")
@@ -15,7 +17,7 @@ public class AptitudeController {
     private AptitudeService aptitudeService;
 
     @PostMapping("/generate-aptitude")
-    public AptitudeResponse generateAptitude(@RequestBody AptitudeRequest request) {
+    public CompletableFuture<AptitudeResponse> generateAptitude(@RequestBody AptitudeRequest request) {
         return aptitudeService.generateQuestions(request);
     }
 }
@@ -4,7 +4,12 @@ import com.syntaxarena.backend.model.ArenaMessage;
 import com.syntaxarena.backend.model.ArenaMessage.MessageType;
 import com.syntaxarena.backend.model.ArenaPlayer;
 import com.syntaxarena.backend.model.ArenaSession;
+import com.syntaxarena.backend.model.BenchmarkResult;
+import com.syntaxarena.backend.model.TestValidationRequest;
 import com.syntaxarena.backend.service.ArenaService;
+import com.syntaxarena.backend.service.ExecutionRejectedException;
+import com.syntaxarena.backend.service.JudgeService;
+import com.syntaxarena.backend.service.LlmGateway;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
@@ -23,6 +28,9 @@ public class ArenaWebSocketController {
     @Autowired
     private SimpMessagingTemplate messagingTemplate;
 
+    @Autowired
+    private JudgeService judgeService;
+
     /**
      * Handle player joining the matchmaking queue
      */
@@ -186,6 +194,102 @@ public class ArenaWebSocketController {
         }
     }
 
+    /**
+     * Judge a solution on the server against the session problem's test
+     * suite. Each test result is streamed to the player as it finishes and
+     * the first failure ends the run early; the verdict is then submitted
+     * like a client-reported one. In an optimize battle a passing solution
+     * is benchmarked next; only code judged here is ever benchmarked.
+     */
+    @MessageMapping("/arena/judge")
+    public void judgeSolution(@Payload Map<String, Object> payload) {
+        String sessionId = (String) payload.get("sessionId");
+        String playerId = (String) payload.get("playerId");
+        String language = (String) payload.get("language");
+        String code = (String) payload.get("code");
+
+        ArenaSession session = arenaService.getSession(sessionId);
+        if (session == null || code == null || code.isEmpty())
+            return;
+
+        TestValidationRequest request = new TestValidationRequest();
+        request.setLanguage(language != null ? language : "java");
+        request.setCode(code);
+        request.setProblemTitle(session.getProblemTitle());
+        request.setProblemDescription(session.getProblemDescription());
+
+        judgeService.judgeUntilFailure(request, playerId, result -> messagingTemplate.convertAndSend(
+                "/topic/player/" + playerId,
+                new ArenaMessage(MessageType.TEST_RESULT, sessionId, playerId, result)))
+                .whenComplete((verdict, error) -> {
+                    if (verdict == null) {
+                        Throwable cause = LlmGateway.unwrap(error);
+                        sendError(sessionId, playerId, cause instanceof ExecutionRejectedException
+                                ? cause.getMessage() : "Could not judge your solution");
+                        return;
+                    }
+                    Map<String, Object> submission = new HashMap<>();
+                    submission.put("sessionId", sessionId);
+                    submission.put("playerId", playerId);
+                    submission.put("allPassed", verdict.isAllPassed());
+                    submission.put("testsPassed", verdict.getPassedCount());
+                    submission.put("totalTests", verdict.getTotalCount());
+                    submitSolution(submission);
+                    if (verdict.isAllPassed() && session.isOptimizeMode()) {
+                        benchmarkSolution(sessionId, playerId, request);
+                    }
+                });
+    }
+
+    private void sendError(String sessionId, String playerId, String message) {
+        messagingTemplate.convertAndSend(
+                "/topic/player/" + playerId,
+                new ArenaMessage(MessageType.ERROR, sessionId, playerId, Map.of("message", message)));
+    }
+
+    /**
+     * Benchmark a judged solution of an optimize battle in the background.
+     * Each player is benchmarked once, with the same server-side settings and
+     * input as the opponent (see {@link JudgeService#benchmark}).
+     */
+    private void benchmarkSolution(String sessionId, String playerId, TestValidationRequest request) {
+        String refused = arenaService.startBenchmark(sessionId, playerId, request.getLanguage());
+        if (refused != null) {
+            sendError(sessionId, playerId, refused);
+            // The opponent may already be benchmarked and only waiting for this player
+            announceWinner(sessionId, arenaService.decideBenchmarks(sessionId));
+            return;
+        }
+
+        judgeService.benchmark(request, playerId)
+                .whenComplete((benchmark, error) -> recordBenchmark(sessionId, playerId, benchmark));
+    }
+
+    private void recordBenchmark(String sessionId, String playerId, BenchmarkResult benchmark) {
+        String winnerId = arenaService.recordBenchmark(sessionId, playerId, benchmark);
+
+        Map<String, Object> benchmarkData = new HashMap<>();
+        benchmarkData.put("benchmark", benchmark);
+        messagingTemplate.convertAndSend(
+                "/topic/arena/" + sessionId,
+                new ArenaMessage(MessageType.BENCHMARK_RESULT, sessionId, playerId, benchmarkData));
+        announceWinner(sessionId, winnerId);
+    }
+
+    private void announceWinner(String sessionId, String winnerId) {
+        if (winnerId != null) {
+            Map<String, Object> endData = new HashMap<>();
+            endData.put("winnerId", winnerId);
+            endData.put("reason", "FASTER");
+
+            messagingTemplate.convertAndSend(
+                    "/topic/arena/" + sessionId,
+                    new ArenaMessage(MessageType.GAME_END, sessionId, winnerId, endData));
+
+            System.out.println("Optimize battle ended! Winner: " + winnerId);
+        }
+    }
+
     /**
      * Handle timeout
      */
@@ -2,24 +2,52 @@ package com.syntaxarena.backend.controller;
 
 import com.syntaxarena.backend.model.TestValidationRequest;
 import com.syntaxarena.backend.model.TestValidationResponse;
-import com.syntaxarena.backend.service.TestValidationService;
+import com.syntaxarena.backend.service.ExecutionRejectedException;
+import com.syntaxarena.backend.service.JudgeService;
+import com.syntaxarena.backend.service.LlmGateway;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.security.Principal;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 @RestController
 @RequestMapping("/api")
 @CrossOrigin(origins = "*")
 public class BattleController {
 
     @Autowired
-    private TestValidationService testValidationService;
+    private JudgeService judgeService;
 
     /**
      * Validates a user's solution against the problem.
-     * Returns test results with pass/fail status for each test case.
+     * Returns test results with pass/fail status for each test case. With
+     * test cases in the request the solution is actually run against them.
+     * The request thread is released while the verdict is worked out.
      */
     @PostMapping("/validate-solution")
-    public TestValidationResponse validateSolution(@RequestBody TestValidationRequest request) {
-        return testValidationService.validateSolution(request);
+    public CompletableFuture<ResponseEntity<TestValidationResponse>> validateSolution(
+            @RequestBody TestValidationRequest request, Principal principal, HttpServletRequest httpRequest) {
+        return judgeService.judge(request, ExecutionController.callerId(principal, httpRequest))
+                .handle((response, error) -> {
+                    if (error == null) {
+                        return ResponseEntity.ok(response);
+                    }
+                    Throwable cause = LlmGateway.unwrap(error);
+                    if (cause instanceof ExecutionRejectedException) {
+                        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                                .header(HttpHeaders.RETRY_AFTER,
+                                        String.valueOf(((ExecutionRejectedException) cause).getRetryAfterSeconds()))
+                                .body(new TestValidationResponse(false, 0, 0, List.of(), cause.getMessage()));
+                    }
+                    return ResponseEntity.internalServerError()
+                            .body(new TestValidationResponse(false, 0, 0, List.of(),
+                                    "Validation failed: " + cause.getMessage()));
+                });
     }
 }
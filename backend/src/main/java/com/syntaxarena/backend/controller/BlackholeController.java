@@ -1,10 +1,15 @@
 package com.syntaxarena.backend.controller;
 
+import com.syntaxarena.backend.model.ChatStreamFrame;
 import com.syntaxarena.backend.model.BlackholeRequest;
 import com.syntaxarena.backend.model.BlackholeResponse;
 import com.syntaxarena.backend.service.BlackholeService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api")
@@ -15,7 +20,16 @@ public class BlackholeController {
     private BlackholeService blackholeService;
 
     @PostMapping("/blackhole")
-    public BlackholeResponse chat(@RequestBody BlackholeRequest request) {
+    public CompletableFuture<BlackholeResponse> chat(@RequestBody BlackholeRequest request) {
         return blackholeService.chat(request);
     }
+
+    /**
+     * /api/blackhole, with the reply sent as server-sent events while it is being
+     * generated; see {@link ChatStreamFrame}.
+     */
+    @PostMapping(value = "/blackhole/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChat(@RequestBody BlackholeRequest request) {
+        return ChatStreamRelay.relay(listener -> blackholeService.streamChat(request, listener));
+    }
 }
@@ -0,0 +1,69 @@
+package com.syntaxarena.backend.controller;
+
+import com.syntaxarena.backend.model.ChatStreamFrame;
+import com.syntaxarena.backend.model.ChatStreamFrame.FrameType;
+import com.syntaxarena.backend.service.LlmGateway;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Relays a streamed chat reply to the browser as server-sent events, one
+ * JSON {@link ChatStreamFrame} per event. The chat's future completes with
+ * null when the reply was streamed, or with a response to send whole.
+ */
+final class ChatStreamRelay {
+
+    private ChatStreamRelay() {
+    }
+
+    static SseEmitter relay(Function<LlmGateway.TokenListener, CompletableFuture<?>> chat) {
+        SseEmitter emitter = new SseEmitter();
+        long startNanos = System.nanoTime();
+        AtomicLong firstTokenNanos = new AtomicLong();
+
+        chat.apply(text -> {
+            firstTokenNanos.compareAndSet(0, System.nanoTime());
+            ChatStreamFrame frame = new ChatStreamFrame(FrameType.TOKEN);
+            frame.setText(text);
+            try {
+                send(emitter, frame);
+            } catch (IOException e) {
+                // Stops the upstream call as well
+                throw new UncheckedIOException(e);
+            }
+        }).whenComplete((response, error) -> {
+            if (error != null) {
+                emitter.completeWithError(error);
+                return;
+            }
+            try {
+                if (response != null) {
+                    ChatStreamFrame whole = new ChatStreamFrame(FrameType.RESPONSE);
+                    whole.setResponse(response);
+                    send(emitter, whole);
+                }
+                ChatStreamFrame complete = new ChatStreamFrame(FrameType.COMPLETE);
+                if (firstTokenNanos.get() != 0) {
+                    complete.setTimeToFirstTokenMs(TimeUnit.NANOSECONDS.toMillis(firstTokenNanos.get() - startNanos));
+                }
+                complete.setDurationMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+                send(emitter, complete);
+                emitter.complete();
+            } catch (IOException | IllegalStateException e) {
+                // The client went away or the emitter timed out; nobody is listening
+            }
+        });
+        return emitter;
+    }
+
+    private static void send(SseEmitter emitter, ChatStreamFrame frame) throws IOException {
+        emitter.send(SseEmitter.event().data(frame, MediaType.APPLICATION_JSON));
+    }
+}
@@ -6,6 +6,8 @@ import com.syntaxarena.backend.service.GeminiService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.concurrent.CompletableFuture;
+
 @RestController
 @RequestMapping("/api")
 @CrossOrigin(origins = "*")
@@ -15,7 +17,7 @@ public class CodeStoryController {
     private GeminiService geminiService;
 
     @PostMapping("/generate-code-story")
-    public CodeStoryResponse generateCodeStory(@RequestBody CodeStoryRequest request) {
+    public CompletableFuture<CodeStoryResponse> generateCodeStory(@RequestBody CodeStoryRequest request) {
         return geminiService.generateCodeStory(request);
     }
 }
@@ -1,10 +1,15 @@
 package com.syntaxarena.backend.controller;
 
+import com.syntaxarena.backend.model.ChatStreamFrame;
 import com.syntaxarena.backend.model.DocChatRequest;
 import com.syntaxarena.backend.model.DocChatResponse;
 import com.syntaxarena.backend.service.DocChatService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api")
@@ -15,7 +20,16 @@ public class DocChatController {
     private DocChatService docChatService;
 
     @PostMapping("/doc-chat")
-    public DocChatResponse chat(@RequestBody DocChatRequest request) {
+    public CompletableFuture<DocChatResponse> chat(@RequestBody DocChatRequest request) {
         return docChatService.chat(request);
     }
+
+    /**
+     * /api/doc-chat, with the reply sent as server-sent events while it is being
+     * generated; see {@link ChatStreamFrame}.
+     */
+    @PostMapping(value = "/doc-chat/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChat(@RequestBody DocChatRequest request) {
+        return ChatStreamRelay.relay(listener -> docChatService.streamChat(request, listener));
+    }
 }
@@ -1,11 +1,27 @@
 package com.syntaxarena.backend.controller;
 
+import com.syntaxarena.backend.model.ComplexityRequest;
+import com.syntaxarena.backend.model.ComplexityResponse;
+import com.syntaxarena.backend.model.ExecutionJob;
 import com.syntaxarena.backend.model.ExecutionRequest;
 import com.syntaxarena.backend.model.ExecutionResponse;
+import com.syntaxarena.backend.service.ComplexityService;
+import com.syntaxarena.backend.service.ExecutionJobService;
+import com.syntaxarena.backend.service.ExecutionRejectedException;
+import com.syntaxarena.backend.service.ExecutionScheduler;
 import com.syntaxarena.backend.service.ExecutionService;
+import com.syntaxarena.backend.service.LlmGateway;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.security.Principal;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
 @RestController
 @RequestMapping("/api")
 @CrossOrigin(origins = "*") // Allow requests from frontend
@@ -14,8 +30,93 @@ public class ExecutionController {
     @Autowired
     private ExecutionService executionService;
 
+    @Autowired
+    private ExecutionScheduler executionScheduler;
+
+    @Autowired
+    private ComplexityService complexityService;
+
+    @Autowired
+    private ExecutionJobService executionJobService;
+
     @PostMapping("/execute")
-    public ExecutionResponse execute(@RequestBody ExecutionRequest request) {
-        return executionService.executeCode(request);
+    public ResponseEntity<ExecutionResponse> execute(@RequestBody ExecutionRequest request, Principal principal,
+            HttpServletRequest httpRequest) throws InterruptedException {
+        CompletableFuture<ExecutionResponse> run;
+        try {
+            run = executionScheduler.submit(callerId(principal, httpRequest),
+                    () -> executionService.executeCode(request));
+        } catch (ExecutionRejectedException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .body(new ExecutionResponse("", e.getMessage()));
+        }
+
+        try {
+            return ResponseEntity.ok(run.get());
+        } catch (InterruptedException e) {
+            run.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            return ResponseEntity.internalServerError()
+                    .body(new ExecutionResponse("", "Execution failed: " + e.getCause().getMessage()));
+        }
+    }
+
+    /**
+     * Queues a run and answers at once with its job id (202 Accepted). The
+     * result is polled from GET /api/execute/{jobId} or pushed to
+     * /topic/jobs/{jobId} when the job completes; a client that subscribes
+     * after submitting should poll once, as the job may already be done.
+     */
+    @PostMapping("/execute/async")
+    public ResponseEntity<ExecutionJob> executeAsync(@RequestBody ExecutionRequest request, Principal principal,
+            HttpServletRequest httpRequest) {
+        try {
+            ExecutionJob job = executionJobService.submit(request, callerId(principal, httpRequest));
+            return ResponseEntity.accepted()
+                    .header(HttpHeaders.LOCATION, "/api/execute/" + job.getJobId())
+                    .body(job);
+        } catch (ExecutionRejectedException e) {
+            ExecutionJob rejected = new ExecutionJob(null, ExecutionJob.JobStatus.REJECTED, System.currentTimeMillis());
+            rejected.setResult(new ExecutionResponse("", e.getMessage()));
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .body(rejected);
+        }
+    }
+
+    @GetMapping("/execute/{jobId}")
+    public ResponseEntity<ExecutionJob> getJob(@PathVariable String jobId) {
+        ExecutionJob job = executionJobService.get(jobId);
+        return job != null ? ResponseEntity.ok(job) : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * Estimates the solution's complexity by timing it on generated inputs of
+     * growing size. The generator and each size are separate jobs in the
+     * execution queue; the request thread is released while they run.
+     */
+    @PostMapping("/complexity")
+    public CompletableFuture<ResponseEntity<ComplexityResponse>> estimateComplexity(
+            @RequestBody ComplexityRequest request, Principal principal, HttpServletRequest httpRequest) {
+        CompletableFuture<ComplexityResponse> estimate;
+        try {
+            estimate = complexityService.estimate(request, callerId(principal, httpRequest));
+        } catch (ExecutionRejectedException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .body(new ComplexityResponse(e.getMessage())));
+        }
+
+        return estimate.handle((response, error) -> error == null
+                ? ResponseEntity.ok(response)
+                : ResponseEntity.internalServerError().body(
+                        new ComplexityResponse("Estimation failed: " + LlmGateway.unwrap(error).getMessage())));
+    }
+
+    // Fair queuing is per signed-in user, falling back to the client address
+    static String callerId(Principal principal, HttpServletRequest httpRequest) {
+        return principal != null ? principal.getName() : httpRequest.getRemoteAddr();
     }
 }
@@ -0,0 +1,31 @@
+package com.syntaxarena.backend.controller;
+
+import com.syntaxarena.backend.model.ExecutionStreamRequest;
+import com.syntaxarena.backend.service.ExecutionStreamService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.stereotype.Controller;
+
+import java.security.Principal;
+
+@Controller
+public class ExecutionStreamController {
+
+    @Autowired
+    private ExecutionStreamService executionStreamService;
+
+    /**
+     * Start a streaming run. The client subscribes to /user/queue/exec
+     * before sending, then receives an ACCEPTED frame with the run's id,
+     * STDOUT/STDERR frames and a final COMPLETE.
+     */
+    @MessageMapping("/exec/run")
+    public void run(@Payload ExecutionStreamRequest request, Principal principal,
+            SimpMessageHeaderAccessor headers) {
+        // Fair queuing is per user, or per WebSocket session when not signed in
+        String callerId = principal != null ? principal.getName() : headers.getSessionId();
+        executionStreamService.start(request, callerId, headers.getSessionId());
+    }
+}
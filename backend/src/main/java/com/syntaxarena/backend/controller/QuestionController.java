@@ -6,6 +6,8 @@ import com.syntaxarena.backend.service.QuestionService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.concurrent.CompletableFuture;
+
 @RestController
 @RequestMapping("/api")
 @CrossOrigin(origins = "*")
@@ -15,7 +17,7 @@ public class QuestionController {
     private QuestionService questionService;
 
     @PostMapping("/generate-question")
-    public QuestionResponse generateQuestion(@RequestBody QuestionRequest request) {
+    public CompletableFuture<QuestionResponse> generateQuestion(@RequestBody QuestionRequest request) {
         return questionService.generateQuestion(request);
     }
 }
@@ -1,5 +1,6 @@
 package com.syntaxarena.backend.controller;
 
+import com.syntaxarena.backend.service.LlmGateway;
 import com.syntaxarena.backend.service.ResumeParserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -8,6 +9,7 @@ import org.springframework.web.multipart.MultipartFile;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/resume")
@@ -18,67 +20,63 @@ public class ResumeController {
     private ResumeParserService resumeParserService;
 
     @PostMapping("/parse")
-    public ResponseEntity<Map<String, Object>> parseResume(@RequestParam("file") MultipartFile file) {
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> parseResume(
+            @RequestParam("file") MultipartFile file) {
         Map<String, Object> response = new HashMap<>();
 
-        try {
-            // Validate file
-            if (file.isEmpty()) {
-                response.put("success", false);
-                response.put("error", "File is empty");
-                return ResponseEntity.badRequest().body(response);
-            }
-
-            // Check file type
-            String contentType = file.getContentType();
-            if (contentType == null || (!contentType.startsWith("image/") && !contentType.equals("application/pdf"))) {
-                response.put("success", false);
-                response.put("error", "Only image files (PNG, JPG) and PDF are supported");
-                return ResponseEntity.badRequest().body(response);
-            }
+        // Validate file
+        if (file.isEmpty()) {
+            response.put("success", false);
+            response.put("error", "File is empty");
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(response));
+        }
 
-            // Parse resume
-            String extractedData = resumeParserService.parseResumeFromImage(file);
+        // Check file type
+        String contentType = file.getContentType();
+        if (contentType == null || (!contentType.startsWith("image/") && !contentType.equals("application/pdf"))) {
+            response.put("success", false);
+            response.put("error", "Only image files (PNG, JPG) and PDF are supported");
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(response));
+        }
 
+        // Parse resume
+        return resumeParserService.parseResumeFromImage(file).thenApply(extractedData -> {
             response.put("success", true);
             response.put("data", extractedData);
             response.put("message", "Resume parsed successfully");
 
             return ResponseEntity.ok(response);
-
-        } catch (Exception e) {
+        }).exceptionally(error -> {
             response.put("success", false);
-            response.put("error", "Failed to parse resume: " + e.getMessage());
+            response.put("error", "Failed to parse resume: " + LlmGateway.unwrap(error).getMessage());
             return ResponseEntity.internalServerError().body(response);
-        }
+        });
     }
 
     @PostMapping("/enhance")
-    public ResponseEntity<Map<String, Object>> enhanceResume(@RequestBody Map<String, String> request) {
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> enhanceResume(
+            @RequestBody Map<String, String> request) {
         Map<String, Object> response = new HashMap<>();
 
-        try {
-            String resumeData = request.get("resumeData");
-
-            if (resumeData == null || resumeData.trim().isEmpty()) {
-                response.put("success", false);
-                response.put("error", "Resume data is required");
-                return ResponseEntity.badRequest().body(response);
-            }
+        String resumeData = request.get("resumeData");
 
-            // Enhance resume content
-            String enhancedData = resumeParserService.enhanceResumeContent(resumeData);
+        if (resumeData == null || resumeData.trim().isEmpty()) {
+            response.put("success", false);
+            response.put("error", "Resume data is required");
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(response));
+        }
 
+        // Enhance resume content
+        return resumeParserService.enhanceResumeContent(resumeData).thenApply(enhancedData -> {
             response.put("success", true);
             response.put("data", enhancedData);
             response.put("message", "Resume enhanced successfully");
 
             return ResponseEntity.ok(response);
-
-        } catch (Exception e) {
+        }).exceptionally(error -> {
             response.put("success", false);
-            response.put("error", "Failed to enhance resume: " + e.getMessage());
+            response.put("error", "Failed to enhance resume: " + LlmGateway.unwrap(error).getMessage());
             return ResponseEntity.internalServerError().body(response);
-        }
+        });
     }
 }
@@ -8,6 +8,8 @@ import com.syntaxarena.backend.service.NvidiaVisualizerService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.concurrent.CompletableFuture;
+
 @RestController
 @RequestMapping("/api")
 @CrossOrigin(origins = "*")
@@ -17,12 +19,12 @@ public class VisualizerController {
     private NvidiaVisualizerService nvidiaVisualizerService;
 
     @PostMapping("/visualize-execution")
-    public ExecutionFlowResponse visualizeExecution(@RequestBody ExecutionFlowRequest request) {
+    public CompletableFuture<ExecutionFlowResponse> visualizeExecution(@RequestBody ExecutionFlowRequest request) {
         return nvidiaVisualizerService.visualizeExecution(request);
     }
 
     @PostMapping("/simplify-concept")
-    public ConceptResponse simplifyConcept(@RequestBody ConceptRequest request) {
+    public CompletableFuture<ConceptResponse> simplifyConcept(@RequestBody ConceptRequest request) {
         return nvidiaVisualizerService.simplifyConcept(request);
     }
 }
@@ -14,6 +14,8 @@ public class ArenaMessage {
         PROGRESS_UPDATE, // Player progress update
         OPPONENT_PROGRESS, // Opponent's progress (sent to player)
         SUBMIT_SOLUTION, // Player submits solution
+        TEST_RESULT, // One test case of a server-judged submission finished (sent to player)
+        BENCHMARK_RESULT, // Speed of a passing solution in an optimize battle
         GAME_END, // Game ended (win/lose/timeout)
         ERROR // Error message
     }
@@ -10,6 +10,10 @@ public class ArenaPlayer {
     private boolean submitted;
     private long submitTime;
     private boolean isReady;
+    private boolean optimize; // Wants an optimize battle, decided by solution speed
+    private boolean benchmarked; // Benchmark of the passing solution finished, successfully or not
+    private BenchmarkResult benchmark; // Null until benchmarked, or if the benchmark failed
+    private String benchmarkLanguage; // Language of the benchmarked solution, null until its benchmark starts
 
     public ArenaPlayer() {
         this.progress = 0;
@@ -98,4 +102,36 @@ public class ArenaPlayer {
     public void setReady(boolean ready) {
         isReady = ready;
     }
+
+    public boolean isOptimize() {
+        return optimize;
+    }
+
+    public void setOptimize(boolean optimize) {
+        this.optimize = optimize;
+    }
+
+    public boolean isBenchmarked() {
+        return benchmarked;
+    }
+
+    public void setBenchmarked(boolean benchmarked) {
+        this.benchmarked = benchmarked;
+    }
+
+    public BenchmarkResult getBenchmark() {
+        return benchmark;
+    }
+
+    public void setBenchmark(BenchmarkResult benchmark) {
+        this.benchmark = benchmark;
+    }
+
+    public String getBenchmarkLanguage() {
+        return benchmarkLanguage;
+    }
+
+    public void setBenchmarkLanguage(String benchmarkLanguage) {
+        this.benchmarkLanguage = benchmarkLanguage;
+    }
 }
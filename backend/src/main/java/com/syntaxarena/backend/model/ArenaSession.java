@@ -14,6 +14,8 @@ public class ArenaSession {
     private int durationSeconds;
     private String winnerId;
     private SessionStatus status;
+    // Both passing solutions are benchmarked and the faster one wins, instead of the first to pass
+    private boolean optimizeMode;
 
     public enum SessionStatus {
         WAITING, // Waiting for second player
@@ -122,6 +124,14 @@ public class ArenaSession {
         this.status = status;
     }
 
+    public boolean isOptimizeMode() {
+        return optimizeMode;
+    }
+
+    public void setOptimizeMode(boolean optimizeMode) {
+        this.optimizeMode = optimizeMode;
+    }
+
     public boolean isFull() {
         return players.size() >= 2;
     }
@@ -0,0 +1,103 @@
+package com.syntaxarena.backend.model;
+
+/**
+ * Outcome of a benchmark run: time per operation over the measured
+ * iterations, where one operation is one full invocation of the program.
+ * The error is the half-width of a 99.9% confidence interval, as JMH
+ * reports it.
+ */
+public class BenchmarkResult {
+    private int warmupIterations;
+    private int measurementIterations;
+    private double nanosPerOp; // Mean of the measured iterations
+    private double errorNanosPerOp;
+    private double confidenceLowNanos;
+    private double confidenceHighNanos;
+    private double stdDevNanos;
+    private long minNanos;
+    private long maxNanos;
+    private Double allocatedBytesPerOp; // Null when the runtime cannot measure allocation
+
+    public BenchmarkResult() {
+    }
+
+    public int getWarmupIterations() {
+        return warmupIterations;
+    }
+
+    public void setWarmupIterations(int warmupIterations) {
+        this.warmupIterations = warmupIterations;
+    }
+
+    public int getMeasurementIterations() {
+        return measurementIterations;
+    }
+
+    public void setMeasurementIterations(int measurementIterations) {
+        this.measurementIterations = measurementIterations;
+    }
+
+    public double getNanosPerOp() {
+        return nanosPerOp;
+    }
+
+    public void setNanosPerOp(double nanosPerOp) {
+        this.nanosPerOp = nanosPerOp;
+    }
+
+    public double getErrorNanosPerOp() {
+        return errorNanosPerOp;
+    }
+
+    public void setErrorNanosPerOp(double errorNanosPerOp) {
+        this.errorNanosPerOp = errorNanosPerOp;
+    }
+
+    public double getConfidenceLowNanos() {
+        return confidenceLowNanos;
+    }
+
+    public void setConfidenceLowNanos(double confidenceLowNanos) {
+        this.confidenceLowNanos = confidenceLowNanos;
+    }
+
+    public double getConfidenceHighNanos() {
+        return confidenceHighNanos;
+    }
+
+    public void setConfidenceHighNanos(double confidenceHighNanos) {
+        this.confidenceHighNanos = confidenceHighNanos;
+    }
+
+    public double getStdDevNanos() {
+        return stdDevNanos;
+    }
+
+    public void setStdDevNanos(double stdDevNanos) {
+        this.stdDevNanos = stdDevNanos;
+    }
+
+    public long getMinNanos() {
+        return minNanos;
+    }
+
+    public void setMinNanos(long minNanos) {
+        this.minNanos = minNanos;
+    }
+
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+
+    public void setMaxNanos(long maxNanos) {
+        this.maxNanos = maxNanos;
+    }
+
+    public Double getAllocatedBytesPerOp() {
+        return allocatedBytesPerOp;
+    }
+
+    public void setAllocatedBytesPerOp(Double allocatedBytesPerOp) {
+        this.allocatedBytesPerOp = allocatedBytesPerOp;
+    }
+}
@@ -0,0 +1,67 @@
+package com.syntaxarena.backend.model;
+
+/**
+ * One server-sent event of a streamed chat reply (/api/blackhole/stream,
+ * /api/doc-chat/stream): TOKEN frames as the model writes, at most one
+ * RESPONSE frame, then COMPLETE.
+ */
+public class ChatStreamFrame {
+    private FrameType type;
+    private String text; // Reply text for TOKEN frames
+    private Object response; // Same body the non-streaming endpoint returns, for RESPONSE frames
+    private Long timeToFirstTokenMs;
+    private Long durationMs;
+
+    public enum FrameType {
+        TOKEN,
+        RESPONSE, // The reply could not be streamed (an error, or a document to create)
+        COMPLETE // Last frame, carries timings
+    }
+
+    public ChatStreamFrame() {
+    }
+
+    public ChatStreamFrame(FrameType type) {
+        this.type = type;
+    }
+
+    public FrameType getType() {
+        return type;
+    }
+
+    public void setType(FrameType type) {
+        this.type = type;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public void setText(String text) {
+        this.text = text;
+    }
+
+    public Object getResponse() {
+        return response;
+    }
+
+    public void setResponse(Object response) {
+        this.response = response;
+    }
+
+    public Long getTimeToFirstTokenMs() {
+        return timeToFirstTokenMs;
+    }
+
+    public void setTimeToFirstTokenMs(Long timeToFirstTokenMs) {
+        this.timeToFirstTokenMs = timeToFirstTokenMs;
+    }
+
+    public Long getDurationMs() {
+        return durationMs;
+    }
+
+    public void setDurationMs(Long durationMs) {
+        this.durationMs = durationMs;
+    }
+}
@@ -0,0 +1,80 @@
+package com.syntaxarena.backend.model;
+
+public class ComplexityRequest {
+    private String language;
+    private String code;
+    private String testHarness; // Optional, as for ExecutionRequest
+    // Program that reads a size n on stdin and prints an input of that size for the solution
+    private String generator;
+    private String generatorLanguage; // Defaults to the solution's language
+    private String expectedComplexity; // Optional, e.g. "O(n)"; solutions that grow faster are rejected
+    private Integer minSize;
+    private Integer maxSize;
+
+    public ComplexityRequest() {
+    }
+
+    public String getLanguage() {
+        return language;
+    }
+
+    public void setLanguage(String language) {
+        this.language = language;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public void setCode(String code) {
+        this.code = code;
+    }
+
+    public String getTestHarness() {
+        return testHarness;
+    }
+
+    public void setTestHarness(String testHarness) {
+        this.testHarness = testHarness;
+    }
+
+    public String getGenerator() {
+        return generator;
+    }
+
+    public void setGenerator(String generator) {
+        this.generator = generator;
+    }
+
+    public String getGeneratorLanguage() {
+        return generatorLanguage;
+    }
+
+    public void setGeneratorLanguage(String generatorLanguage) {
+        this.generatorLanguage = generatorLanguage;
+    }
+
+    public String getExpectedComplexity() {
+        return expectedComplexity;
+    }
+
+    public void setExpectedComplexity(String expectedComplexity) {
+        this.expectedComplexity = expectedComplexity;
+    }
+
+    public Integer getMinSize() {
+        return minSize;
+    }
+
+    public void setMinSize(Integer minSize) {
+        this.minSize = minSize;
+    }
+
+    public Integer getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(Integer maxSize) {
+        this.maxSize = maxSize;
+    }
+}
@@ -0,0 +1,153 @@
+package com.syntaxarena.backend.model;
+
+import java.util.List;
+
+public class ComplexityResponse {
+    private String bestFit; // e.g. "O(n log n)"; null if the estimate failed
+    private Boolean acceptable; // Null unless an expected complexity was given
+    private List<Fit> fits; // Every model that could be fitted, best first
+    private List<Sample> samples;
+    private String error;
+
+    public ComplexityResponse() {
+    }
+
+    public ComplexityResponse(String error) {
+        this.error = error;
+    }
+
+    public String getBestFit() {
+        return bestFit;
+    }
+
+    public void setBestFit(String bestFit) {
+        this.bestFit = bestFit;
+    }
+
+    public Boolean getAcceptable() {
+        return acceptable;
+    }
+
+    public void setAcceptable(Boolean acceptable) {
+        this.acceptable = acceptable;
+    }
+
+    public List<Fit> getFits() {
+        return fits;
+    }
+
+    public void setFits(List<Fit> fits) {
+        this.fits = fits;
+    }
+
+    public List<Sample> getSamples() {
+        return samples;
+    }
+
+    public void setSamples(List<Sample> samples) {
+        this.samples = samples;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    /**
+     * Least-squares fit of time = intercept + coefficient * f(n).
+     */
+    public static class Fit {
+        private String complexity;
+        private double interceptNanos;
+        private double coefficient;
+        private double residualSumOfSquares;
+        private double relativeError; // Root mean square residual over the mean time
+
+        public Fit() {
+        }
+
+        public Fit(String complexity, double interceptNanos, double coefficient, double residualSumOfSquares,
+                double relativeError) {
+            this.complexity = complexity;
+            this.interceptNanos = interceptNanos;
+            this.coefficient = coefficient;
+            this.residualSumOfSquares = residualSumOfSquares;
+            this.relativeError = relativeError;
+        }
+
+        public String getComplexity() {
+            return complexity;
+        }
+
+        public void setComplexity(String complexity) {
+            this.complexity = complexity;
+        }
+
+        public double getInterceptNanos() {
+            return interceptNanos;
+        }
+
+        public void setInterceptNanos(double interceptNanos) {
+            this.interceptNanos = interceptNanos;
+        }
+
+        public double getCoefficient() {
+            return coefficient;
+        }
+
+        public void setCoefficient(double coefficient) {
+            this.coefficient = coefficient;
+        }
+
+        public double getResidualSumOfSquares() {
+            return residualSumOfSquares;
+        }
+
+        public void setResidualSumOfSquares(double residualSumOfSquares) {
+            this.residualSumOfSquares = residualSumOfSquares;
+        }
+
+        public double getRelativeError() {
+            return relativeError;
+        }
+
+        public void setRelativeError(double relativeError) {
+            this.relativeError = relativeError;
+        }
+    }
+
+    /**
+     * Time of the solution at one input size.
+     */
+    public static class Sample {
+        private int n;
+        private long nanos;
+
+        public Sample() {
+        }
+
+        public Sample(int n, long nanos) {
+            this.n = n;
+            this.nanos = nanos;
+        }
+
+        public int getN() {
+            return n;
+        }
+
+        public void setN(int n) {
+            this.n = n;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        public void setNanos(long nanos) {
+            this.nanos = nanos;
+        }
+    }
+}
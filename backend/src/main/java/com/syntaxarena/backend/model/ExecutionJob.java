@@ -0,0 +1,78 @@
+package com.syntaxarena.backend.model;
+
+/**
+ * State of an asynchronous run submitted to /api/execute/async. The result
+ * is only set once the job is COMPLETED.
+ */
+public class ExecutionJob {
+    private String jobId;
+    private JobStatus status;
+    private long submittedAt; // Epoch millis
+    private Long startedAt;
+    private Long completedAt;
+    private ExecutionResponse result;
+
+    public enum JobStatus {
+        QUEUED,
+        RUNNING,
+        COMPLETED, // Includes runs that failed to compile or crashed; see the result
+        REJECTED // The execution queue was full; nothing ran and no job was kept
+    }
+
+    public ExecutionJob() {
+    }
+
+    public ExecutionJob(String jobId, JobStatus status, long submittedAt) {
+        this.jobId = jobId;
+        this.status = status;
+        this.submittedAt = submittedAt;
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public void setJobId(String jobId) {
+        this.jobId = jobId;
+    }
+
+    public JobStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(JobStatus status) {
+        this.status = status;
+    }
+
+    public long getSubmittedAt() {
+        return submittedAt;
+    }
+
+    public void setSubmittedAt(long submittedAt) {
+        this.submittedAt = submittedAt;
+    }
+
+    public Long getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(Long startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public Long getCompletedAt() {
+        return completedAt;
+    }
+
+    public void setCompletedAt(Long completedAt) {
+        this.completedAt = completedAt;
+    }
+
+    public ExecutionResponse getResult() {
+        return result;
+    }
+
+    public void setResult(ExecutionResponse result) {
+        this.result = result;
+    }
+}
@@ -1,9 +1,14 @@
 package com.syntaxarena.backend.model;
 
+import java.util.List;
+
 public class ExecutionRequest {
     private String language;
     private String code;
     private String testHarness; // Optional test harness code to run
+    private List<TestCase> testCases; // Optional; runs the program once per case with its input on stdin
+    private Benchmark benchmark; // Optional; times repeated runs instead of running once
+    private Checker checker; // Optional; how test case output is compared, line by line if unset
 
     public String getLanguage() {
         return language;
@@ -28,4 +33,149 @@ public class ExecutionRequest {
     public void setTestHarness(String testHarness) {
         this.testHarness = testHarness;
     }
+
+    public List<TestCase> getTestCases() {
+        return testCases;
+    }
+
+    public void setTestCases(List<TestCase> testCases) {
+        this.testCases = testCases;
+    }
+
+    public Benchmark getBenchmark() {
+        return benchmark;
+    }
+
+    public void setBenchmark(Benchmark benchmark) {
+        this.benchmark = benchmark;
+    }
+
+    public Checker getChecker() {
+        return checker;
+    }
+
+    public void setChecker(Checker checker) {
+        this.checker = checker;
+    }
+
+    public static class TestCase {
+        private String input;
+        private String expectedOutput;
+
+        public TestCase() {
+        }
+
+        public TestCase(String input, String expectedOutput) {
+            this.input = input;
+            this.expectedOutput = expectedOutput;
+        }
+
+        public String getInput() {
+            return input;
+        }
+
+        public void setInput(String input) {
+            this.input = input;
+        }
+
+        public String getExpectedOutput() {
+            return expectedOutput;
+        }
+
+        public void setExpectedOutput(String expectedOutput) {
+            this.expectedOutput = expectedOutput;
+        }
+    }
+
+    /**
+     * Benchmark settings. Every iteration runs the whole program with the
+     * same input on stdin; unset counts use the server defaults.
+     */
+    public static class Benchmark {
+        private Integer warmupIterations;
+        private Integer measurementIterations;
+        private String input;
+
+        public Benchmark() {
+        }
+
+        public Benchmark(Integer warmupIterations, Integer measurementIterations, String input) {
+            this.warmupIterations = warmupIterations;
+            this.measurementIterations = measurementIterations;
+            this.input = input;
+        }
+
+        public Integer getWarmupIterations() {
+            return warmupIterations;
+        }
+
+        public void setWarmupIterations(Integer warmupIterations) {
+            this.warmupIterations = warmupIterations;
+        }
+
+        public Integer getMeasurementIterations() {
+            return measurementIterations;
+        }
+
+        public void setMeasurementIterations(Integer measurementIterations) {
+            this.measurementIterations = measurementIterations;
+        }
+
+        public String getInput() {
+            return input;
+        }
+
+        public void setInput(String input) {
+            this.input = input;
+        }
+    }
+
+    public static class Checker {
+        private String mode; // "lines" (default), "tokens" or "float"
+        private boolean ignoreCase;
+        private Double absoluteTolerance; // Float mode; both unset means 1e-6 each
+        private Double relativeTolerance;
+
+        public Checker() {
+        }
+
+        public Checker(String mode, boolean ignoreCase, Double absoluteTolerance, Double relativeTolerance) {
+            this.mode = mode;
+            this.ignoreCase = ignoreCase;
+            this.absoluteTolerance = absoluteTolerance;
+            this.relativeTolerance = relativeTolerance;
+        }
+
+        public String getMode() {
+            return mode;
+        }
+
+        public void setMode(String mode) {
+            this.mode = mode;
+        }
+
+        public boolean isIgnoreCase() {
+            return ignoreCase;
+        }
+
+        public void setIgnoreCase(boolean ignoreCase) {
+            this.ignoreCase = ignoreCase;
+        }
+
+        public Double getAbsoluteTolerance() {
+            return absoluteTolerance;
+        }
+
+        public void setAbsoluteTolerance(Double absoluteTolerance) {
+            this.absoluteTolerance = absoluteTolerance;
+        }
+
+        public Double getRelativeTolerance() {
+            return relativeTolerance;
+        }
+
+        public void setRelativeTolerance(Double relativeTolerance) {
+            this.relativeTolerance = relativeTolerance;
+        }
+    }
 }
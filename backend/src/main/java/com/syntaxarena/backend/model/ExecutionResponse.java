@@ -1,8 +1,24 @@
 package com.syntaxarena.backend.model;
 
+import java.util.List;
+
 public class ExecutionResponse {
     private String output;
     private String error;
+    private Integer exitCode; // Null if the run was killed or never started
+    private boolean timedOut;
+    private boolean truncated; // Output was cut at the configured size limit
+    // Measured resource usage; null when it could not be measured
+    private Long cpuTimeNanos;
+    private Long wallTimeNanos;
+    private Long peakRssBytes;
+    private ExecutionTimings timings; // Per-phase breakdown of where the time went
+    private List<TestCaseResult> testResults; // Only set for batch runs
+    private int passedCount;
+    private BenchmarkResult benchmark; // Only set for benchmark runs
+
+    public ExecutionResponse() {
+    }
 
     public ExecutionResponse(String output, String error) {
         this.output = output;
@@ -24,4 +40,181 @@ public class ExecutionResponse {
     public void setError(String error) {
         this.error = error;
     }
+
+    public Integer getExitCode() {
+        return exitCode;
+    }
+
+    public void setExitCode(Integer exitCode) {
+        this.exitCode = exitCode;
+    }
+
+    public boolean isTimedOut() {
+        return timedOut;
+    }
+
+    public void setTimedOut(boolean timedOut) {
+        this.timedOut = timedOut;
+    }
+
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    public void setTruncated(boolean truncated) {
+        this.truncated = truncated;
+    }
+
+    public Long getCpuTimeNanos() {
+        return cpuTimeNanos;
+    }
+
+    public void setCpuTimeNanos(Long cpuTimeNanos) {
+        this.cpuTimeNanos = cpuTimeNanos;
+    }
+
+    public Long getWallTimeNanos() {
+        return wallTimeNanos;
+    }
+
+    public void setWallTimeNanos(Long wallTimeNanos) {
+        this.wallTimeNanos = wallTimeNanos;
+    }
+
+    public Long getPeakRssBytes() {
+        return peakRssBytes;
+    }
+
+    public void setPeakRssBytes(Long peakRssBytes) {
+        this.peakRssBytes = peakRssBytes;
+    }
+
+    public BenchmarkResult getBenchmark() {
+        return benchmark;
+    }
+
+    public void setBenchmark(BenchmarkResult benchmark) {
+        this.benchmark = benchmark;
+    }
+
+    public ExecutionTimings getTimings() {
+        return timings;
+    }
+
+    public void setTimings(ExecutionTimings timings) {
+        this.timings = timings;
+    }
+
+    public List<TestCaseResult> getTestResults() {
+        return testResults;
+    }
+
+    public void setTestResults(List<TestCaseResult> testResults) {
+        this.testResults = testResults;
+    }
+
+    public int getPassedCount() {
+        return passedCount;
+    }
+
+    public void setPassedCount(int passedCount) {
+        this.passedCount = passedCount;
+    }
+
+    public static class TestCaseResult {
+        private int testNumber;
+        private boolean passed;
+        private String actualOutput;
+        private String error;
+        private boolean timedOut;
+        private boolean truncated;
+        private boolean skipped; // Never finished: an earlier failure cancelled it
+        private String mismatch; // Where the output first differs from the expected output, if it does
+        private long elapsedNanos;
+
+        public TestCaseResult() {
+        }
+
+        public TestCaseResult(int testNumber, boolean passed, String actualOutput, String error, boolean timedOut,
+                long elapsedNanos) {
+            this.testNumber = testNumber;
+            this.passed = passed;
+            this.actualOutput = actualOutput;
+            this.error = error;
+            this.timedOut = timedOut;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public int getTestNumber() {
+            return testNumber;
+        }
+
+        public void setTestNumber(int testNumber) {
+            this.testNumber = testNumber;
+        }
+
+        public boolean isPassed() {
+            return passed;
+        }
+
+        public void setPassed(boolean passed) {
+            this.passed = passed;
+        }
+
+        public String getActualOutput() {
+            return actualOutput;
+        }
+
+        public void setActualOutput(String actualOutput) {
+            this.actualOutput = actualOutput;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        public void setError(String error) {
+            this.error = error;
+        }
+
+        public boolean isTimedOut() {
+            return timedOut;
+        }
+
+        public void setTimedOut(boolean timedOut) {
+            this.timedOut = timedOut;
+        }
+
+        public boolean isTruncated() {
+            return truncated;
+        }
+
+        public void setTruncated(boolean truncated) {
+            this.truncated = truncated;
+        }
+
+        public boolean isSkipped() {
+            return skipped;
+        }
+
+        public void setSkipped(boolean skipped) {
+            this.skipped = skipped;
+        }
+
+        public String getMismatch() {
+            return mismatch;
+        }
+
+        public void setMismatch(String mismatch) {
+            this.mismatch = mismatch;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public void setElapsedNanos(long elapsedNanos) {
+            this.elapsedNanos = elapsedNanos;
+        }
+    }
 }
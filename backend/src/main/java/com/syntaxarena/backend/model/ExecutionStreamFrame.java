@@ -0,0 +1,111 @@
+package com.syntaxarena.backend.model;
+
+public class ExecutionStreamFrame {
+    private FrameType type;
+    private String runId; // Chosen by the server
+    private String requestId; // ACCEPTED and REJECTED frames: the requestId the client sent
+    private String data; // Output text for STDOUT/STDERR frames
+    private Integer exitCode;
+    private boolean timedOut;
+    private boolean truncated;
+    private Long queuedMs;
+    private Long timeToFirstByteMs; // From start of the run to the first output chunk
+    private Long durationMs;
+
+    public enum FrameType {
+        ACCEPTED, // First frame of a run, tells the client its runId
+        STDOUT,
+        STDERR,
+        COMPLETE, // Last frame of a run, carries exit status and timings
+        REJECTED // The execution queue was full; nothing ran
+    }
+
+    public ExecutionStreamFrame() {
+    }
+
+    public ExecutionStreamFrame(FrameType type, String runId, String data) {
+        this.type = type;
+        this.runId = runId;
+        this.data = data;
+    }
+
+    public FrameType getType() {
+        return type;
+    }
+
+    public void setType(FrameType type) {
+        this.type = type;
+    }
+
+    public String getRunId() {
+        return runId;
+    }
+
+    public void setRunId(String runId) {
+        this.runId = runId;
+    }
+
+    public String getRequestId() {
+        return requestId;
+    }
+
+    public void setRequestId(String requestId) {
+        this.requestId = requestId;
+    }
+
+    public String getData() {
+        return data;
+    }
+
+    public void setData(String data) {
+        this.data = data;
+    }
+
+    public Integer getExitCode() {
+        return exitCode;
+    }
+
+    public void setExitCode(Integer exitCode) {
+        this.exitCode = exitCode;
+    }
+
+    public boolean isTimedOut() {
+        return timedOut;
+    }
+
+    public void setTimedOut(boolean timedOut) {
+        this.timedOut = timedOut;
+    }
+
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    public void setTruncated(boolean truncated) {
+        this.truncated = truncated;
+    }
+
+    public Long getQueuedMs() {
+        return queuedMs;
+    }
+
+    public void setQueuedMs(Long queuedMs) {
+        this.queuedMs = queuedMs;
+    }
+
+    public Long getTimeToFirstByteMs() {
+        return timeToFirstByteMs;
+    }
+
+    public void setTimeToFirstByteMs(Long timeToFirstByteMs) {
+        this.timeToFirstByteMs = timeToFirstByteMs;
+    }
+
+    public Long getDurationMs() {
+        return durationMs;
+    }
+
+    public void setDurationMs(Long durationMs) {
+        this.durationMs = durationMs;
+    }
+}
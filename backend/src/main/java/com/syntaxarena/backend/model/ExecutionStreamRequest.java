@@ -0,0 +1,13 @@
+package com.syntaxarena.backend.model;
+
+public class ExecutionStreamRequest extends ExecutionRequest {
+    private String requestId; // Optional, chosen by the client; echoed in the ACCEPTED or REJECTED frame
+
+    public String getRequestId() {
+        return requestId;
+    }
+
+    public void setRequestId(String requestId) {
+        this.requestId = requestId;
+    }
+}
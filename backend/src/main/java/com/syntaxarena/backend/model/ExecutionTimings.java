@@ -0,0 +1,66 @@
+package com.syntaxarena.backend.model;
+
+/**
+ * Where the time of a run went, in nanoseconds. For cold processes "run"
+ * includes interpreter or JVM startup; for pooled workers it is the time
+ * spent in user code only.
+ */
+public class ExecutionTimings {
+    private long prepareNanos; // Writing files and building commands or payloads
+    private long compileNanos; // Java compilation, including the class cache lookup
+    private long spawnNanos; // Starting a process or taking a warm worker
+    private long runNanos;
+    private long collectNanos; // Draining output and building the response
+
+    public ExecutionTimings() {
+    }
+
+    public ExecutionTimings(long prepareNanos, long compileNanos, long spawnNanos, long runNanos,
+            long collectNanos) {
+        this.prepareNanos = prepareNanos;
+        this.compileNanos = compileNanos;
+        this.spawnNanos = spawnNanos;
+        this.runNanos = runNanos;
+        this.collectNanos = collectNanos;
+    }
+
+    public long getPrepareNanos() {
+        return prepareNanos;
+    }
+
+    public void setPrepareNanos(long prepareNanos) {
+        this.prepareNanos = prepareNanos;
+    }
+
+    public long getCompileNanos() {
+        return compileNanos;
+    }
+
+    public void setCompileNanos(long compileNanos) {
+        this.compileNanos = compileNanos;
+    }
+
+    public long getSpawnNanos() {
+        return spawnNanos;
+    }
+
+    public void setSpawnNanos(long spawnNanos) {
+        this.spawnNanos = spawnNanos;
+    }
+
+    public long getRunNanos() {
+        return runNanos;
+    }
+
+    public void setRunNanos(long runNanos) {
+        this.runNanos = runNanos;
+    }
+
+    public long getCollectNanos() {
+        return collectNanos;
+    }
+
+    public void setCollectNanos(long collectNanos) {
+        this.collectNanos = collectNanos;
+    }
+}
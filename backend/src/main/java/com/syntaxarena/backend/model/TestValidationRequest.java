@@ -1,10 +1,17 @@
 package com.syntaxarena.backend.model;
 
+import java.util.List;
+
 public class TestValidationRequest {
     private String code;
     private String language;
+    private String problemTitle; // Optional; with the description, identifies the problem's cached test suite
     private String problemDescription;
     private String expectedBehavior;
+    private String testHarness; // Optional, as for ExecutionRequest
+    // When present the solution is run against these; otherwise it is judged by the LLM
+    private List<ExecutionRequest.TestCase> testCases;
+    private ExecutionRequest.Checker checker; // Optional, as for ExecutionRequest
 
     public TestValidationRequest() {
     }
@@ -25,6 +32,14 @@ public class TestValidationRequest {
         this.language = language;
     }
 
+    public String getProblemTitle() {
+        return problemTitle;
+    }
+
+    public void setProblemTitle(String problemTitle) {
+        this.problemTitle = problemTitle;
+    }
+
     public String getProblemDescription() {
         return problemDescription;
     }
@@ -40,4 +55,28 @@ public class TestValidationRequest {
     public void setExpectedBehavior(String expectedBehavior) {
         this.expectedBehavior = expectedBehavior;
     }
+
+    public String getTestHarness() {
+        return testHarness;
+    }
+
+    public void setTestHarness(String testHarness) {
+        this.testHarness = testHarness;
+    }
+
+    public List<ExecutionRequest.TestCase> getTestCases() {
+        return testCases;
+    }
+
+    public void setTestCases(List<ExecutionRequest.TestCase> testCases) {
+        this.testCases = testCases;
+    }
+
+    public ExecutionRequest.Checker getChecker() {
+        return checker;
+    }
+
+    public void setChecker(ExecutionRequest.Checker checker) {
+        this.checker = checker;
+    }
 }
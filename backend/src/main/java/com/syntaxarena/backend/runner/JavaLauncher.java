@@ -0,0 +1,534 @@
+package com.syntaxarena.backend.runner;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.Scanner;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Entry point of the child JVM that runs a compiled Java submission.
+ * The class bytes arrive on stdin so they never have to be written to disk.
+ *
+ * This class runs outside Spring and must only depend on the JDK and the
+ * other classes in this package.
+ *
+ * Usage: java -cp &lt;launcher classpath&gt; com.syntaxarena.backend.runner.JavaLauncher
+ *        [--worker maxOutputBytes | --bench warmup measurements maxOutputBytes]
+ * stdin: UTF mainClass, int count, then count x (UTF name, int length, bytes)
+ *
+ * In worker mode the JVM stays up and reads the same request frames the
+ * interpreter workers read ("codeLen stdinLen nonce\n" code stdin), where code
+ * is the class payload above. Every frame runs in a fresh class loader that is
+ * dropped afterwards, and the captured output is written back as a worker
+ * reply frame on fd 3 (see InterpreterWorker.command); fd 1 is /dev/null, so
+ * user code opening FileDescriptor.out cannot forge one. The frame being
+ * served is only referenced from the serving thread's stack and the exit
+ * hook, never from a static field, so reflection does not reach its nonce;
+ * without it, bytes written to /dev/fd/3 only break the writer's own run. The trailer carries
+ * one extra field, a leak signal ("-" when clean), telling the pool to retire
+ * this JVM instead of reusing it.
+ *
+ * Bench mode reads the same frames but invokes main repeatedly per frame in
+ * one class loader, so later iterations run JIT-compiled code: at least
+ * warmup iterations and 250ms of warmup (unless warmup is 0), then
+ * measurements iterations. Only the first iteration's stdout is kept. The trailer gains a
+ * seventh field with one "nanos/allocatedBytes" pair per measured
+ * iteration, comma separated; allocatedBytes counts the main thread and is
+ * -1 where the JVM cannot measure it.
+ */
+public class JavaLauncher {
+
+    // Retire the JVM once a run leaves more than this share of the heap in use
+    private static final double HEAP_LEAK_RATIO = 0.75;
+
+    // Bench mode keeps warming up until this much time has passed, so short programs reach compiled code too
+    private static final long MIN_WARMUP_NANOS = 250_000_000;
+    private static final int MAX_WARMUP_ITERATIONS = 1000;
+
+    // Where worker and bench mode replies go; InterpreterWorker.command puts the reply pipe there
+    private static final String REPLY_PATH = "/dev/fd/3";
+
+    public static void main(String[] args) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(System.in));
+        if (args.length > 0 && "--worker".equals(args[0])) {
+            int maxOutputBytes = args.length > 1 ? Integer.parseInt(args[1]) : 65536;
+            serveWorker(in, maxOutputBytes);
+            System.exit(0);
+        }
+        if (args.length > 2 && "--bench".equals(args[0])) {
+            int maxOutputBytes = args.length > 3 ? Integer.parseInt(args[3]) : 65536;
+            serveBench(in, Integer.parseInt(args[1]), Integer.parseInt(args[2]), maxOutputBytes);
+            System.exit(0);
+        }
+
+        String mainClass = in.readUTF();
+        Map<String, byte[]> classes = readClasses(in);
+        System.setIn(in);
+        int status = run(mainClass, classes, new String[0]);
+        System.out.flush();
+        System.err.flush();
+        System.exit(status);
+    }
+
+    static Map<String, byte[]> readClasses(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        Map<String, byte[]> classes = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            String name = in.readUTF();
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            classes.put(name, bytes);
+        }
+        return classes;
+    }
+
+    private static void serveWorker(DataInputStream in, int maxOutputBytes) throws IOException {
+        OutputStream replies = new BufferedOutputStream(new FileOutputStream(REPLY_PATH));
+        // Stray writes between runs (leftover threads) must never reach the reply stream
+        PrintStream idleOut = System.err;
+        System.setOut(idleOut);
+        AtomicReference<WorkerRun> currentRun = exitReply(replies);
+        warmUp();
+
+        String header;
+        while ((header = readLine(in)) != null) {
+            String[] fields = header.trim().split(" ");
+            byte[] code = new byte[Integer.parseInt(fields[0])];
+            in.readFully(code);
+            byte[] stdin = new byte[Integer.parseInt(fields[1])];
+            in.readFully(stdin);
+
+            DataInputStream payload = new DataInputStream(new ByteArrayInputStream(code));
+            String mainClass = payload.readUTF();
+            Map<String, byte[]> classes = readClasses(payload);
+
+            Set<Thread> threadsBefore = Thread.getAllStackTraces().keySet();
+            // First, since the first TimeZone.getDefault() sets user.timezone
+            List<Object> globalsBefore = globals();
+            Properties propertiesBefore = (Properties) System.getProperties().clone();
+            WorkerRun run = new WorkerRun(fields[2], maxOutputBytes);
+            System.setIn(new ByteArrayInputStream(stdin));
+            System.setOut(run.out);
+            System.setErr(run.err);
+            currentRun.set(run);
+            int status;
+            try {
+                status = run(mainClass, classes, new String[0]);
+                // Like a plain JVM, the program is not over until its non-daemon threads are
+                joinNewThreads(threadsBefore);
+            } finally {
+                System.setIn(new ByteArrayInputStream(new byte[0]));
+                System.setOut(idleOut);
+                System.setErr(idleOut);
+                Thread.currentThread().setContextClassLoader(JavaLauncher.class.getClassLoader());
+            }
+            String leak = detectLeak(threadsBefore, propertiesBefore, globalsBefore, idleOut);
+            currentRun.set(null);
+            if (!run.finish(replies, String.valueOf(status), leak, null)) {
+                return;
+            }
+        }
+    }
+
+    private static void serveBench(DataInputStream in, int warmup, int measurements, int maxOutputBytes)
+            throws IOException {
+        OutputStream replies = new BufferedOutputStream(new FileOutputStream(REPLY_PATH));
+        PrintStream idleOut = System.err;
+        PrintStream discard = new PrintStream(OutputStream.nullOutputStream());
+        System.setOut(idleOut);
+        AtomicReference<WorkerRun> currentRun = exitReply(replies);
+
+        String header;
+        while ((header = readLine(in)) != null) {
+            String[] fields = header.trim().split(" ");
+            byte[] code = new byte[Integer.parseInt(fields[0])];
+            in.readFully(code);
+            byte[] stdin = new byte[Integer.parseInt(fields[1])];
+            in.readFully(stdin);
+
+            DataInputStream payload = new DataInputStream(new ByteArrayInputStream(code));
+            String mainClass = payload.readUTF();
+            Map<String, byte[]> classes = readClasses(payload);
+
+            WorkerRun run = new WorkerRun(fields[2], maxOutputBytes);
+            System.setOut(run.out);
+            System.setErr(run.err);
+            currentRun.set(run);
+            StringBuilder samples = new StringBuilder();
+            int status;
+            try {
+                MemoryClassLoader loader = new MemoryClassLoader(classes, JavaLauncher.class.getClassLoader());
+                Thread.currentThread().setContextClassLoader(loader);
+                Method main = findMain(loader, mainClass);
+                status = main != null ? 0 : 1;
+                int warmedUp = 0;
+                long warmupNanos = 0;
+                int measured = 0;
+                for (int i = 0; status == 0 && measured < measurements; i++) {
+                    if (i == 1) {
+                        // Errors from any iteration are still reported
+                        System.setOut(discard);
+                    }
+                    System.setIn(new ByteArrayInputStream(stdin));
+                    long allocatedBefore = allocatedBytes();
+                    long start = System.nanoTime();
+                    status = invokeMain(main, mainClass, new String[0]);
+                    long nanos = System.nanoTime() - start;
+                    long allocated = allocatedBefore < 0 ? -1 : allocatedBytes() - allocatedBefore;
+                    if (warmedUp < warmup || (warmup > 0 && warmupNanos < MIN_WARMUP_NANOS
+                            && warmedUp < MAX_WARMUP_ITERATIONS)) {
+                        warmedUp++;
+                        warmupNanos += nanos;
+                    } else {
+                        measured++;
+                        samples.append(samples.length() > 0 ? "," : "").append(nanos).append('/').append(allocated);
+                    }
+                }
+            } finally {
+                System.setIn(new ByteArrayInputStream(new byte[0]));
+                System.setOut(idleOut);
+                System.setErr(idleOut);
+                Thread.currentThread().setContextClassLoader(JavaLauncher.class.getClassLoader());
+            }
+            currentRun.set(null);
+            if (!run.finish(replies, String.valueOf(status), "-", status == 0 ? samples.toString() : null)) {
+                return;
+            }
+        }
+    }
+
+    // System.exit inside a submission: the hook answers the frame being served before the JVM goes away
+    private static AtomicReference<WorkerRun> exitReply(OutputStream replies) {
+        AtomicReference<WorkerRun> currentRun = new AtomicReference<>();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            WorkerRun run = currentRun.get();
+            if (run != null) {
+                run.finish(replies, "x", "exit", null);
+            }
+        }, "launcher-exit-reply"));
+        return currentRun;
+    }
+
+    // Bytes allocated by the calling thread so far, or -1 if the JVM does not track it
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean sunThreads = (com.sun.management.ThreadMXBean) threads;
+            if (sunThreads.isThreadAllocatedMemorySupported() && sunThreads.isThreadAllocatedMemoryEnabled()) {
+                return sunThreads.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    private static void joinNewThreads(Set<Thread> before) {
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (!before.contains(thread) && !thread.isDaemon() && thread != Thread.currentThread()) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Anything a run leaves behind that a fresh class loader does not undo:
+     * threads still alive, changed system properties or JVM-wide defaults,
+     * standard streams not put back, or a heap that stays full after
+     * collection. Returns "-" when the JVM is safe to reuse.
+     */
+    private static String detectLeak(Set<Thread> threadsBefore, Properties propertiesBefore,
+            List<Object> globalsBefore, PrintStream idleOut) {
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (!threadsBefore.contains(thread) && thread.isAlive()) {
+                return "threads";
+            }
+        }
+        if (!propertiesBefore.equals(System.getProperties())) {
+            return "properties";
+        }
+        if (System.out != idleOut || System.err != idleOut) {
+            return "streams";
+        }
+        List<Object> globals = globals();
+        for (int i = 0; i < globals.size(); i++) {
+            if (!Objects.equals(globals.get(i), globalsBefore.get(i))) {
+                return "globals";
+            }
+        }
+        Runtime runtime = Runtime.getRuntime();
+        if (runtime.totalMemory() - runtime.freeMemory() > runtime.maxMemory() * HEAP_LEAK_RATIO) {
+            System.gc();
+            if (runtime.totalMemory() - runtime.freeMemory() > runtime.maxMemory() * HEAP_LEAK_RATIO) {
+                return "heap";
+            }
+        }
+        return "-";
+    }
+
+    /**
+     * JVM-wide state a submission can change for the runs after it: default
+     * locales and time zone, the default uncaught exception handler, and the
+     * launcher's own static fields, which reflection can reach.
+     */
+    private static List<Object> globals() {
+        List<Object> globals = new ArrayList<>();
+        globals.add(Locale.getDefault());
+        globals.add(Locale.getDefault(Locale.Category.FORMAT));
+        globals.add(Locale.getDefault(Locale.Category.DISPLAY));
+        globals.add(TimeZone.getDefault());
+        globals.add(Thread.getDefaultUncaughtExceptionHandler());
+        for (Class<?> type : List.of(JavaLauncher.class, MemoryClassLoader.class)) {
+            for (Field field : type.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers())) {
+                    try {
+                        field.setAccessible(true);
+                        globals.add(field.get(null));
+                    } catch (ReflectiveOperationException | RuntimeException e) {
+                        globals.add(e.getClass());
+                    }
+                }
+            }
+        }
+        return globals;
+    }
+
+    // Touches the library code most submissions use so the first real run does not pay for loading it
+    private static void warmUp() {
+        for (int i = 0; i < 200; i++) {
+            Scanner scanner = new Scanner("3 1 2\nhello world\n");
+            List<Integer> numbers = new ArrayList<>();
+            for (int j = 0; j < 3; j++) {
+                numbers.add(scanner.nextInt());
+            }
+            scanner.nextLine();
+            Collections.sort(numbers);
+            Map<String, Integer> counts = new HashMap<>();
+            for (String word : scanner.nextLine().split(" ")) {
+                counts.merge(word, 1, Integer::sum);
+            }
+            StringBuilder line = new StringBuilder();
+            line.append(numbers).append(counts.size()).append(String.format("%.2f", i / 3.0));
+            line.append(numbers.stream().mapToInt(Integer::intValue).sum());
+        }
+    }
+
+    /**
+     * Output captured for the frame being served. finish writes the reply at
+     * most once, from the serving thread or from the exit hook.
+     */
+    private static class WorkerRun {
+        private final CappedOutputStream outBytes;
+        private final CappedOutputStream errBytes;
+        private final PrintStream out;
+        private final PrintStream err;
+        private final boolean measured = resetPeakRss();
+        private final long start = System.nanoTime();
+        private final long cpuStart = processCpuNanos();
+        private final String nonce;
+        private boolean answered;
+
+        WorkerRun(String nonce, int maxOutputBytes) {
+            this.nonce = nonce;
+            outBytes = new CappedOutputStream(maxOutputBytes);
+            errBytes = new CappedOutputStream(maxOutputBytes);
+            out = new PrintStream(outBytes, true, StandardCharsets.UTF_8);
+            err = new PrintStream(errBytes, true, StandardCharsets.UTF_8);
+        }
+
+        // Returns false if the reply stream is gone; samples is the bench mode trailer field, if any
+        synchronized boolean finish(OutputStream replies, String status, String leak, String samples) {
+            if (answered) {
+                return true;
+            }
+            answered = true;
+            out.flush();
+            err.flush();
+            long elapsed = System.nanoTime() - start;
+            long cpu = processCpuNanos() - cpuStart;
+            boolean truncated = outBytes.truncated || errBytes.truncated;
+            try {
+                writeBlob(replies, outBytes.toByteArray());
+                writeBlob(replies, errBytes.toByteArray());
+                replies.write((nonce + " " + status + " " + elapsed + " " + (truncated ? 1 : 0) + " " + cpu + " "
+                        + (measured ? peakRssBytes() : -1) + " " + leak + (samples != null ? " " + samples : "") + "\n")
+                        .getBytes(StandardCharsets.US_ASCII));
+                replies.flush();
+                return true;
+            } catch (IOException e) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Loads the classes into a fresh class loader and invokes mainClass.main.
+     * Returns the exit status the plain java launcher would have used.
+     */
+    static int run(String mainClass, Map<String, byte[]> classes, String[] args) {
+        MemoryClassLoader loader = new MemoryClassLoader(classes, JavaLauncher.class.getClassLoader());
+        Thread.currentThread().setContextClassLoader(loader);
+        Method main = findMain(loader, mainClass);
+        return main != null ? invokeMain(main, mainClass, args) : 1;
+    }
+
+    // Prints the java launcher's error and returns null if there is no usable main
+    private static Method findMain(ClassLoader loader, String mainClass) {
+        try {
+            Method main = loader.loadClass(mainClass).getMethod("main", String[].class);
+            if (!Modifier.isStatic(main.getModifiers())) {
+                throw new NoSuchMethodException("main");
+            }
+            return main;
+        } catch (ClassNotFoundException | LinkageError e) {
+            System.err.println("Error: Could not find or load main class " + mainClass);
+            System.err.println("Caused by: " + e);
+            return null;
+        } catch (NoSuchMethodException e) {
+            System.err.println("Error: Main method not found in class " + mainClass
+                    + ", please define the main method as:\n   public static void main(String[] args)");
+            return null;
+        }
+    }
+
+    private static int invokeMain(Method main, String mainClass, String[] args) {
+        try {
+            main.invoke(null, (Object) args);
+            return 0;
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            trimLauncherFrames(cause);
+            System.err.print("Exception in thread \"main\" ");
+            cause.printStackTrace();
+            return 1;
+        } catch (IllegalAccessException e) {
+            System.err.println("Error: Main method in class " + mainClass + " is not accessible");
+            return 1;
+        }
+    }
+
+    // Hide reflection and launcher frames so traces look like a plain `java Main` run
+    private static void trimLauncherFrames(Throwable error) {
+        StackTraceElement[] frames = error.getStackTrace();
+        List<StackTraceElement> kept = new ArrayList<>();
+        for (StackTraceElement frame : frames) {
+            String className = frame.getClassName();
+            if (className.startsWith("jdk.internal.reflect.") || className.startsWith("java.lang.reflect.")
+                    || className.equals(JavaLauncher.class.getName())) {
+                break;
+            }
+            kept.add(frame);
+        }
+        error.setStackTrace(kept.toArray(new StackTraceElement[0]));
+    }
+
+    // Includes JIT and GC threads, which are part of what the run costs
+    private static long processCpuNanos() {
+        java.lang.management.OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) os).getProcessCpuTime();
+        }
+        return 0;
+    }
+
+    // Restarts VmHWM at the current resident set, so the next read covers one run only
+    private static boolean resetPeakRss() {
+        try {
+            Files.writeString(Path.of("/proc/self/clear_refs"), "5");
+            return true;
+        } catch (IOException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    // High-water mark of this JVM's resident set, or -1 where /proc is not available
+    private static long peakRssBytes() {
+        try {
+            for (String line : Files.readAllLines(Path.of("/proc/self/status"))) {
+                if (line.startsWith("VmHWM:")) {
+                    return Long.parseLong(line.replaceAll("[^0-9]", "")) * 1024;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // Not Linux
+        }
+        return -1;
+    }
+
+    // Returns null at end of input
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(32);
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b < 0) {
+                if (line.size() == 0) {
+                    return null;
+                }
+                throw new EOFException("Truncated frame header");
+            }
+            line.write(b);
+        }
+        return line.toString(StandardCharsets.US_ASCII);
+    }
+
+    private static void writeBlob(OutputStream out, byte[] data) throws IOException {
+        out.write((data.length + "\n").getBytes(StandardCharsets.US_ASCII));
+        out.write(data);
+    }
+
+    // Keeps the first maxBytes written and drops the rest
+    private static class CappedOutputStream extends ByteArrayOutputStream {
+        private final int maxBytes;
+        private boolean truncated;
+
+        CappedOutputStream(int maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public synchronized void write(int b) {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) {
+            int room = maxBytes - count;
+            if (len > room) {
+                truncated = true;
+            }
+            if (room > 0) {
+                super.write(b, off, Math.min(room, len));
+            }
+        }
+    }
+}
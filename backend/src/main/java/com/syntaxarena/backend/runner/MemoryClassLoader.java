@@ -0,0 +1,25 @@
+package com.syntaxarena.backend.runner;
+
+import java.util.Map;
+
+/**
+ * Defines submission classes straight from bytes held in memory.
+ */
+public class MemoryClassLoader extends ClassLoader {
+
+    private final Map<String, byte[]> classes;
+
+    public MemoryClassLoader(Map<String, byte[]> classes, ClassLoader parent) {
+        super(parent);
+        this.classes = classes;
+    }
+
+    @Override
+    protected Class<?> findClass(String name) throws ClassNotFoundException {
+        byte[] bytes = classes.get(name);
+        if (bytes == null) {
+            throw new ClassNotFoundException(name);
+        }
+        return defineClass(name, bytes, 0, bytes.length);
+    }
+}
@@ -5,73 +5,41 @@ import com.syntaxarena.backend.model.AptitudeResponse;
 import com.syntaxarena.backend.model.AptitudeQuestion;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
-import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 public class AptitudeService {
 
-    @Value("${NVIDIA_API_KEY}")
-    private String apiKey;
-
-    private final HttpClient httpClient = HttpClient.newBuilder()
-            .version(HttpClient.Version.HTTP_2)
-            .connectTimeout(Duration.ofSeconds(30))
-            .build();
+    @Autowired
+    private LlmGateway llmGateway;
 
     private final ObjectMapper objectMapper = new ObjectMapper();
 
-    public AptitudeResponse generateQuestions(AptitudeRequest request) {
+    public CompletableFuture<AptitudeResponse> generateQuestions(AptitudeRequest request) {
         String prompt = createPrompt(request);
 
-        try {
-            // NVIDIA API endpoint (OpenAI-compatible)
-            String url = "https://integrate.api.nvidia.com/v1/chat/completions";
-
-            Map<String, Object> payload = new HashMap<>();
-            payload.put("model", "nvidia/nemotron-3-nano-30b-a3b");
-            payload.put("temperature", 0.9);
-            payload.put("top_p", 1);
-            payload.put("max_tokens", 4096);
-            payload.put("stream", false);
-
-            Map<String, Object> message = new HashMap<>();
-            message.put("role", "user");
-            message.put("content", prompt);
-            payload.put("messages", List.of(message));
-
-            String requestBody = objectMapper.writeValueAsString(payload);
-
-            HttpRequest httpRequest = HttpRequest.newBuilder()
-                    .uri(URI.create(url))
-                    .header("Content-Type", "application/json")
-                    .header("Authorization", "Bearer " + apiKey)
-                    .POST(HttpRequest.BodyPublishers.ofString(requestBody))
-                    .build();
-
-            HttpResponse<String> response = httpClient.send(httpRequest, HttpResponse.BodyHandlers.ofString());
-
-            if (response.statusCode() == 200) {
-                return parseResponse(response.body());
+        LlmGateway.ChatRequest chat = new LlmGateway.ChatRequest("aptitude");
+        chat.setTemperature(0.9);
+        chat.setTopP(1.0);
+        chat.setMaxTokens(4096);
+        chat.addMessage("user", prompt);
+
+        return llmGateway.completeAsync(chat).thenApply(completion -> {
+            if (completion.isSuccess()) {
+                return parseResponse(completion.getContent());
             } else {
-                System.out.println("NVIDIA API Error: " + response.body() + ". Utilizing fallback.");
+                System.out.println("NVIDIA API Error: " + completion.getBody() + ". Utilizing fallback.");
                 return getFallbackQuestions(request.getTopic(), request.getDifficulty());
             }
-
-        } catch (Exception e) {
-            System.out.println("Exception: " + e.getMessage() + ". Utilizing fallback.");
+        }).exceptionally(error -> {
+            System.out.println("Exception: " + LlmGateway.unwrap(error).getMessage() + ". Utilizing fallback.");
             return getFallbackQuestions(request.getTopic(), request.getDifficulty());
-        }
+        });
     }
 
     private String createPrompt(AptitudeRequest request) {
@@ -126,13 +94,9 @@ public class AptitudeService {
                 request.getDifficulty());
     }
 
-    private AptitudeResponse parseResponse(String jsonResponse) {
+    private AptitudeResponse parseResponse(String content) {
         try {
-            JsonNode root = objectMapper.readTree(jsonResponse);
-
-            // OpenAI-compatible response structure: choices[0].message.content
-            String text = root.path("choices").get(0)
-                    .path("message").path("content").asText();
+            String text = content;
 
             // Clean markdown if present
             if (text.startsWith("```json")) {
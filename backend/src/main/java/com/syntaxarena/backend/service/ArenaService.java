@@ -3,6 +3,7 @@ package com.syntaxarena.backend.service;
 import com.syntaxarena.backend.model.ArenaPlayer;
 import com.syntaxarena.backend.model.ArenaSession;
 import com.syntaxarena.backend.model.ArenaSession.SessionStatus;
+import com.syntaxarena.backend.model.BenchmarkResult;
 import com.syntaxarena.backend.model.QuestionRequest;
 import com.syntaxarena.backend.model.QuestionResponse;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -72,7 +73,7 @@ public class ArenaService {
         questionRequest.setTopic("Arrays");
         questionRequest.setDifficulty("Medium");
         questionRequest.setLanguage("java");
-        QuestionResponse problem = questionService.generateQuestion(questionRequest); // Create session
+        QuestionResponse problem = questionService.generateQuestion(questionRequest).join(); // Create session
         String sessionId = UUID.randomUUID().toString();
         ArenaSession session = new ArenaSession(
                 sessionId,
@@ -83,6 +84,7 @@ public class ArenaService {
 
         session.addPlayer(player1);
         session.addPlayer(player2);
+        session.setOptimizeMode(player1.isOptimize() && player2.isOptimize());
         session.setStatus(SessionStatus.ACTIVE);
         session.setStartTime(System.currentTimeMillis());
 
@@ -132,7 +134,8 @@ public class ArenaService {
 
     /**
      * Handle solution submission
-     * Returns true if the player won (all tests passed)
+     * Returns true if the player won (all tests passed). In optimize mode a
+     * passing submission never wins on its own; see recordBenchmark.
      */
     public boolean submitSolution(String sessionId, String playerId, boolean allPassed, int testsPassed,
             int totalTests) {
@@ -149,7 +152,7 @@ public class ArenaService {
                 player.setTotalTests(totalTests);
                 player.setProgress(allPassed ? 100 : (testsPassed * 100 / Math.max(totalTests, 1)));
 
-                if (allPassed) {
+                if (allPassed && !session.isOptimizeMode()) {
                     // This player wins!
                     session.setWinnerId(playerId);
                     session.setStatus(SessionStatus.COMPLETED);
@@ -162,6 +165,106 @@ public class ArenaService {
         return false;
     }
 
+    /**
+     * Claim the benchmark of a player's judged solution in an optimize
+     * session. Each player is benchmarked once, and both in the same
+     * language so that their times compare. Returns null if the benchmark
+     * may start, otherwise the reason it may not. A solution refused for its
+     * language counts as benchmarked without a result, so the battle can
+     * still be decided (see decideBenchmarks).
+     */
+    public synchronized String startBenchmark(String sessionId, String playerId, String language) {
+        ArenaSession session = activeSessions.get(sessionId);
+        if (session == null || session.getStatus() != SessionStatus.ACTIVE || !session.isOptimizeMode()) {
+            return "This battle is not being benchmarked";
+        }
+
+        ArenaPlayer player = null;
+        for (ArenaPlayer p : session.getPlayers()) {
+            if (p.getPlayerId().equals(playerId)) {
+                player = p;
+            }
+        }
+        if (player == null) {
+            return "You are not in this battle";
+        }
+        if (player.getBenchmarkLanguage() != null) {
+            return "Your solution has already been benchmarked";
+        }
+        ArenaPlayer opponent = session.getOpponent(playerId);
+        if (opponent != null && opponent.getBenchmarkLanguage() != null
+                && !opponent.getBenchmarkLanguage().equalsIgnoreCase(language)) {
+            player.setBenchmarkLanguage(language);
+            player.setBenchmarked(true);
+            return "Your opponent solved it in " + opponent.getBenchmarkLanguage()
+                    + "; optimize battles compare solutions in the same language";
+        }
+        player.setBenchmarkLanguage(language);
+        return null;
+    }
+
+    /**
+     * Record the benchmark of a player's passing solution in an optimize
+     * session (null if benchmarking failed). Once both players are
+     * benchmarked the faster solution wins; if their confidence intervals
+     * overlap the speed difference is noise and the earlier submission wins.
+     * Returns the winner's id, or null while the session is undecided.
+     */
+    public synchronized String recordBenchmark(String sessionId, String playerId, BenchmarkResult benchmark) {
+        ArenaSession session = activeSessions.get(sessionId);
+        if (session == null || session.getStatus() != SessionStatus.ACTIVE) {
+            return null;
+        }
+
+        for (ArenaPlayer player : session.getPlayers()) {
+            if (player.getPlayerId().equals(playerId)) {
+                player.setBenchmark(benchmark);
+                player.setBenchmarked(true);
+            }
+        }
+        return decideBenchmarks(sessionId);
+    }
+
+    /**
+     * Decide an optimize session once both players are benchmarked, as
+     * described for recordBenchmark. Returns the winner's id, or null while
+     * the session is undecided.
+     */
+    public synchronized String decideBenchmarks(String sessionId) {
+        ArenaSession session = activeSessions.get(sessionId);
+        if (session == null || session.getStatus() != SessionStatus.ACTIVE) {
+            return null;
+        }
+        if (session.getPlayers().size() < 2
+                || !session.getPlayers().stream().allMatch(ArenaPlayer::isBenchmarked)) {
+            return null;
+        }
+
+        ArenaPlayer first = session.getPlayers().get(0);
+        ArenaPlayer second = session.getPlayers().get(1);
+        ArenaPlayer winner;
+        if (first.getBenchmark() == null && second.getBenchmark() == null) {
+            winner = earlier(first, second);
+        } else if (first.getBenchmark() == null || second.getBenchmark() == null) {
+            // Only one solution could be measured
+            winner = first.getBenchmark() != null ? first : second;
+        } else if (BenchmarkStats.clearlyFaster(first.getBenchmark(), second.getBenchmark())) {
+            winner = first;
+        } else if (BenchmarkStats.clearlyFaster(second.getBenchmark(), first.getBenchmark())) {
+            winner = second;
+        } else {
+            winner = earlier(first, second);
+        }
+
+        session.setWinnerId(winner.getPlayerId());
+        session.setStatus(SessionStatus.COMPLETED);
+        return winner.getPlayerId();
+    }
+
+    private static ArenaPlayer earlier(ArenaPlayer a, ArenaPlayer b) {
+        return a.getSubmitTime() <= b.getSubmitTime() ? a : b;
+    }
+
     /**
      * End a session (due to timeout or other reasons)
      */
@@ -0,0 +1,283 @@
+package com.syntaxarena.backend.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs one program against a list of stdin inputs, one request frame per
+ * input, on a single worker process. The worker is only replaced when a case
+ * kills it (timeout or crash), so a well-behaved submission costs exactly one
+ * process launch no matter how many cases it has.
+ */
+final class BatchRunner {
+
+    private BatchRunner() {
+    }
+
+    /**
+     * Where batch workers come from and go back to.
+     */
+    interface WorkerSource {
+        InterpreterWorker acquire() throws IOException;
+
+        /**
+         * Like acquire, but never starts a worker beyond the source's limit:
+         * waits up to timeoutMillis for one to come back instead, and returns
+         * null if none did.
+         */
+        InterpreterWorker lease(long timeoutMillis) throws IOException, InterruptedException;
+
+        void release(InterpreterWorker worker);
+
+        void discard(InterpreterWorker worker, String reason);
+    }
+
+    /**
+     * Told about each case of a parallel run as soon as it finishes.
+     * Returning false cancels every case not reported yet.
+     */
+    interface ResultListener {
+        boolean onResult(int index, InterpreterWorker.Result result);
+    }
+
+    /**
+     * Each case gets at most caseTimeoutMillis; once batchTimeoutMillis has
+     * passed the remaining cases are reported as timed out without running.
+     */
+    static List<InterpreterWorker.Result> run(WorkerSource source, byte[] code, List<String> inputs,
+            long caseTimeoutMillis, long batchTimeoutMillis, PhaseTimer timer) throws IOException {
+        List<InterpreterWorker.Result> results = new ArrayList<>(inputs.size());
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(batchTimeoutMillis);
+        InterpreterWorker worker = null;
+        try {
+            for (String input : inputs) {
+                long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remainingMillis <= 0) {
+                    results.add(new InterpreterWorker.Result("", "", -1, 0, true, false));
+                    continue;
+                }
+                if (worker == null) {
+                    timer.start(PhaseTimer.Phase.SPAWN);
+                    worker = source.acquire();
+                }
+
+                timer.stop();
+                long started = System.nanoTime();
+                try {
+                    InterpreterWorker.Result result = worker.execute(code, input,
+                            Math.min(caseTimeoutMillis, remainingMillis));
+                    recordRun(timer, worker, started, result);
+                    results.add(result);
+                    if (result.isTimedOut()) {
+                        source.discard(worker, "timeout");
+                        worker = null;
+                    } else if (worker.isBroken() || worker.getLeak() != null) {
+                        // Exited or left state behind; the source decides how to retire it
+                        source.release(worker);
+                        worker = null;
+                    }
+                } catch (IOException e) {
+                    // The case took the process down (System.exit, os._exit, ...); carry on with a fresh one
+                    source.discard(worker, "crash");
+                    worker = null;
+                    results.add(new InterpreterWorker.Result("", "Process exited unexpectedly", -1,
+                            System.nanoTime() - started, false, false));
+                    timer.add(PhaseTimer.Phase.RUN, System.nanoTime() - started);
+                }
+            }
+        } finally {
+            timer.start(PhaseTimer.Phase.COLLECT);
+            if (worker != null) {
+                source.release(worker);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Runs the cases on up to shards workers at once, each worker taking the
+     * next case not started yet. Workers are leased from the source, so
+     * parallel runs never hold more workers than the source's limit between
+     * them. Results reach the listener one at a time, in completion order.
+     * Once it returns false, queued cases never start and the workers still
+     * running a case are killed. This returns only after every shard has
+     * stopped, so no work outlives the caller's execution slot. Cases that
+     * were not reported are null in the returned list.
+     */
+    static List<InterpreterWorker.Result> runParallel(WorkerSource source, byte[] code, List<String> inputs,
+            int shards, long caseTimeoutMillis, long batchTimeoutMillis, Executor executor, ResultListener listener)
+            throws IOException, InterruptedException {
+        ParallelRun run = new ParallelRun(source, code, inputs, caseTimeoutMillis, batchTimeoutMillis, listener);
+        List<CompletableFuture<Void>> shardRuns = new ArrayList<>();
+        for (int i = 0; i < Math.max(1, Math.min(shards, inputs.size())); i++) {
+            shardRuns.add(CompletableFuture.runAsync(run::runShard, executor));
+        }
+        CompletableFuture<Void> drained = CompletableFuture.allOf(shardRuns.toArray(new CompletableFuture<?>[0]));
+        try {
+            drained.get();
+        } catch (InterruptedException e) {
+            run.cancel();
+            awaitQuietly(drained);
+            throw e;
+        } catch (ExecutionException e) {
+            run.cancel();
+            awaitQuietly(drained);
+            Throwable cause = e.getCause() instanceof UncheckedIOException ? e.getCause().getCause() : e.getCause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+        }
+        return run.results();
+    }
+
+    // Cancelled shards stop within moments, as their workers have been killed
+    private static void awaitQuietly(CompletableFuture<Void> drained) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                drained.get();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            } catch (ExecutionException e) {
+                break;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Counts the time the worker reports for user code as RUN. The rest of
+     * the round trip is framing overhead (COLLECT), except on a worker's
+     * first run, where it is dominated by interpreter or JVM startup (SPAWN).
+     */
+    static void recordRun(PhaseTimer timer, InterpreterWorker worker, long started,
+            InterpreterWorker.Result result) {
+        long roundTrip = System.nanoTime() - started;
+        long run = Math.min(result.getElapsedNanos(), roundTrip);
+        timer.add(PhaseTimer.Phase.RUN, run);
+        timer.add(worker.getRuns() == 1 ? PhaseTimer.Phase.SPAWN : PhaseTimer.Phase.COLLECT, roundTrip - run);
+    }
+
+    private static class ParallelRun {
+        private final WorkerSource source;
+        private final byte[] code;
+        private final List<String> inputs;
+        private final long caseTimeoutMillis;
+        private final long deadline;
+        private final ResultListener listener;
+        // Guarded by this
+        private final InterpreterWorker.Result[] results;
+        private final AtomicInteger next = new AtomicInteger();
+        private final CompletableFuture<Void> cancelled = new CompletableFuture<>();
+        // Workers in the middle of a case; whoever removes one from here disposes of it
+        private final Set<InterpreterWorker> busy = ConcurrentHashMap.newKeySet();
+
+        ParallelRun(WorkerSource source, byte[] code, List<String> inputs, long caseTimeoutMillis,
+                long batchTimeoutMillis, ResultListener listener) {
+            this.source = source;
+            this.code = code;
+            this.inputs = inputs;
+            this.caseTimeoutMillis = caseTimeoutMillis;
+            this.deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(batchTimeoutMillis);
+            this.listener = listener;
+            this.results = new InterpreterWorker.Result[inputs.size()];
+        }
+
+        void runShard() {
+            InterpreterWorker worker = null;
+            try {
+                int index;
+                while (!cancelled.isDone() && (index = next.getAndIncrement()) < inputs.size()) {
+                    long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                    if (worker == null && remainingMillis > 0) {
+                        worker = source.lease(remainingMillis);
+                        remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                    }
+                    if (worker == null || remainingMillis <= 0) {
+                        report(index, new InterpreterWorker.Result("", "", -1, 0, true, false));
+                        continue;
+                    }
+
+                    long started = System.nanoTime();
+                    InterpreterWorker.Result result;
+                    busy.add(worker);
+                    if (cancelled.isDone()) {
+                        // Cancelled while this shard waited for its worker; cancel may have missed it
+                        if (!busy.remove(worker)) {
+                            worker = null;
+                        }
+                        break;
+                    }
+                    try {
+                        result = worker.execute(code, inputs.get(index),
+                                Math.min(caseTimeoutMillis, remainingMillis));
+                    } catch (IOException e) {
+                        if (busy.remove(worker)) {
+                            source.discard(worker, "crash");
+                            report(index, new InterpreterWorker.Result("", "Process exited unexpectedly", -1,
+                                    System.nanoTime() - started, false, false));
+                        }
+                        worker = null;
+                        continue;
+                    }
+                    if (!busy.remove(worker)) {
+                        // Killed by cancel, which has already discarded it
+                        worker = null;
+                        continue;
+                    }
+                    if (result.isTimedOut()) {
+                        source.discard(worker, "timeout");
+                        worker = null;
+                    } else if (worker.isBroken() || worker.getLeak() != null) {
+                        source.release(worker);
+                        worker = null;
+                    }
+                    report(index, result);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                if (worker != null) {
+                    source.release(worker);
+                }
+            }
+        }
+
+        private synchronized void report(int index, InterpreterWorker.Result result) {
+            if (cancelled.isDone()) {
+                return;
+            }
+            results[index] = result;
+            if (!listener.onResult(index, result)) {
+                cancel();
+            }
+        }
+
+        void cancel() {
+            cancelled.complete(null);
+            for (InterpreterWorker worker : busy) {
+                if (busy.remove(worker)) {
+                    source.discard(worker, "cancelled");
+                }
+            }
+        }
+
+        // Copied under the lock, as shards may still be finishing after a cancel
+        synchronized List<InterpreterWorker.Result> results() {
+            return Arrays.asList(results.clone());
+        }
+    }
+}
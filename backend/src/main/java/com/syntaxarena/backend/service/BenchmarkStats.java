@@ -0,0 +1,83 @@
+package com.syntaxarena.backend.service;
+
+import com.syntaxarena.backend.model.BenchmarkResult;
+
+import java.util.List;
+
+/**
+ * Summarises measured benchmark iterations the way JMH does: mean time per
+ * operation with a 99.9% Student's t confidence interval.
+ */
+final class BenchmarkStats {
+
+    // Two-sided 99.9% quantile of the standard normal distribution
+    private static final double Z_999 = 3.2905267314919255;
+    // Exact t quantiles for 1-4 degrees of freedom, where the expansion below is too far off
+    private static final double[] T_999_SMALL = { 636.619, 31.599, 12.924, 8.610 };
+
+    private BenchmarkStats() {
+    }
+
+    static BenchmarkResult summarize(List<InterpreterWorker.Sample> samples, int warmupIterations) {
+        int n = samples.size();
+        double sum = 0;
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        double allocated = 0;
+        boolean allocationMeasured = true;
+        for (InterpreterWorker.Sample sample : samples) {
+            sum += sample.getNanos();
+            min = Math.min(min, sample.getNanos());
+            max = Math.max(max, sample.getNanos());
+            allocated += sample.getAllocatedBytes();
+            allocationMeasured &= sample.getAllocatedBytes() >= 0;
+        }
+        double mean = sum / n;
+
+        double squares = 0;
+        for (InterpreterWorker.Sample sample : samples) {
+            squares += (sample.getNanos() - mean) * (sample.getNanos() - mean);
+        }
+        double stdDev = n > 1 ? Math.sqrt(squares / (n - 1)) : 0;
+        double error = n > 1 ? studentT999(n - 1) * stdDev / Math.sqrt(n) : Double.NaN;
+
+        BenchmarkResult result = new BenchmarkResult();
+        result.setWarmupIterations(warmupIterations);
+        result.setMeasurementIterations(n);
+        result.setNanosPerOp(mean);
+        result.setErrorNanosPerOp(error);
+        result.setConfidenceLowNanos(mean - error);
+        result.setConfidenceHighNanos(mean + error);
+        result.setStdDevNanos(stdDev);
+        result.setMinNanos(min);
+        result.setMaxNanos(max);
+        result.setAllocatedBytesPerOp(allocationMeasured && n > 0 ? allocated / n : null);
+        return result;
+    }
+
+    /**
+     * True if a is faster than b beyond measurement noise, i.e. their
+     * confidence intervals do not overlap.
+     */
+    static boolean clearlyFaster(BenchmarkResult a, BenchmarkResult b) {
+        return a.getConfidenceHighNanos() < b.getConfidenceLowNanos();
+    }
+
+    // Cornish-Fisher expansion of the t quantile (Abramowitz & Stegun 26.7.5); within 0.5% from 5 degrees of freedom
+    private static double studentT999(int degreesOfFreedom) {
+        if (degreesOfFreedom <= T_999_SMALL.length) {
+            return T_999_SMALL[degreesOfFreedom - 1];
+        }
+        double z = Z_999;
+        double v = degreesOfFreedom;
+        double z3 = z * z * z;
+        double z5 = z3 * z * z;
+        double z7 = z5 * z * z;
+        double z9 = z7 * z * z;
+        return z
+                + (z3 + z) / (4 * v)
+                + (5 * z5 + 16 * z3 + 3 * z) / (96 * v * v)
+                + (3 * z7 + 19 * z5 + 17 * z3 - 15 * z) / (384 * v * v * v)
+                + (79 * z9 + 776 * z7 + 1482 * z5 - 1920 * z3 - 945 * z) / (92160 * v * v * v * v);
+    }
+}
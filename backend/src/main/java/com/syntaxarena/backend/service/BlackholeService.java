@@ -2,33 +2,16 @@ package com.syntaxarena.backend.service;
 
 import com.syntaxarena.backend.model.BlackholeRequest;
 import com.syntaxarena.backend.model.BlackholeResponse;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
-import java.time.Duration;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
-import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 public class BlackholeService {
 
-    @Value("${NVIDIA_API_KEY}")
-    private String apiKey;
-
-    private final HttpClient httpClient = HttpClient.newBuilder()
-            .version(HttpClient.Version.HTTP_2)
-            .connectTimeout(Duration.ofSeconds(30))
-            .build();
-
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    @Autowired
+    private LlmGateway llmGateway;
 
     private static final String SYSTEM_PROMPT = "You are BLACKHOLE, the resident AI system of SyntaxArena - a coding practice platform.\n\n"
             +
@@ -55,84 +38,71 @@ public class BlackholeService {
             "- End important responses with \">> END TRANSMISSION.\" occasionally\n\n" +
             "Remember: You are helpful first, mysterious second. Always provide value.";
 
-    public BlackholeResponse chat(BlackholeRequest request) {
-        try {
-            String url = "https://integrate.api.nvidia.com/v1/chat/completions";
-
-            // Build messages array
-            List<Map<String, Object>> messages = new ArrayList<>();
-
-            // Add system message
-            Map<String, Object> sysMsg = new HashMap<>();
-            sysMsg.put("role", "system");
-            sysMsg.put("content", SYSTEM_PROMPT);
-            messages.add(sysMsg);
-
-            // Add chat history
-            if (request.getHistory() != null) {
-                for (BlackholeRequest.ChatHistoryItem item : request.getHistory()) {
-                    if (item == null || item.getRole() == null || item.getText() == null)
-                        continue;
-                    Map<String, Object> msg = new HashMap<>();
-                    String role = item.getRole().equalsIgnoreCase("model")
-                            || item.getRole().equalsIgnoreCase("assistant")
-                                    ? "assistant"
-                                    : "user";
-                    msg.put("role", role);
-                    msg.put("content", item.getText());
-                    messages.add(msg);
-                }
+    public CompletableFuture<BlackholeResponse> chat(BlackholeRequest request) {
+        return llmGateway.completeAsync(createChat(request, "blackhole")).thenApply(completion -> {
+            if (completion.isSuccess()) {
+                return parseResponse(completion.getContent());
+            } else {
+                System.out.println("NVIDIA API Error: " + completion.getBody());
+                return new BlackholeResponse(">> ERROR: Void connection interrupted. Please retry.");
             }
+        }).exceptionally(this::failed);
+    }
 
-            // Add current user message
-            Map<String, Object> userMsg = new HashMap<>();
-            userMsg.put("role", "user");
-            userMsg.put("content", request.getMessage());
-            messages.add(userMsg);
-
-            // Build payload
-            Map<String, Object> payload = new HashMap<>();
-            payload.put("model", "nvidia/nemotron-3-nano-30b-a3b");
-            payload.put("temperature", 0.8);
-            payload.put("top_p", 0.95);
-            payload.put("max_tokens", 1024);
-            payload.put("stream", false);
-            payload.put("messages", messages);
-
-            String requestBody = objectMapper.writeValueAsString(payload);
-
-            HttpRequest httpRequest = HttpRequest.newBuilder()
-                    .uri(URI.create(url))
-                    .header("Content-Type", "application/json")
-                    .header("Authorization", "Bearer " + apiKey)
-                    .POST(HttpRequest.BodyPublishers.ofString(requestBody))
-                    .build();
-
-            HttpResponse<String> response = httpClient.send(httpRequest, HttpResponse.BodyHandlers.ofString());
-
-            if (response.statusCode() == 200) {
-                return parseResponse(response.body());
+    /**
+     * Streams the reply to the listener as it is generated. Completes with
+     * null once it has all been sent, or with the response to show instead
+     * when the call failed.
+     */
+    public CompletableFuture<BlackholeResponse> streamChat(BlackholeRequest request,
+            LlmGateway.TokenListener listener) {
+        return llmGateway.streamAsync(createChat(request, "blackhole_stream"), listener).thenApply(completion -> {
+            if (completion.isSuccess()) {
+                return null;
             } else {
-                System.out.println("NVIDIA API Error: " + response.body());
+                System.out.println("NVIDIA API Error: " + completion.getBody());
                 return new BlackholeResponse(">> ERROR: Void connection interrupted. Please retry.");
             }
+        }).exceptionally(this::failed);
+    }
 
-        } catch (Exception e) {
-            System.out.println("Exception: " + e.getMessage());
-            e.printStackTrace();
-            return new BlackholeResponse(">> CRITICAL: Entropy overflow detected. " + e.getMessage());
+    private LlmGateway.ChatRequest createChat(BlackholeRequest request, String operation) {
+        LlmGateway.ChatRequest chat = new LlmGateway.ChatRequest(operation);
+        chat.setTemperature(0.8);
+        chat.setTopP(0.95);
+        chat.setMaxTokens(1024);
+        chat.addMessage("system", SYSTEM_PROMPT);
+
+        // Add chat history
+        if (request.getHistory() != null) {
+            for (BlackholeRequest.ChatHistoryItem item : request.getHistory()) {
+                if (item == null || item.getRole() == null || item.getText() == null)
+                    continue;
+                String role = item.getRole().equalsIgnoreCase("model")
+                        || item.getRole().equalsIgnoreCase("assistant")
+                                ? "assistant"
+                                : "user";
+                chat.addMessage(role, item.getText());
+            }
         }
+
+        // Add current user message
+        chat.addMessage("user", request.getMessage());
+        return chat;
+    }
+
+    private BlackholeResponse failed(Throwable error) {
+        Throwable cause = LlmGateway.unwrap(error);
+        System.out.println("Exception: " + cause.getMessage());
+        cause.printStackTrace();
+        return new BlackholeResponse(">> CRITICAL: Entropy overflow detected. " + cause.getMessage());
     }
 
-    private BlackholeResponse parseResponse(String jsonResponse) {
-        try {
-            JsonNode root = objectMapper.readTree(jsonResponse);
-            String text = root.path("choices").get(0)
-                    .path("message").path("content").asText();
-            return new BlackholeResponse(text);
-        } catch (Exception e) {
-            System.out.println("Parse error: " + e.getMessage());
+    private BlackholeResponse parseResponse(String content) {
+        if (content == null) {
+            System.out.println("Parse error: response has no message content");
             return new BlackholeResponse(">> ERROR: Failed to decode void transmission.");
         }
+        return new BlackholeResponse(content);
     }
 }
@@ -0,0 +1,332 @@
+package com.syntaxarena.backend.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The parts of a class file needed to link separately compiled classes:
+ * its name, supertypes, source file, declared members with their generic
+ * signatures, checked exceptions and constant values, and the members of
+ * other classes it refers to. Class names are binary names ("a.b.C$D").
+ */
+final class ClassFileInfo {
+
+    static final int ACC_PUBLIC = 0x0001;
+    static final int ACC_PRIVATE = 0x0002;
+    static final int ACC_PROTECTED = 0x0004;
+    static final int ACC_STATIC = 0x0008;
+
+    private static final Pattern DESCRIPTOR_TYPE = Pattern.compile("L([^;<>.\\[]+)[;<]");
+
+    private final String name;
+    private final String superName;
+    private final List<String> interfaces;
+    private final String sourceFile;
+    private final String signature;
+    // "name:descriptor" to access flags
+    private final Map<String, Integer> methods;
+    private final Map<String, Integer> fields;
+    // "name:descriptor" of a field or method to its Signature, Exceptions and ConstantValue attributes
+    private final Map<String, String> signatures;
+    private final Map<String, List<String>> exceptions;
+    private final Map<String, String> constants;
+    private final Set<String> referencedClasses;
+    private final List<MemberRef> memberRefs;
+
+    private ClassFileInfo(String name, String superName, List<String> interfaces, String sourceFile, String signature,
+            Map<String, Integer> methods, Map<String, Integer> fields, Map<String, String> signatures,
+            Map<String, List<String>> exceptions, Map<String, String> constants, Set<String> referencedClasses,
+            List<MemberRef> memberRefs) {
+        this.name = name;
+        this.superName = superName;
+        this.interfaces = interfaces;
+        this.sourceFile = sourceFile;
+        this.signature = signature;
+        this.methods = methods;
+        this.fields = fields;
+        this.signatures = signatures;
+        this.exceptions = exceptions;
+        this.constants = constants;
+        this.referencedClasses = referencedClasses;
+        this.memberRefs = memberRefs;
+    }
+
+    /**
+     * Reads the class file; throws IOException if it is malformed.
+     */
+    static ClassFileInfo parse(byte[] bytes) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        if (in.readInt() != 0xCAFEBABE) {
+            throw new IOException("Not a class file");
+        }
+        in.readUnsignedShort(); // minor version
+        in.readUnsignedShort(); // major version
+
+        int count = in.readUnsignedShort();
+        String[] utf8 = new String[count];
+        int[] classIndex = new int[count];
+        int[][] refs = new int[count][];
+        int[] refTags = new int[count];
+        // Values of the int, float, long, double and string constants, tagged by type
+        String[] values = new String[count];
+        int[] stringIndex = new int[count];
+        for (int i = 1; i < count; i++) {
+            int tag = in.readUnsignedByte();
+            switch (tag) {
+                case 1 -> utf8[i] = in.readUTF();
+                case 3 -> values[i] = "I" + in.readInt();
+                case 4 -> values[i] = "F" + in.readInt();
+                case 5, 6 -> {
+                    values[i] = (tag == 5 ? "J" : "D") + in.readLong();
+                    i++; // Longs and doubles take two slots
+                }
+                case 7 -> classIndex[i] = in.readUnsignedShort();
+                case 8 -> stringIndex[i] = in.readUnsignedShort();
+                case 16, 19, 20 -> in.readUnsignedShort();
+                case 9, 10, 11, 12 -> {
+                    refTags[i] = tag;
+                    refs[i] = new int[] { in.readUnsignedShort(), in.readUnsignedShort() };
+                }
+                case 15 -> {
+                    in.readUnsignedByte();
+                    in.readUnsignedShort();
+                }
+                case 17, 18 -> {
+                    in.readUnsignedShort();
+                    in.readUnsignedShort();
+                }
+                default -> throw new IOException("Unknown constant pool tag " + tag);
+            }
+        }
+
+        Set<String> referencedClasses = new HashSet<>();
+        List<MemberRef> memberRefs = new ArrayList<>();
+        for (int i = 1; i < count; i++) {
+            if (stringIndex[i] != 0) {
+                values[i] = "S" + utf8[stringIndex[i]];
+            }
+            if (classIndex[i] != 0) {
+                referencedClasses.add(binaryName(utf8[classIndex[i]]));
+            }
+            if (utf8[i] != null) {
+                // Types that only appear in descriptors and signatures, e.g. a parameter type
+                Matcher types = DESCRIPTOR_TYPE.matcher(utf8[i]);
+                while (types.find()) {
+                    referencedClasses.add(binaryName(types.group(1)));
+                }
+            }
+            if (refTags[i] >= 9 && refTags[i] <= 11) {
+                int[] nameAndType = refs[refs[i][1]];
+                memberRefs.add(new MemberRef(binaryName(utf8[classIndex[refs[i][0]]]), utf8[nameAndType[0]],
+                        utf8[nameAndType[1]], refTags[i] == 9));
+            }
+        }
+
+        in.readUnsignedShort(); // access flags
+        String name = binaryName(utf8[classIndex[in.readUnsignedShort()]]);
+        int superIndex = in.readUnsignedShort();
+        String superName = superIndex != 0 ? binaryName(utf8[classIndex[superIndex]]) : null;
+        List<String> interfaces = new ArrayList<>();
+        for (int i = in.readUnsignedShort(); i > 0; i--) {
+            interfaces.add(binaryName(utf8[classIndex[in.readUnsignedShort()]]));
+        }
+
+        Map<String, String> signatures = new HashMap<>();
+        Map<String, List<String>> exceptions = new HashMap<>();
+        Map<String, String> constants = new HashMap<>();
+        Map<String, Integer> fields = new HashMap<>();
+        for (int i = in.readUnsignedShort(); i > 0; i--) {
+            int access = in.readUnsignedShort();
+            String fieldName = utf8[in.readUnsignedShort()];
+            String key = fieldName + ":" + utf8[in.readUnsignedShort()];
+            fields.put(key, access);
+            readMemberAttributes(in, key, utf8, classIndex, values, signatures, exceptions, constants);
+        }
+        Map<String, Integer> methods = new HashMap<>();
+        for (int i = in.readUnsignedShort(); i > 0; i--) {
+            int access = in.readUnsignedShort();
+            String methodName = utf8[in.readUnsignedShort()];
+            String key = methodName + ":" + utf8[in.readUnsignedShort()];
+            methods.put(key, access);
+            readMemberAttributes(in, key, utf8, classIndex, values, signatures, exceptions, constants);
+        }
+
+        String sourceFile = null;
+        String signature = null;
+        for (int i = in.readUnsignedShort(); i > 0; i--) {
+            String attribute = utf8[in.readUnsignedShort()];
+            int length = in.readInt();
+            if ("SourceFile".equals(attribute)) {
+                sourceFile = utf8[in.readUnsignedShort()];
+            } else if ("Signature".equals(attribute)) {
+                signature = utf8[in.readUnsignedShort()];
+            } else {
+                in.skipNBytes(length);
+            }
+        }
+        return new ClassFileInfo(name, superName, interfaces, sourceFile, signature, methods, fields, signatures,
+                exceptions, constants, referencedClasses, memberRefs);
+    }
+
+    // Keeps the attributes that change how other classes compile against the member; skips the rest
+    private static void readMemberAttributes(DataInputStream in, String key, String[] utf8, int[] classIndex,
+            String[] values, Map<String, String> signatures, Map<String, List<String>> exceptions,
+            Map<String, String> constants) throws IOException {
+        for (int i = in.readUnsignedShort(); i > 0; i--) {
+            String attribute = utf8[in.readUnsignedShort()];
+            long length = in.readInt() & 0xFFFFFFFFL;
+            switch (attribute) {
+                case "Signature" -> signatures.put(key, utf8[in.readUnsignedShort()]);
+                case "ConstantValue" -> constants.put(key, values[in.readUnsignedShort()]);
+                case "Exceptions" -> {
+                    List<String> thrown = new ArrayList<>();
+                    for (int j = in.readUnsignedShort(); j > 0; j--) {
+                        thrown.add(binaryName(utf8[classIndex[in.readUnsignedShort()]]));
+                    }
+                    thrown.sort(null);
+                    exceptions.put(key, thrown);
+                }
+                default -> in.skipNBytes(length);
+            }
+        }
+    }
+
+    // Array classes ("[LFoo;") are kept as they are; they never match a binary name
+    private static String binaryName(String internalName) {
+        return internalName.replace('/', '.');
+    }
+
+    String getName() {
+        return name;
+    }
+
+    String getSuperName() {
+        return superName;
+    }
+
+    List<String> getInterfaces() {
+        return interfaces;
+    }
+
+    /**
+     * File the class was compiled from, e.g. "Main.java"; null if compiled
+     * without debug information.
+     */
+    String getSourceFile() {
+        return sourceFile;
+    }
+
+    /**
+     * Generic signature of the class, or null if it has none.
+     */
+    String getSignature() {
+        return signature;
+    }
+
+    /**
+     * Access flags of a declared method, or null if the class does not
+     * declare it.
+     */
+    Integer getMethodAccess(String methodName, String descriptor) {
+        return methods.get(methodName + ":" + descriptor);
+    }
+
+    Integer getFieldAccess(String fieldName, String descriptor) {
+        return fields.get(fieldName + ":" + descriptor);
+    }
+
+    /**
+     * Generic signature of a declared field or method, or null if it has
+     * none.
+     */
+    String getMemberSignature(String memberName, String descriptor) {
+        return signatures.get(memberName + ":" + descriptor);
+    }
+
+    /**
+     * Checked exceptions a declared method throws, sorted.
+     */
+    List<String> getExceptions(String methodName, String descriptor) {
+        return exceptions.getOrDefault(methodName + ":" + descriptor, Collections.emptyList());
+    }
+
+    /**
+     * Compile-time constants of the declared fields, keyed by
+     * "name:descriptor", with the value prefixed by its type letter
+     * ("I42", "SHello"). Other classes get these inlined rather than
+     * referenced.
+     */
+    Map<String, String> getConstants() {
+        return constants;
+    }
+
+    /**
+     * Descriptors of all declared methods with the given name.
+     */
+    List<String> getOverloads(String methodName) {
+        List<String> descriptors = new ArrayList<>();
+        String prefix = methodName + ":";
+        for (String method : methods.keySet()) {
+            if (method.startsWith(prefix)) {
+                descriptors.add(method.substring(prefix.length()));
+            }
+        }
+        descriptors.sort(null);
+        return descriptors;
+    }
+
+    /**
+     * Every class named in the constant pool, as a class constant or inside
+     * a descriptor or signature.
+     */
+    Set<String> getReferencedClasses() {
+        return referencedClasses;
+    }
+
+    List<MemberRef> getMemberRefs() {
+        return memberRefs;
+    }
+
+    /**
+     * A field or method of another class that this class uses.
+     */
+    static class MemberRef {
+        private final String owner;
+        private final String name;
+        private final String descriptor;
+        private final boolean field;
+
+        MemberRef(String owner, String name, String descriptor, boolean field) {
+            this.owner = owner;
+            this.name = name;
+            this.descriptor = descriptor;
+            this.field = field;
+        }
+
+        String getOwner() {
+            return owner;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        String getDescriptor() {
+            return descriptor;
+        }
+
+        boolean isField() {
+            return field;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.syntaxarena.backend.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Content-addressed cache of compiled submission classes. Identical
+ * submissions (same code, harness and JDK) skip compilation entirely.
+ * Bounded by total class bytes and evicted least-recently-used first.
+ */
+@Service
+public class CompiledClassCache {
+
+    private static final String JDK_VERSION = Runtime.version().toString();
+
+    @Value("${execution.class-cache.max-bytes:67108864}")
+    private long maxBytes;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Access-ordered, so iteration starts at the least recently used entry
+    private final LinkedHashMap<String, CompiledProgram> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long totalBytes;
+
+    private Counter hits;
+    private Counter misses;
+    private Counter evictions;
+
+    @PostConstruct
+    public void registerMetrics() {
+        hits = meterRegistry.counter("execution.class_cache.requests", "result", "hit");
+        misses = meterRegistry.counter("execution.class_cache.requests", "result", "miss");
+        evictions = meterRegistry.counter("execution.class_cache.evictions");
+        Gauge.builder("execution.class_cache.bytes", this, CompiledClassCache::getTotalBytes)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Cache key for a submission: SHA-256 over the code, the harness and the
+     * JDK version that produced the classes.
+     */
+    public String key(String code, String testHarness) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String part : new String[] { JDK_VERSION, code, testHarness }) {
+                byte[] bytes = (part != null ? part : "").getBytes(StandardCharsets.UTF_8);
+                // Length prefix keeps ("ab", "c") and ("a", "bc") apart
+                digest.update(ByteBuffer.allocate(4).putInt(bytes.length).array());
+                digest.update(bytes);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    public synchronized CompiledProgram get(String key) {
+        CompiledProgram program = entries.get(key);
+        if (program != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return program;
+    }
+
+    public synchronized void put(String key, CompiledProgram program) {
+        if (program.getSizeBytes() > maxBytes) {
+            return;
+        }
+        CompiledProgram previous = entries.put(key, program);
+        if (previous != null) {
+            totalBytes -= previous.getSizeBytes();
+        }
+        totalBytes += program.getSizeBytes();
+
+        Iterator<CompiledProgram> eldest = entries.values().iterator();
+        while (totalBytes > maxBytes && eldest.hasNext()) {
+            totalBytes -= eldest.next().getSizeBytes();
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * Class bytes for one submission plus the class whose main method runs it.
+     */
+    public static class CompiledProgram {
+        private final String mainClass;
+        private final Map<String, byte[]> classes;
+        private final long sizeBytes;
+
+        public CompiledProgram(String mainClass, Map<String, byte[]> classes) {
+            this.mainClass = mainClass;
+            this.classes = Map.copyOf(classes);
+            this.sizeBytes = classes.values().stream().mapToLong(bytes -> bytes.length).sum();
+        }
+
+        public String getMainClass() {
+            return mainClass;
+        }
+
+        public Map<String, byte[]> getClasses() {
+            return classes;
+        }
+
+        public long getSizeBytes() {
+            return sizeBytes;
+        }
+    }
+}
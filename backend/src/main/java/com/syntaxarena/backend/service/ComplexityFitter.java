@@ -0,0 +1,157 @@
+package com.syntaxarena.backend.service;
+
+import com.syntaxarena.backend.model.ComplexityResponse;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Fits measured run times against the usual complexity classes with
+ * ordinary least squares, time = a + b * f(n) with b >= 0, and picks the
+ * class with the smallest residual, preferring the slower-growing class on
+ * near ties.
+ */
+final class ComplexityFitter {
+
+    // Every model contains O(1) (b = 0), so a faster-growing one always fits noise at least as well.
+    // A simpler class is kept unless the faster-growing one cuts the residual below this share of it.
+    private static final double SIMPLER_MODEL_TOLERANCE = 1.25;
+
+    /**
+     * Complexity classes in order of growth.
+     */
+    enum Model {
+        CONSTANT("O(1)", n -> 1),
+        LOGARITHMIC("O(log n)", n -> Math.log(n)),
+        LINEAR("O(n)", n -> n),
+        LINEARITHMIC("O(n log n)", n -> n * Math.log(n)),
+        QUADRATIC("O(n^2)", n -> n * n),
+        EXPONENTIAL("O(2^n)", n -> Math.pow(2, n));
+
+        private final String label;
+        private final DoubleUnaryOperator growth;
+
+        Model(String label, DoubleUnaryOperator growth) {
+            this.label = label;
+            this.growth = growth;
+        }
+
+        String getLabel() {
+            return label;
+        }
+
+        /**
+         * Parses labels such as "O(n log n)", "n^2" or "O(2^n)", also with
+         * superscript exponents; returns null for anything else.
+         */
+        static Model parse(String text) {
+            if (text == null) {
+                return null;
+            }
+            String normalized = text.toLowerCase().replace(" ", "").replace("\u00b2", "^2")
+                    .replace("\u207f", "^n");
+            if (normalized.startsWith("o(") && normalized.endsWith(")")) {
+                normalized = normalized.substring(2, normalized.length() - 1);
+            }
+            for (Model model : values()) {
+                if (model.label.replace(" ", "").equals("O(" + normalized + ")")) {
+                    return model;
+                }
+            }
+            return switch (normalized) {
+                case "lgn" -> LOGARITHMIC;
+                case "nlgn", "n*logn" -> LINEARITHMIC;
+                case "n*n" -> QUADRATIC;
+                default -> null;
+            };
+        }
+    }
+
+    /**
+     * Result of fitting all models: the chosen class and every finite fit,
+     * chosen class first, the rest by residual.
+     */
+    static class Estimate {
+        private final Model best;
+        private final List<ComplexityResponse.Fit> fits;
+
+        Estimate(Model best, List<ComplexityResponse.Fit> fits) {
+            this.best = best;
+            this.fits = fits;
+        }
+
+        Model getBest() {
+            return best;
+        }
+
+        List<ComplexityResponse.Fit> getFits() {
+            return fits;
+        }
+    }
+
+    private ComplexityFitter() {
+    }
+
+    static Estimate fit(List<ComplexityResponse.Sample> samples) {
+        double meanTime = samples.stream().mapToLong(ComplexityResponse.Sample::getNanos).average().orElse(0);
+
+        List<Model> models = new ArrayList<>();
+        List<ComplexityResponse.Fit> fits = new ArrayList<>();
+        for (Model model : Model.values()) {
+            ComplexityResponse.Fit fit = fit(model, samples, meanTime);
+            if (fit != null) {
+                models.add(model);
+                fits.add(fit);
+            }
+        }
+
+        int best = 0;
+        for (int i = 1; i < fits.size(); i++) {
+            if (fits.get(i).getResidualSumOfSquares() * SIMPLER_MODEL_TOLERANCE
+                    < fits.get(best).getResidualSumOfSquares()) {
+                best = i;
+            }
+        }
+
+        List<ComplexityResponse.Fit> ordered = new ArrayList<>(fits);
+        ComplexityResponse.Fit bestFit = ordered.remove(best);
+        ordered.sort(Comparator.comparingDouble(ComplexityResponse.Fit::getResidualSumOfSquares));
+        ordered.add(0, bestFit);
+        return new Estimate(models.get(best), ordered);
+    }
+
+    // Null when f(n) overflows at the measured sizes (2^n beyond ~1000)
+    private static ComplexityResponse.Fit fit(Model model, List<ComplexityResponse.Sample> samples,
+            double meanTime) {
+        int count = samples.size();
+        double[] x = new double[count];
+        double meanX = 0;
+        for (int i = 0; i < count; i++) {
+            x[i] = model.growth.applyAsDouble(samples.get(i).getN());
+            if (!Double.isFinite(x[i])) {
+                return null;
+            }
+            meanX += x[i] / count;
+        }
+
+        double covariance = 0;
+        double variance = 0;
+        for (int i = 0; i < count; i++) {
+            covariance += (x[i] - meanX) * (samples.get(i).getNanos() - meanTime);
+            variance += (x[i] - meanX) * (x[i] - meanX);
+        }
+        // Shrinking run times are noise, not a growth rate
+        double slope = variance > 0 ? Math.max(0, covariance / variance) : 0;
+        double intercept = meanTime - slope * meanX;
+
+        double residuals = 0;
+        for (int i = 0; i < count; i++) {
+            double residual = samples.get(i).getNanos() - (intercept + slope * x[i]);
+            residuals += residual * residual;
+        }
+        double relativeError = meanTime > 0 ? Math.sqrt(residuals / count) / meanTime : 0;
+        return new ComplexityResponse.Fit(model.getLabel(), intercept, slope, residuals, relativeError);
+    }
+}
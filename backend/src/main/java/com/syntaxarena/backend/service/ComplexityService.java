@@ -0,0 +1,234 @@
+package com.syntaxarena.backend.service;
+
+import com.syntaxarena.backend.model.BenchmarkResult;
+import com.syntaxarena.backend.model.ComplexityRequest;
+import com.syntaxarena.backend.model.ComplexityResponse;
+import com.syntaxarena.backend.model.ExecutionRequest;
+import com.syntaxarena.backend.model.ExecutionResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a solution's complexity instead of guessing it. A generator
+ * program produces inputs at geometrically increasing sizes, the solution is
+ * benchmarked on each, and the timings are fitted against the common
+ * complexity classes.
+ *
+ * Timings cover the whole program, including reading its input, so classes
+ * below O(n) only show up when the input does not grow with n.
+ *
+ * The generator batch and each size's benchmark are separate jobs in the
+ * execution queue, so an estimate holds one slot at a time and other users'
+ * runs interleave with it. Sizes stop once the time budget is spent.
+ */
+@Service
+public class ComplexityService {
+
+    // Fewer points than this cannot tell the classes apart
+    private static final int MIN_SAMPLES = 3;
+
+    @Value("${execution.complexity.min-size:8}")
+    private int defaultMinSize;
+
+    // Also the largest max-size a request may ask for
+    @Value("${execution.complexity.max-size:65536}")
+    private int defaultMaxSize;
+
+    @Value("${execution.complexity.growth-factor:2}")
+    private int growthFactor;
+
+    // Sizes stop growing once one run takes longer than this
+    @Value("${execution.complexity.size-budget-millis:500}")
+    private long sizeBudgetMillis;
+
+    @Value("${execution.complexity.warmup-iterations:2}")
+    private int warmupIterations;
+
+    @Value("${execution.complexity.measurement-iterations:5}")
+    private int measurementIterations;
+
+    // No further size is started once an estimate has been going this long
+    @Value("${execution.complexity.time-budget-millis:60000}")
+    private long timeBudgetMillis;
+
+    @Autowired
+    private ExecutionService executionService;
+
+    @Autowired
+    private ExecutionScheduler executionScheduler;
+
+    /**
+     * Queues the estimate for the given user. The future completes with the
+     * estimate, or with a response carrying the error.
+     *
+     * @throws ExecutionRejectedException if the user's queue or the backlog is full
+     */
+    public CompletableFuture<ComplexityResponse> estimate(ComplexityRequest request, String callerId) {
+        if (request.getCode() == null || request.getCode().isEmpty()
+                || request.getGenerator() == null || request.getGenerator().isEmpty()) {
+            return CompletableFuture.completedFuture(new ComplexityResponse("Both code and generator are required"));
+        }
+        ComplexityFitter.Model expected = ComplexityFitter.Model.parse(request.getExpectedComplexity());
+        if (request.getExpectedComplexity() != null && expected == null) {
+            return CompletableFuture.completedFuture(
+                    new ComplexityResponse("Unknown expected complexity: " + request.getExpectedComplexity()));
+        }
+
+        // Requests may narrow the configured range but not widen it
+        int maxSize = Math.max(1, request.getMaxSize() != null
+                ? Math.min(request.getMaxSize(), defaultMaxSize) : defaultMaxSize);
+        int minSize = Math.max(1, Math.min(maxSize, request.getMinSize() != null
+                ? request.getMinSize() : defaultMinSize));
+        List<Integer> sizes = new ArrayList<>();
+        for (long n = minSize; n <= maxSize; n *= Math.max(2, growthFactor)) {
+            sizes.add((int) n);
+        }
+        if (sizes.size() < MIN_SAMPLES) {
+            return CompletableFuture.completedFuture(new ComplexityResponse("The size range " + minSize + ".."
+                    + maxSize + " has fewer than " + MIN_SAMPLES + " sizes"));
+        }
+
+        Estimation estimation = new Estimation(request, callerId, expected, sizes,
+                System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeBudgetMillis));
+        executionScheduler.submit(callerId, () -> generateInputs(request, sizes, estimation.inputs))
+                .whenComplete((generatorError, error) -> {
+                    if (error != null) {
+                        estimation.result.completeExceptionally(error);
+                    } else if (estimation.inputs.size() < MIN_SAMPLES) {
+                        estimation.result.complete(new ComplexityResponse("Generator failed: " + generatorError));
+                    } else {
+                        benchmarkNext(estimation);
+                    }
+                });
+        return estimation.result;
+    }
+
+    // Queues the benchmark of the next size, or fits once there is none left
+    private void benchmarkNext(Estimation estimation) {
+        int i = estimation.samples.size();
+        if (i >= estimation.inputs.size() || System.nanoTime() > estimation.deadline) {
+            estimation.result.complete(fit(estimation));
+            return;
+        }
+
+        ExecutionRequest run = new ExecutionRequest();
+        run.setLanguage(estimation.request.getLanguage());
+        run.setCode(estimation.request.getCode());
+        run.setTestHarness(estimation.request.getTestHarness());
+        run.setBenchmark(new ExecutionRequest.Benchmark(warmupIterations, measurementIterations,
+                estimation.inputs.get(i)));
+        CompletableFuture<ExecutionResponse> benchmarked;
+        try {
+            benchmarked = executionScheduler.submit(estimation.callerId, () -> executionService.executeCode(run));
+        } catch (ExecutionRejectedException e) {
+            estimation.result.complete(new ComplexityResponse(e.getMessage()));
+            return;
+        }
+
+        benchmarked.whenComplete((response, error) -> {
+            if (error != null) {
+                estimation.result.completeExceptionally(error);
+                return;
+            }
+            BenchmarkResult benchmark = response.getBenchmark();
+            if (benchmark == null) {
+                if (response.isTimedOut()) {
+                    // Too slow to go on; fit what completed
+                    estimation.result.complete(fit(estimation));
+                } else {
+                    estimation.result.complete(new ComplexityResponse("Solution failed at n="
+                            + estimation.sizes.get(i) + ": " + response.getError()));
+                }
+                return;
+            }
+            // The fastest iteration is the one least disturbed by GC and scheduling
+            estimation.samples.add(new ComplexityResponse.Sample(estimation.sizes.get(i), benchmark.getMinNanos()));
+            if (benchmark.getMinNanos() > sizeBudgetMillis * 1_000_000) {
+                estimation.result.complete(fit(estimation));
+            } else {
+                benchmarkNext(estimation);
+            }
+        });
+    }
+
+    private static ComplexityResponse fit(Estimation estimation) {
+        List<ComplexityResponse.Sample> samples = estimation.samples;
+        if (samples.size() < MIN_SAMPLES) {
+            return new ComplexityResponse("Only " + samples.size() + " input sizes finished in time; at least "
+                    + MIN_SAMPLES + " are needed to fit a complexity");
+        }
+
+        ComplexityFitter.Estimate estimate = ComplexityFitter.fit(samples);
+        ComplexityResponse response = new ComplexityResponse();
+        response.setBestFit(estimate.getBest().getLabel());
+        response.setFits(estimate.getFits());
+        response.setSamples(samples);
+        if (estimation.expected != null) {
+            response.setAcceptable(estimate.getBest().compareTo(estimation.expected) <= 0);
+        }
+        return response;
+    }
+
+    /**
+     * Runs the generator once per size, as one batch, and adds an input per
+     * size until the first size it fails on or whose output was cut at the
+     * output limit. Returns the reason it stopped early, or null.
+     */
+    private String generateInputs(ComplexityRequest request, List<Integer> sizes, List<String> inputs) {
+        ExecutionRequest generate = new ExecutionRequest();
+        generate.setLanguage(request.getGeneratorLanguage() != null ? request.getGeneratorLanguage()
+                : request.getLanguage());
+        generate.setCode(request.getGenerator());
+        List<ExecutionRequest.TestCase> testCases = new ArrayList<>();
+        for (int n : sizes) {
+            testCases.add(new ExecutionRequest.TestCase(String.valueOf(n), null));
+        }
+        generate.setTestCases(testCases);
+
+        ExecutionResponse response = executionService.executeCode(generate);
+        if (response.getTestResults() == null) {
+            return response.getError();
+        }
+        for (ExecutionResponse.TestCaseResult result : response.getTestResults()) {
+            if (!result.isPassed()) {
+                return "n=" + sizes.get(inputs.size()) + ": "
+                        + (result.isTimedOut() ? "Timeout" : result.getError());
+            }
+            if (result.isTruncated()) {
+                return "n=" + sizes.get(inputs.size()) + ": output exceeds the output limit";
+            }
+            inputs.add(result.getActualOutput() + "\n");
+        }
+        return null;
+    }
+
+    /**
+     * One estimate in progress. Its jobs run one after another, each
+     * queued when the previous one completes.
+     */
+    private static class Estimation {
+        private final ComplexityRequest request;
+        private final String callerId;
+        private final ComplexityFitter.Model expected;
+        private final List<Integer> sizes;
+        private final long deadline;
+        private final List<String> inputs = new ArrayList<>();
+        private final List<ComplexityResponse.Sample> samples = new ArrayList<>();
+        private final CompletableFuture<ComplexityResponse> result = new CompletableFuture<>();
+
+        Estimation(ComplexityRequest request, String callerId, ComplexityFitter.Model expected, List<Integer> sizes,
+                long deadline) {
+            this.request = request;
+            this.callerId = callerId;
+            this.expected = expected;
+            this.sizes = sizes;
+            this.deadline = deadline;
+        }
+    }
+}
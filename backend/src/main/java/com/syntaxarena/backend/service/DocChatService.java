@@ -4,30 +4,17 @@ import com.syntaxarena.backend.model.DocChatRequest;
 import com.syntaxarena.backend.model.DocChatResponse;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
-import java.time.Duration;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
-import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
 import java.util.regex.Pattern;
 
 @Service
 public class DocChatService {
 
-    @Value("${NVIDIA_API_KEY}")
-    private String apiKey;
-
-    private final HttpClient httpClient = HttpClient.newBuilder()
-            .version(HttpClient.Version.HTTP_2)
-            .connectTimeout(Duration.ofSeconds(30))
-            .build();
+    @Autowired
+    private LlmGateway llmGateway;
 
     private final ObjectMapper objectMapper = new ObjectMapper();
 
@@ -36,78 +23,73 @@ public class DocChatService {
             "(?i)(create|make|generate|write|build|draft)\\s+(a\\s+)?(new\\s+)?(document|doc|documentation|guide|tutorial|article)\\s+(about|on|for|regarding)?",
             Pattern.CASE_INSENSITIVE);
 
-    public DocChatResponse chat(DocChatRequest request) {
+    public CompletableFuture<DocChatResponse> chat(DocChatRequest request) {
         // Check if this is a document creation request
         boolean isCreateDocRequest = CREATE_DOC_PATTERN.matcher(request.getMessage()).find();
 
-        try {
-            String url = "https://integrate.api.nvidia.com/v1/chat/completions";
-
-            String systemMessage;
-            if (isCreateDocRequest) {
-                systemMessage = buildDocCreationPrompt(request.getMessage());
+        return llmGateway.completeAsync(createChat(request, isCreateDocRequest, "doc_chat")).thenApply(completion -> {
+            if (completion.isSuccess()) {
+                return parseResponse(completion.getContent(), isCreateDocRequest);
             } else {
-                systemMessage = buildQAPrompt(request.getDocumentContent());
+                System.out.println("NVIDIA API Error: " + completion.getBody());
+                return new DocChatResponse("Error communicating with the assistant. Please try again.");
             }
+        }).exceptionally(this::failed);
+    }
 
-            // Build messages array
-            List<Map<String, Object>> messages = new ArrayList<>();
-
-            // Add system message
-            Map<String, Object> sysMsg = new HashMap<>();
-            sysMsg.put("role", "system");
-            sysMsg.put("content", systemMessage);
-            messages.add(sysMsg);
-
-            // Add chat history (only for Q&A, not for creation)
-            if (!isCreateDocRequest && request.getHistory() != null) {
-                for (DocChatRequest.ChatHistoryItem item : request.getHistory()) {
-                    Map<String, Object> msg = new HashMap<>();
-                    String role = item.getRole().equals("model") ? "assistant" : item.getRole();
-                    msg.put("role", role);
-                    msg.put("content", item.getText());
-                    messages.add(msg);
-                }
-            }
+    /**
+     * Streams the answer to the listener as it is generated. Completes with
+     * null once it has all been sent, or with the response to show instead:
+     * when the call failed, and for document creation, whose JSON is only
+     * usable whole and so is not streamed.
+     */
+    public CompletableFuture<DocChatResponse> streamChat(DocChatRequest request, LlmGateway.TokenListener listener) {
+        if (CREATE_DOC_PATTERN.matcher(request.getMessage()).find()) {
+            return chat(request);
+        }
 
-            // Add current user message
-            Map<String, Object> userMsg = new HashMap<>();
-            userMsg.put("role", "user");
-            userMsg.put("content", request.getMessage());
-            messages.add(userMsg);
-
-            // Build payload
-            Map<String, Object> payload = new HashMap<>();
-            payload.put("model", "nvidia/nemotron-3-nano-30b-a3b");
-            payload.put("temperature", isCreateDocRequest ? 0.8 : 0.7);
-            payload.put("top_p", 1);
-            payload.put("max_tokens", isCreateDocRequest ? 4096 : 2048);
-            payload.put("stream", false);
-            payload.put("messages", messages);
-
-            String requestBody = objectMapper.writeValueAsString(payload);
-
-            HttpRequest httpRequest = HttpRequest.newBuilder()
-                    .uri(URI.create(url))
-                    .header("Content-Type", "application/json")
-                    .header("Authorization", "Bearer " + apiKey)
-                    .POST(HttpRequest.BodyPublishers.ofString(requestBody))
-                    .build();
-
-            HttpResponse<String> response = httpClient.send(httpRequest, HttpResponse.BodyHandlers.ofString());
-
-            if (response.statusCode() == 200) {
-                return parseResponse(response.body(), isCreateDocRequest);
+        return llmGateway.streamAsync(createChat(request, false, "doc_chat_stream"), listener).thenApply(completion -> {
+            if (completion.isSuccess()) {
+                return null;
             } else {
-                System.out.println("NVIDIA API Error: " + response.body());
+                System.out.println("NVIDIA API Error: " + completion.getBody());
                 return new DocChatResponse("Error communicating with the assistant. Please try again.");
             }
+        }).exceptionally(this::failed);
+    }
 
-        } catch (Exception e) {
-            System.out.println("Exception: " + e.getMessage());
-            e.printStackTrace();
-            return new DocChatResponse("Error: " + e.getMessage());
+    private LlmGateway.ChatRequest createChat(DocChatRequest request, boolean isCreateDocRequest, String operation) {
+        String systemMessage;
+        if (isCreateDocRequest) {
+            systemMessage = buildDocCreationPrompt(request.getMessage());
+        } else {
+            systemMessage = buildQAPrompt(request.getDocumentContent());
         }
+
+        LlmGateway.ChatRequest chat = new LlmGateway.ChatRequest(operation);
+        chat.setTemperature(isCreateDocRequest ? 0.8 : 0.7);
+        chat.setTopP(1.0);
+        chat.setMaxTokens(isCreateDocRequest ? 4096 : 2048);
+        chat.addMessage("system", systemMessage);
+
+        // Add chat history (only for Q&A, not for creation)
+        if (!isCreateDocRequest && request.getHistory() != null) {
+            for (DocChatRequest.ChatHistoryItem item : request.getHistory()) {
+                String role = item.getRole().equals("model") ? "assistant" : item.getRole();
+                chat.addMessage(role, item.getText());
+            }
+        }
+
+        // Add current user message
+        chat.addMessage("user", request.getMessage());
+        return chat;
+    }
+
+    private DocChatResponse failed(Throwable error) {
+        Throwable cause = LlmGateway.unwrap(error);
+        System.out.println("Exception: " + cause.getMessage());
+        cause.printStackTrace();
+        return new DocChatResponse("Error: " + cause.getMessage());
     }
 
     private String buildDocCreationPrompt(String userRequest) {
@@ -159,22 +141,17 @@ public class DocChatService {
                 documentContent != null ? documentContent : "");
     }
 
-    private DocChatResponse parseResponse(String jsonResponse, boolean isCreateDocRequest) {
-        try {
-            JsonNode root = objectMapper.readTree(jsonResponse);
-            String text = root.path("choices").get(0)
-                    .path("message").path("content").asText();
-
-            if (isCreateDocRequest) {
-                // Try to parse as JSON for document creation
-                return parseDocCreationResponse(text);
-            } else {
-                return new DocChatResponse(text);
-            }
-        } catch (Exception e) {
-            System.out.println("Parse error: " + e.getMessage());
+    private DocChatResponse parseResponse(String text, boolean isCreateDocRequest) {
+        if (text == null) {
+            System.out.println("Parse error: response has no message content");
             return new DocChatResponse("Could not parse response.");
         }
+        if (isCreateDocRequest) {
+            // Try to parse as JSON for document creation
+            return parseDocCreationResponse(text);
+        } else {
+            return new DocChatResponse(text);
+        }
     }
 
     private DocChatResponse parseDocCreationResponse(String text) {
@@ -0,0 +1,33 @@
+package com.syntaxarena.backend.service;
+
+import com.syntaxarena.backend.model.ExecutionRequest;
+import com.syntaxarena.backend.model.ExecutionResponse;
+
+/**
+ * Where submissions actually run. {@link ExecutionService} hands every run
+ * to the configured backend: {@link LocalExecutionBackend} runs it in this
+ * JVM, {@link RemoteExecutionBackend} on separate executor nodes. Failures to
+ * run are reported in the response's error, never thrown.
+ */
+public interface ExecutionBackend {
+
+    ExecutionResponse executeCode(ExecutionRequest request);
+
+    /**
+     * Runs the request's test cases until the first failure; each case
+     * result goes to the listener (may be null) as it comes in.
+     */
+    ExecutionResponse executeUntilFailure(ExecutionRequest request, ExecutionService.TestCaseListener listener);
+
+    /**
+     * Runs a submission and streams its output to the listener as it is
+     * produced.
+     */
+    ExecutionResponse executeCodeStreaming(ExecutionRequest request, ProcessPump.OutputListener listener);
+
+    /**
+     * Compiles a problem's Java test harness with its starter code wherever
+     * submissions will run. Returns the compile errors, or null.
+     */
+    String precompileHarness(String starterCode, String testHarness);
+}
@@ -0,0 +1,164 @@
+package com.syntaxarena.backend.service;
+
+import com.syntaxarena.backend.model.ExecutionJob;
+import com.syntaxarena.backend.model.ExecutionJob.JobStatus;
+import com.syntaxarena.backend.model.ExecutionRequest;
+import com.syntaxarena.backend.model.ExecutionResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Asynchronous runs: a job is queued on the {@link ExecutionScheduler} and
+ * the caller gets its id right away instead of holding a request thread for
+ * the whole run. The finished job is pushed to /topic/jobs/{jobId} and kept
+ * for polling until it is older than execution.jobs.ttl-ms or crowded out by
+ * execution.jobs.max-retained newer results. Job ids are random UUIDs, so
+ * only the submitter can find a job.
+ */
+@Service
+public class ExecutionJobService {
+
+    @Value("${execution.jobs.max-retained:1000}")
+    private int maxRetained;
+
+    @Value("${execution.jobs.ttl-ms:600000}")
+    private long ttlMillis;
+
+    @Autowired
+    private ExecutionService executionService;
+
+    @Autowired
+    private ExecutionScheduler executionScheduler;
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Guarded by this
+    private final Map<String, ExecutionJob> pending = new HashMap<>();
+    // In completion order, so the oldest results are at the head
+    private final LinkedHashMap<String, ExecutionJob> completed = new LinkedHashMap<>();
+
+    private Counter evicted;
+
+    @PostConstruct
+    public void registerMetrics() {
+        evicted = meterRegistry.counter("execution.jobs.evicted");
+        Gauge.builder("execution.jobs.pending", this, ExecutionJobService::getPendingCount).register(meterRegistry);
+        Gauge.builder("execution.jobs.retained", this, ExecutionJobService::getRetainedCount).register(meterRegistry);
+    }
+
+    /**
+     * Queues the run and returns the job as submitted.
+     *
+     * @throws ExecutionRejectedException if the execution backlog is full
+     */
+    public ExecutionJob submit(ExecutionRequest request, String callerId) {
+        String jobId = UUID.randomUUID().toString();
+        ExecutionJob job = new ExecutionJob(jobId, JobStatus.QUEUED, System.currentTimeMillis());
+        ExecutionJob submitted = copy(job);
+        synchronized (this) {
+            pending.put(jobId, job);
+        }
+
+        CompletableFuture<ExecutionResponse> run;
+        try {
+            run = executionScheduler.submit(callerId, () -> {
+                started(jobId);
+                return executionService.executeCode(request);
+            });
+        } catch (ExecutionRejectedException e) {
+            synchronized (this) {
+                pending.remove(jobId);
+            }
+            throw e;
+        }
+        run.whenComplete((response, error) -> completed(jobId, error == null ? response
+                : new ExecutionResponse("", "Execution failed: " + error.getMessage())));
+        return submitted;
+    }
+
+    /**
+     * The job's current state, or null if there is no such job or its result
+     * has expired.
+     */
+    public synchronized ExecutionJob get(String jobId) {
+        evictExpired(System.currentTimeMillis());
+        ExecutionJob job = pending.get(jobId);
+        if (job == null) {
+            job = completed.get(jobId);
+        }
+        return job != null ? copy(job) : null;
+    }
+
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    public synchronized int getRetainedCount() {
+        return completed.size();
+    }
+
+    private synchronized void started(String jobId) {
+        ExecutionJob job = pending.get(jobId);
+        if (job != null) {
+            job.setStatus(JobStatus.RUNNING);
+            job.setStartedAt(System.currentTimeMillis());
+        }
+    }
+
+    private void completed(String jobId, ExecutionResponse response) {
+        ExecutionJob finished;
+        synchronized (this) {
+            ExecutionJob job = pending.remove(jobId);
+            if (job == null) {
+                return;
+            }
+            long now = System.currentTimeMillis();
+            job.setStatus(JobStatus.COMPLETED);
+            job.setCompletedAt(now);
+            job.setResult(response);
+            completed.put(jobId, job);
+            evictExpired(now);
+            finished = copy(job);
+        }
+        messagingTemplate.convertAndSend("/topic/jobs/" + jobId, finished);
+    }
+
+    // Guarded by this
+    private void evictExpired(long now) {
+        Iterator<ExecutionJob> oldest = completed.values().iterator();
+        while (oldest.hasNext()) {
+            ExecutionJob job = oldest.next();
+            if (completed.size() <= maxRetained && job.getCompletedAt() + ttlMillis > now) {
+                return;
+            }
+            oldest.remove();
+            evicted.increment();
+        }
+    }
+
+    // Callers get a snapshot, never the job the worker thread updates
+    private static ExecutionJob copy(ExecutionJob job) {
+        ExecutionJob copy = new ExecutionJob(job.getJobId(), job.getStatus(), job.getSubmittedAt());
+        copy.setStartedAt(job.getStartedAt());
+        copy.setCompletedAt(job.getCompletedAt());
+        copy.setResult(job.getResult());
+        return copy;
+    }
+}
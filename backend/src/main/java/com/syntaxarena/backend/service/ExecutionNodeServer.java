@@ -0,0 +1,241 @@
+package com.syntaxarena.backend.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.syntaxarena.backend.model.ExecutionRequest;
+import com.syntaxarena.backend.model.ExecutionResponse;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Makes this process an executor node: when execution.node.listen is set,
+ * jobs from {@link RemoteExecutionBackend} are accepted on that address and
+ * run through the {@link LocalExecutionBackend}. Several nodes can run on one
+ * machine, each with its own port or socket path. Clients must prove they
+ * know execution.node.secret; without one a node only listens on a Unix
+ * socket or a loopback address. See {@link ExecutionProtocol} for the wire
+ * format.
+ */
+@Service
+public class ExecutionNodeServer {
+
+    private static final long HANDSHAKE_TIMEOUT_MILLIS = 5000;
+
+    // Empty means this process is not an executor node
+    @Value("${execution.node.listen:}")
+    private String listen;
+
+    // Jobs run at once (0 = one per CPU core); later jobs wait on the node
+    @Value("${execution.node.max-concurrent:0}")
+    private int configuredMaxConcurrent;
+
+    // Shared with the clients in execution.remote.nodes
+    @Value("${execution.node.secret:}")
+    private String secret;
+
+    // Only created when this process runs submissions itself
+    @Autowired(required = false)
+    private LocalExecutionBackend localBackend;
+
+    private ServerSocketChannel server;
+    private SocketAddress address;
+    private Semaphore slots;
+    private int capacity;
+    // Jobs running or waiting for a slot; reported to clients as the node's load
+    private final AtomicInteger active = new AtomicInteger();
+
+    private final AtomicInteger handlerThreads = new AtomicInteger();
+    private final ExecutorService handlers = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "execution-node-" + handlerThreads.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Hangs up on clients that do not finish the handshake in time
+    private final ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "execution-node-watchdog");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (listen.isBlank()) {
+            return;
+        }
+        capacity = configuredMaxConcurrent > 0 ? configuredMaxConcurrent : Runtime.getRuntime().availableProcessors();
+        slots = new Semaphore(capacity, true);
+
+        address = ExecutionProtocol.parseAddress(listen);
+        if (secret.isEmpty() && address instanceof InetSocketAddress inet
+                && (inet.getAddress() == null || !inet.getAddress().isLoopbackAddress())) {
+            throw new IllegalStateException("execution.node.secret must be set to listen on " + listen.trim());
+        }
+        if (address instanceof UnixDomainSocketAddress unix) {
+            // Left behind by a node that did not shut down cleanly
+            Files.deleteIfExists(unix.getPath());
+            server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        } else {
+            server = ServerSocketChannel.open();
+        }
+        server.bind(address);
+
+        Thread acceptor = new Thread(this::acceptLoop, "execution-node-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        System.out.println("Executor node listening on " + listen.trim() + " with " + capacity + " slots");
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException {
+        if (server == null) {
+            return;
+        }
+        server.close();
+        handlers.shutdownNow();
+        watchdog.shutdownNow();
+        if (address instanceof UnixDomainSocketAddress unix) {
+            Files.deleteIfExists(unix.getPath());
+        }
+    }
+
+    private void acceptLoop() {
+        while (true) {
+            SocketChannel channel;
+            try {
+                channel = server.accept();
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                System.out.println("Executor node accept failed: " + e.getMessage());
+                continue;
+            }
+            handlers.execute(() -> serve(channel));
+        }
+    }
+
+    private void serve(SocketChannel channel) {
+        try (channel) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+            FrameWriter out = new FrameWriter(
+                    new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel))));
+            ScheduledFuture<?> deadline = watchdog.schedule(() -> closeQuietly(channel), HANDSHAKE_TIMEOUT_MILLIS,
+                    TimeUnit.MILLISECONDS);
+            ExecutionProtocol.Frame frame;
+            try {
+                if (!ExecutionProtocol.verify(in, out.out, secret)) {
+                    return;
+                }
+                frame = ExecutionProtocol.readFrame(in);
+            } finally {
+                deadline.cancel(false);
+            }
+            if (frame.getType() == ExecutionProtocol.STATUS) {
+                out.write(ExecutionProtocol.STATUS_REPLY, Map.of("active", active.get(), "capacity", capacity));
+                return;
+            }
+            if (frame.getType() != ExecutionProtocol.RUN && frame.getType() != ExecutionProtocol.RUN_UNTIL_FAILURE
+                    && frame.getType() != ExecutionProtocol.RUN_STREAMING
+                    && frame.getType() != ExecutionProtocol.PRECOMPILE) {
+                out.write(ExecutionProtocol.ERROR, Map.of("message", "Unknown request type " + frame.getType()));
+                return;
+            }
+
+            active.incrementAndGet();
+            try {
+                slots.acquire();
+                try {
+                    if (frame.getType() == ExecutionProtocol.PRECOMPILE) {
+                        JsonNode body = frame.read(JsonNode.class);
+                        String errors = localBackend.precompileHarness(body.path("starterCode").asText(),
+                                body.path("testHarness").asText());
+                        out.write(ExecutionProtocol.COMPILE_REPLY, Collections.singletonMap("errors", errors));
+                    } else {
+                        ExecutionRequest request = frame.read(ExecutionRequest.class);
+                        out.write(ExecutionProtocol.RESULT, run(frame.getType(), request, out));
+                    }
+                } finally {
+                    slots.release();
+                }
+            } finally {
+                active.decrementAndGet();
+            }
+        } catch (IOException e) {
+            // The client went away or sent garbage; there is no one to answer
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void closeQuietly(SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Closing only to unblock the reader
+        }
+    }
+
+    private ExecutionResponse run(byte type, ExecutionRequest request, FrameWriter out) {
+        if (type == ExecutionProtocol.RUN_UNTIL_FAILURE) {
+            return localBackend.executeUntilFailure(request,
+                    result -> out.write(ExecutionProtocol.TEST_RESULT, result));
+        }
+        if (type == ExecutionProtocol.RUN_STREAMING) {
+            return localBackend.executeCodeStreaming(request,
+                    (stream, text) -> out.write(ExecutionProtocol.OUTPUT, Map.of("stream", stream, "text", text)));
+        }
+        return localBackend.executeCode(request);
+    }
+
+    /**
+     * Serializes frames from the job thread and the listener callbacks. Once
+     * a write fails the client is gone, and the rest of the job's frames are
+     * dropped while it runs to completion.
+     */
+    private static class FrameWriter {
+        // Also used directly for the handshake, before any frame
+        private final DataOutputStream out;
+        private boolean broken;
+
+        FrameWriter(DataOutputStream out) {
+            this.out = out;
+        }
+
+        synchronized void write(byte type, Object body) {
+            if (broken) {
+                return;
+            }
+            try {
+                ExecutionProtocol.writeFrame(out, type, body);
+            } catch (IOException e) {
+                broken = true;
+            }
+        }
+    }
+}
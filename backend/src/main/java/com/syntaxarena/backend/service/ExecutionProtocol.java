@@ -0,0 +1,186 @@
+package com.syntaxarena.backend.service;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+
+/**
+ * Wire format between the backend and executor nodes. A connection carries
+ * one exchange: the client sends the magic number, the node answers with a
+ * random challenge, and the client proves it knows execution.node.secret by
+ * sending the HMAC-SHA256 of the challenge under it. The client then sends
+ * one request frame, the node answers with zero or more progress frames and
+ * then one final frame, and the connection is closed.
+ *
+ * A frame is a 4-byte big-endian length, then a type byte and a JSON body of
+ * that length minus one. Requests: RUN, RUN_UNTIL_FAILURE and RUN_STREAMING
+ * with an ExecutionRequest, PRECOMPILE with {"starterCode", "testHarness"},
+ * and STATUS with an empty body. Progress: TEST_RESULT with a
+ * TestCaseResult, OUTPUT with {"stream", "text"}. Final: RESULT with an
+ * ExecutionResponse, COMPILE_REPLY with {"errors"}, STATUS_REPLY with
+ * {"active", "capacity"}, ERROR with {"message"}.
+ *
+ * Addresses are "host:port" for TCP or "unix:/path/to/socket".
+ */
+final class ExecutionProtocol {
+
+    static final int MAGIC = 0x53415832; // "SAX2"
+
+    static final byte RUN = 1;
+    static final byte RUN_UNTIL_FAILURE = 2;
+    static final byte RUN_STREAMING = 3;
+    static final byte STATUS = 4;
+    static final byte PRECOMPILE = 5;
+
+    static final byte RESULT = 10;
+    static final byte TEST_RESULT = 11;
+    static final byte OUTPUT = 12;
+    static final byte STATUS_REPLY = 13;
+    static final byte ERROR = 14;
+    static final byte COMPILE_REPLY = 15;
+
+    private static final int CHALLENGE_BYTES = 32;
+    private static final SecureRandom CHALLENGES = new SecureRandom();
+
+    // Far above any request or response the output and source limits allow
+    private static final int MAX_FRAME_BYTES = 64 * 1024 * 1024;
+
+    // Nodes may be a version ahead or behind, so unknown fields are skipped
+    static final ObjectMapper JSON = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private ExecutionProtocol() {
+    }
+
+    /**
+     * Client side of the handshake; the request frame may follow at once.
+     */
+    static void authenticate(DataInputStream in, DataOutputStream out, String secret) throws IOException {
+        out.writeInt(MAGIC);
+        out.flush();
+        byte[] challenge = new byte[CHALLENGE_BYTES];
+        in.readFully(challenge);
+        out.write(proof(secret, challenge));
+        out.flush();
+    }
+
+    /**
+     * Node side of the handshake. Returns false if the client is not one of
+     * ours, in which case nothing more should be read from or written to it.
+     */
+    static boolean verify(DataInputStream in, DataOutputStream out, String secret) throws IOException {
+        if (in.readInt() != MAGIC) {
+            return false;
+        }
+        byte[] challenge = new byte[CHALLENGE_BYTES];
+        CHALLENGES.nextBytes(challenge);
+        out.write(challenge);
+        out.flush();
+        byte[] proof = new byte[CHALLENGE_BYTES];
+        in.readFully(proof);
+        return MessageDigest.isEqual(proof, proof(secret, challenge));
+    }
+
+    // Without a secret (loopback and Unix sockets only) the proof is all zeros
+    private static byte[] proof(String secret, byte[] challenge) {
+        if (secret.isEmpty()) {
+            return new byte[CHALLENGE_BYTES];
+        }
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            return mac.doFinal(challenge);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static void writeFrame(DataOutputStream out, byte type, Object body) throws IOException {
+        byte[] json = body != null ? JSON.writeValueAsBytes(body) : new byte[0];
+        out.writeInt(json.length + 1);
+        out.writeByte(type);
+        out.write(json);
+        out.flush();
+    }
+
+    static Frame readFrame(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 1 || length > MAX_FRAME_BYTES) {
+            throw new IOException("Bad frame length " + length);
+        }
+        byte type = in.readByte();
+        byte[] body = new byte[length - 1];
+        in.readFully(body);
+        return new Frame(type, body);
+    }
+
+    static SocketAddress parseAddress(String address) {
+        String trimmed = address.trim();
+        if (trimmed.startsWith("unix:")) {
+            return UnixDomainSocketAddress.of(trimmed.substring("unix:".length()));
+        }
+        int colon = trimmed.lastIndexOf(':');
+        if (colon <= 0 || colon == trimmed.length() - 1) {
+            throw new IllegalArgumentException("Expected host:port or unix:/path, got " + address);
+        }
+        return new InetSocketAddress(trimmed.substring(0, colon), Integer.parseInt(trimmed.substring(colon + 1)));
+    }
+
+    /**
+     * Opens a blocking connection; the timeout only applies to TCP, as Unix
+     * socket connects either succeed or fail at once.
+     */
+    static SocketChannel connect(SocketAddress address, int timeoutMillis) throws IOException {
+        if (address instanceof UnixDomainSocketAddress) {
+            SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+            try {
+                channel.connect(address);
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+            return channel;
+        }
+        SocketChannel channel = SocketChannel.open();
+        try {
+            channel.socket().connect(address, timeoutMillis);
+            channel.socket().setTcpNoDelay(true);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return channel;
+    }
+
+    static class Frame {
+        private final byte type;
+        private final byte[] body;
+
+        Frame(byte type, byte[] body) {
+            this.type = type;
+            this.body = body;
+        }
+
+        byte getType() {
+            return type;
+        }
+
+        <T> T read(Class<T> bodyType) throws IOException {
+            return JSON.readValue(body, bodyType);
+        }
+    }
+}
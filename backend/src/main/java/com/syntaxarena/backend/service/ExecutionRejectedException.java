@@ -0,0 +1,26 @@
+package com.syntaxarena.backend.service;
+
+/**
+ * Thrown when the execution backlog, or the caller's share of it, is full and
+ * a run cannot be queued.
+ */
+public class ExecutionRejectedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long retryAfterSeconds;
+
+    public ExecutionRejectedException(long retryAfterSeconds) {
+        super("Execution queue is full. Please retry in " + retryAfterSeconds + "s.");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public ExecutionRejectedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
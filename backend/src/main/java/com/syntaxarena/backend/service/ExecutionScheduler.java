@@ -0,0 +1,198 @@
+package com.syntaxarena.backend.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Admission control for code execution. At most maxConcurrent runs execute
+ * at once; the rest wait in per-user queues that are served round-robin, so
+ * one user pressing Run repeatedly cannot starve everyone else. A user with
+ * maxQueuedPerUser runs already waiting has further runs rejected, and so
+ * does everyone once the total backlog is full, so no single user can fill
+ * the shared backlog.
+ */
+@Service
+public class ExecutionScheduler {
+
+    @Value("${execution.scheduler.max-concurrent:0}")
+    private int configuredMaxConcurrent;
+
+    @Value("${execution.scheduler.max-queued:100}")
+    private int maxQueued;
+
+    @Value("${execution.scheduler.max-queued-per-user:5}")
+    private int maxQueuedPerUser;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private int maxConcurrent;
+    private ExecutorService workers;
+
+    // Guarded by this
+    private final Map<String, ArrayDeque<Job<?>>> queues = new HashMap<>();
+    private final ArrayDeque<String> rotation = new ArrayDeque<>();
+    private int queued;
+    private int running;
+
+    // Smoothed run duration, used for Retry-After estimates
+    private volatile double averageRunMillis = 1000;
+
+    private Timer waitTimer;
+    private Counter rejected;
+    private Counter rejectedPerUser;
+
+    @PostConstruct
+    public void start() {
+        maxConcurrent = configuredMaxConcurrent > 0 ? configuredMaxConcurrent
+                : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadCount = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(maxConcurrent, r -> {
+            Thread thread = new Thread(r, "execution-worker-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        waitTimer = Timer.builder("execution.scheduler.wait")
+                .description("Time a run spent queued before starting")
+                .register(meterRegistry);
+        rejected = meterRegistry.counter("execution.scheduler.rejected", "reason", "backlog");
+        rejectedPerUser = meterRegistry.counter("execution.scheduler.rejected", "reason", "user");
+        Gauge.builder("execution.scheduler.queued", this, ExecutionScheduler::getQueuedCount)
+                .register(meterRegistry);
+        Gauge.builder("execution.scheduler.running", this, ExecutionScheduler::getRunningCount)
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    /**
+     * Queues a run for the given user.
+     *
+     * @throws ExecutionRejectedException if the user's queue or the backlog is full
+     */
+    public <T> CompletableFuture<T> submit(String userId, Callable<T> task) {
+        Job<T> job = new Job<>(task);
+        synchronized (this) {
+            ArrayDeque<Job<?>> waiting = queues.get(userId);
+            if (waiting != null && waiting.size() >= maxQueuedPerUser) {
+                rejectedPerUser.increment();
+                long retryAfter = estimateUserRetryAfterSeconds(waiting.size());
+                throw new ExecutionRejectedException("You already have " + waiting.size()
+                        + " runs waiting. Please retry in " + retryAfter + "s.", retryAfter);
+            }
+            if (queued >= maxQueued) {
+                rejected.increment();
+                throw new ExecutionRejectedException(estimateRetryAfterSeconds());
+            }
+            ArrayDeque<Job<?>> queue = queues.computeIfAbsent(userId, id -> new ArrayDeque<>());
+            if (queue.isEmpty()) {
+                rotation.addLast(userId);
+            }
+            queue.addLast(job);
+            queued++;
+        }
+        dispatch();
+        return job.future;
+    }
+
+    public synchronized int getQueuedCount() {
+        return queued;
+    }
+
+    public synchronized int getRunningCount() {
+        return running;
+    }
+
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    /**
+     * Seconds until a slot is likely to free up for a new request.
+     */
+    public synchronized long estimateRetryAfterSeconds() {
+        double waves = Math.ceil((queued + 1) / (double) maxConcurrent);
+        return Math.max(1, (long) Math.ceil(waves * averageRunMillis / 1000.0));
+    }
+
+    // Round-robin serves one of the user's runs per pass over everyone waiting
+    private long estimateUserRetryAfterSeconds(int userQueued) {
+        double waves = Math.ceil(userQueued * Math.max(1, rotation.size()) / (double) maxConcurrent);
+        return Math.max(1, (long) Math.ceil(waves * averageRunMillis / 1000.0));
+    }
+
+    private void dispatch() {
+        while (true) {
+            Job<?> job;
+            synchronized (this) {
+                if (running >= maxConcurrent || rotation.isEmpty()) {
+                    return;
+                }
+                // Take one job from the next user in line, then send them to the back
+                String userId = rotation.pollFirst();
+                ArrayDeque<Job<?>> queue = queues.get(userId);
+                job = queue.pollFirst();
+                if (queue.isEmpty()) {
+                    queues.remove(userId);
+                } else {
+                    rotation.addLast(userId);
+                }
+                queued--;
+                if (job.future.isDone()) {
+                    // Caller gave up while queued
+                    continue;
+                }
+                running++;
+            }
+            workers.execute(() -> runJob(job));
+        }
+    }
+
+    private <T> void runJob(Job<T> job) {
+        long started = System.nanoTime();
+        waitTimer.record(started - job.enqueuedNanos, TimeUnit.NANOSECONDS);
+        try {
+            job.future.complete(job.task.call());
+        } catch (Exception e) {
+            job.future.completeExceptionally(e);
+        } finally {
+            double runMillis = (System.nanoTime() - started) / 1_000_000.0;
+            averageRunMillis = averageRunMillis * 0.9 + runMillis * 0.1;
+            synchronized (this) {
+                running--;
+            }
+            dispatch();
+        }
+    }
+
+    private static class Job<T> {
+        private final Callable<T> task;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private final long enqueuedNanos = System.nanoTime();
+
+        Job(Callable<T> task) {
+            this.task = task;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.syntaxarena.backend.service;
+
+import com.syntaxarena.backend.model.ExecutionResponse;
+import com.syntaxarena.backend.model.ExecutionStreamFrame;
+import com.syntaxarena.backend.model.ExecutionStreamFrame.FrameType;
+import com.syntaxarena.backend.model.ExecutionStreamRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs a submission through the execution scheduler and pushes its output
+ * chunk by chunk to the WebSocket session that asked for it, on
+ * /user/queue/exec. A run starts with an ACCEPTED frame carrying its runId,
+ * a random UUID, and ends with a COMPLETE frame. No other session receives
+ * the frames, whatever it subscribes to.
+ */
+@Service
+public class ExecutionStreamService {
+
+    @Autowired
+    private ExecutionService executionService;
+
+    @Autowired
+    private ExecutionScheduler executionScheduler;
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    public void start(ExecutionStreamRequest request, String callerId, String sessionId) {
+        String runId = UUID.randomUUID().toString();
+        long submittedNanos = System.nanoTime();
+        try {
+            executionScheduler.submit(callerId, () -> {
+                stream(request, runId, sessionId, submittedNanos);
+                return null;
+            });
+        } catch (ExecutionRejectedException e) {
+            ExecutionStreamFrame rejected = new ExecutionStreamFrame(FrameType.REJECTED, runId, e.getMessage());
+            rejected.setRequestId(request.getRequestId());
+            send(sessionId, rejected);
+            return;
+        }
+        ExecutionStreamFrame accepted = new ExecutionStreamFrame(FrameType.ACCEPTED, runId, null);
+        accepted.setRequestId(request.getRequestId());
+        send(sessionId, accepted);
+    }
+
+    private void stream(ExecutionStreamRequest request, String runId, String sessionId, long submittedNanos) {
+        long startNanos = System.nanoTime();
+        AtomicLong firstByteNanos = new AtomicLong();
+
+        ExecutionResponse response = executionService.executeCodeStreaming(request, (stream, text) -> {
+            firstByteNanos.compareAndSet(0, System.nanoTime());
+            FrameType type = ProcessPump.OutputListener.STDERR.equals(stream) ? FrameType.STDERR : FrameType.STDOUT;
+            send(sessionId, new ExecutionStreamFrame(type, runId, text));
+        });
+
+        // Compile errors and timeout/truncation notices are not part of the streamed output
+        if (response.getOutput() != null && !response.getOutput().isEmpty()) {
+            send(sessionId, new ExecutionStreamFrame(FrameType.STDOUT, runId, response.getOutput()));
+        }
+        if (response.getError() != null && !response.getError().isBlank()) {
+            send(sessionId, new ExecutionStreamFrame(FrameType.STDERR, runId, response.getError().strip()));
+        }
+
+        long endNanos = System.nanoTime();
+        ExecutionStreamFrame complete = new ExecutionStreamFrame(FrameType.COMPLETE, runId, null);
+        complete.setExitCode(response.getExitCode());
+        complete.setTimedOut(response.isTimedOut());
+        complete.setTruncated(response.isTruncated());
+        complete.setQueuedMs(TimeUnit.NANOSECONDS.toMillis(startNanos - submittedNanos));
+        if (firstByteNanos.get() != 0) {
+            complete.setTimeToFirstByteMs(TimeUnit.NANOSECONDS.toMillis(firstByteNanos.get() - startNanos));
+        }
+        complete.setDurationMs(TimeUnit.NANOSECONDS.toMillis(endNanos - startNanos));
+        send(sessionId, complete);
+    }
+
+    // Addressed by session id, so signed-out clients get their frames too and other tabs of the same user do not
+    private void send(String sessionId, ExecutionStreamFrame frame) {
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        headers.setSessionId(sessionId);
+        headers.setLeaveMutable(true);
+        messagingTemplate.convertAndSendToUser(sessionId, "/queue/exec", frame, headers.getMessageHeaders());
+    }
+}
@@ -0,0 +1,284 @@
+package com.syntaxarena.backend.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Compiled Java test harnesses, one per harness source. A harness is split
+ * off the first full compile of Solution.java with Main.java; after that a
+ * submission only compiles Solution.java and is linked against the cached
+ * harness classes. Bounded by entry count and evicted least-recently-used
+ * first.
+ */
+@Service
+public class HarnessCache {
+
+    static final String HARNESS_FILE = "Main.java";
+
+    // Access bits that change how a member may be linked
+    private static final int LINK_FLAGS = ClassFileInfo.ACC_PUBLIC | ClassFileInfo.ACC_PRIVATE
+            | ClassFileInfo.ACC_PROTECTED | ClassFileInfo.ACC_STATIC;
+
+    @Value("${execution.harness-cache.max-entries:256}")
+    private int maxEntries;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Access-ordered, so iteration starts at the least recently used entry
+    private final LinkedHashMap<String, CompiledHarness> entries = new LinkedHashMap<>(64, 0.75f, true);
+
+    private Counter hits;
+    private Counter misses;
+    private Counter linkFallbacks;
+    private Counter evictions;
+
+    @PostConstruct
+    public void registerMetrics() {
+        hits = meterRegistry.counter("execution.harness_cache.requests", "result", "hit");
+        misses = meterRegistry.counter("execution.harness_cache.requests", "result", "miss");
+        linkFallbacks = meterRegistry.counter("execution.harness_cache.link_fallbacks");
+        evictions = meterRegistry.counter("execution.harness_cache.evictions");
+    }
+
+    public synchronized CompiledHarness get(String key) {
+        CompiledHarness harness = entries.get(key);
+        if (harness != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return harness;
+    }
+
+    public synchronized void put(String key, CompiledHarness harness) {
+        entries.put(key, harness);
+        Iterator<CompiledHarness> eldest = entries.values().iterator();
+        while (entries.size() > maxEntries && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    /**
+     * Counts a submission that compiled on its own but did not link against
+     * the cached harness, and so needed a full compile.
+     */
+    public void recordLinkFallback() {
+        linkFallbacks.increment();
+    }
+
+    /**
+     * The harness classes of a full compile, i.e. those compiled from
+     * Main.java, plus what they need from the solution side. Returns null if
+     * that cannot be worked out, for instance because the harness uses a
+     * member Solution inherits rather than declares.
+     * <p>
+     * javac copies the value of a constant field into the classes that read
+     * it and leaves no reference behind, so which constants the harness read
+     * cannot be told. Every constant the harness could see is pinned
+     * instead: a solution that changes one is compiled in full.
+     */
+    static CompiledHarness split(Map<String, byte[]> classes) throws IOException {
+        Map<String, byte[]> harnessClasses = new HashMap<>();
+        Map<String, ClassFileInfo> harness = new HashMap<>();
+        Map<String, ClassFileInfo> solution = new HashMap<>();
+        for (Map.Entry<String, byte[]> entry : classes.entrySet()) {
+            ClassFileInfo info = ClassFileInfo.parse(entry.getValue());
+            if (info.getSourceFile() == null) {
+                return null;
+            }
+            if (HARNESS_FILE.equals(info.getSourceFile())) {
+                harness.put(entry.getKey(), info);
+                harnessClasses.put(entry.getKey(), entry.getValue());
+            } else {
+                solution.put(entry.getKey(), info);
+            }
+        }
+        if (harness.isEmpty()) {
+            return null;
+        }
+
+        Map<String, ClassShape> requiredClasses = new HashMap<>();
+        List<MemberRequirement> requiredMembers = new ArrayList<>();
+        Map<String, Map<String, String>> requiredConstants = new HashMap<>();
+        for (Map.Entry<String, ClassFileInfo> solutionClass : solution.entrySet()) {
+            Map<String, String> visible = visibleConstants(solutionClass.getValue());
+            if (!visible.isEmpty()) {
+                requiredConstants.put(solutionClass.getKey(), visible);
+            }
+        }
+        for (ClassFileInfo harnessClass : harness.values()) {
+            for (String referenced : harnessClass.getReferencedClasses()) {
+                ClassFileInfo solutionClass = solution.get(referenced);
+                if (solutionClass != null) {
+                    requiredClasses.put(referenced, new ClassShape(solutionClass));
+                }
+            }
+            for (ClassFileInfo.MemberRef ref : harnessClass.getMemberRefs()) {
+                ClassFileInfo owner = solution.get(ref.getOwner());
+                if (owner == null) {
+                    continue;
+                }
+                Integer access = ref.isField() ? owner.getFieldAccess(ref.getName(), ref.getDescriptor())
+                        : owner.getMethodAccess(ref.getName(), ref.getDescriptor());
+                if (access == null) {
+                    return null;
+                }
+                requiredMembers.add(new MemberRequirement(ref, access & LINK_FLAGS,
+                        ref.isField() ? null : owner.getOverloads(ref.getName()),
+                        owner.getMemberSignature(ref.getName(), ref.getDescriptor()),
+                        owner.getExceptions(ref.getName(), ref.getDescriptor())));
+            }
+        }
+        return new CompiledHarness(harnessClasses, requiredClasses, requiredMembers, requiredConstants);
+    }
+
+    // Constant fields another top-level class may read; private ones are out of the harness's reach
+    private static Map<String, String> visibleConstants(ClassFileInfo info) {
+        Map<String, String> visible = new HashMap<>();
+        info.getConstants().forEach((field, value) -> {
+            String[] nameAndType = field.split(":", 2);
+            Integer access = info.getFieldAccess(nameAndType[0], nameAndType[1]);
+            if (access != null && (access & ClassFileInfo.ACC_PRIVATE) == 0) {
+                visible.put(field, value);
+            }
+        });
+        return visible;
+    }
+
+    /**
+     * Harness class bytes and the solution-side classes and members they
+     * were compiled against.
+     */
+    public static class CompiledHarness {
+        private final Map<String, byte[]> classes;
+        private final Map<String, ClassShape> requiredClasses;
+        private final List<MemberRequirement> requiredMembers;
+        // Solution class to the constants the harness may have inlined from it
+        private final Map<String, Map<String, String>> requiredConstants;
+
+        CompiledHarness(Map<String, byte[]> classes, Map<String, ClassShape> requiredClasses,
+                List<MemberRequirement> requiredMembers, Map<String, Map<String, String>> requiredConstants) {
+            this.classes = Map.copyOf(classes);
+            this.requiredClasses = requiredClasses;
+            this.requiredMembers = requiredMembers;
+            this.requiredConstants = requiredConstants;
+        }
+
+        public Map<String, byte[]> getClasses() {
+            return classes;
+        }
+
+        /**
+         * The full program for separately compiled solution classes, or
+         * null if they do not provide what the harness was compiled
+         * against: same supertypes, same member descriptors, generic
+         * signatures, checked exceptions, static-ness and access, the same
+         * constant values, and no new overloads that a full compile might
+         * pick instead.
+         */
+        Map<String, byte[]> link(Map<String, byte[]> solutionClasses) throws IOException {
+            Map<String, ClassFileInfo> infos = new HashMap<>();
+            for (Map.Entry<String, ClassShape> required : requiredClasses.entrySet()) {
+                byte[] bytes = solutionClasses.get(required.getKey());
+                if (bytes == null) {
+                    return null;
+                }
+                ClassFileInfo info = ClassFileInfo.parse(bytes);
+                if (!required.getValue().matches(info)) {
+                    return null;
+                }
+                infos.put(required.getKey(), info);
+            }
+            for (MemberRequirement member : requiredMembers) {
+                if (!member.isMetBy(infos.get(member.ref.getOwner()))) {
+                    return null;
+                }
+            }
+            for (Map.Entry<String, Map<String, String>> constants : requiredConstants.entrySet()) {
+                ClassFileInfo info = infos.get(constants.getKey());
+                if (info == null) {
+                    byte[] bytes = solutionClasses.get(constants.getKey());
+                    if (bytes == null) {
+                        return null;
+                    }
+                    info = ClassFileInfo.parse(bytes);
+                }
+                if (!constants.getValue().equals(visibleConstants(info))) {
+                    return null;
+                }
+            }
+
+            Map<String, byte[]> program = new HashMap<>(classes);
+            for (Map.Entry<String, byte[]> entry : solutionClasses.entrySet()) {
+                if (program.put(entry.getKey(), entry.getValue()) != null) {
+                    // Solution.java declares a class of the same name as the harness
+                    return null;
+                }
+            }
+            return program;
+        }
+    }
+
+    private static class ClassShape {
+        private final String superName;
+        private final Set<String> interfaces;
+        private final String signature;
+
+        ClassShape(ClassFileInfo info) {
+            this.superName = info.getSuperName();
+            this.interfaces = new HashSet<>(info.getInterfaces());
+            this.signature = info.getSignature();
+        }
+
+        boolean matches(ClassFileInfo info) {
+            return Objects.equals(superName, info.getSuperName())
+                    && interfaces.equals(new HashSet<>(info.getInterfaces()))
+                    && Objects.equals(signature, info.getSignature());
+        }
+    }
+
+    private static class MemberRequirement {
+        private final ClassFileInfo.MemberRef ref;
+        private final int access;
+        private final List<String> overloads; // Null for fields
+        // Generic types and checked exceptions the harness was type-checked against
+        private final String signature;
+        private final List<String> exceptions;
+
+        MemberRequirement(ClassFileInfo.MemberRef ref, int access, List<String> overloads, String signature,
+                List<String> exceptions) {
+            this.ref = ref;
+            this.access = access;
+            this.overloads = overloads;
+            this.signature = signature;
+            this.exceptions = exceptions;
+        }
+
+        boolean isMetBy(ClassFileInfo owner) {
+            Integer actual = ref.isField() ? owner.getFieldAccess(ref.getName(), ref.getDescriptor())
+                    : owner.getMethodAccess(ref.getName(), ref.getDescriptor());
+            return actual != null && (actual & LINK_FLAGS) == access
+                    && (overloads == null || overloads.equals(owner.getOverloads(ref.getName())))
+                    && Objects.equals(signature, owner.getMemberSignature(ref.getName(), ref.getDescriptor()))
+                    && exceptions.equals(owner.getExceptions(ref.getName(), ref.getDescriptor()));
+        }
+    }
+}
@@ -0,0 +1,361 @@
+package com.syntaxarena.backend.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compiles Java submissions inside the backend JVM with javax.tools.
+ * Sources and class files are kept in memory, so compiling does not fork
+ * javac or touch the filesystem.
+ *
+ * Compiles run on a few threads of their own and are given up on after a
+ * timeout. javac cannot be stopped once it is running, so a compile that
+ * times out keeps its thread; once every thread is held that way the
+ * compiler reports itself unavailable and callers fall back to a javac
+ * process, which can be killed.
+ */
+@Service
+public class InMemoryJavaCompiler {
+
+    private static final List<String> OPTIONS = List.of("-proc:none", "-g", "-Xlint:none");
+
+    private static final int QUEUED = 0;
+    private static final int RUNNING = 1;
+    private static final int DONE = 2;
+    private static final int ABANDONED = 3;
+
+    @Value("${execution.compiler.timeout-ms:10000}")
+    private long timeoutMillis;
+
+    @Value("${execution.compiler.threads:2}")
+    private int threadCount;
+
+    // Null when the backend runs on a JRE without the compiler module
+    private final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+
+    // Standard file managers are expensive to open and not thread-safe, so they are reused one caller at a time
+    private final ConcurrentLinkedQueue<StandardJavaFileManager> fileManagers = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger threads = new AtomicInteger();
+    // Compiles that timed out and are still running
+    private final AtomicInteger stuck = new AtomicInteger();
+    private ExecutorService compiles;
+
+    @PostConstruct
+    public void start() {
+        compiles = Executors.newFixedThreadPool(Math.max(1, threadCount), r -> {
+            Thread thread = new Thread(r, "java-compiler-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        compiles.shutdownNow();
+    }
+
+    public boolean isAvailable() {
+        return compiler != null && stuck.get() < Math.max(1, threadCount);
+    }
+
+    /**
+     * Compiles the given sources, keyed by file name (e.g. "Solution.java").
+     */
+    public CompilationResult compile(Map<String, String> sources) throws IOException, InterruptedException {
+        return compile(sources, Map.of());
+    }
+
+    /**
+     * Compiles the given sources against already compiled classes, keyed by
+     * binary name, which the sources see as if they were on the class path.
+     * Only the classes compiled from the sources are returned. A compile that
+     * does not finish within the timeout fails with a diagnostic saying so.
+     */
+    public CompilationResult compile(Map<String, String> sources, Map<String, byte[]> classPath)
+            throws IOException, InterruptedException {
+        if (compiler == null) {
+            throw new IOException("No system Java compiler available");
+        }
+
+        // QUEUED, RUNNING, then DONE, or ABANDONED if it times out while running
+        AtomicInteger state = new AtomicInteger(QUEUED);
+        Future<CompilationResult> compile = compiles.submit(() -> {
+            state.set(RUNNING);
+            try {
+                return compileNow(sources, classPath);
+            } finally {
+                if (!state.compareAndSet(RUNNING, DONE)) {
+                    stuck.decrementAndGet();
+                }
+            }
+        });
+        try {
+            return compile.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            compile.cancel(true);
+            if (state.compareAndSet(RUNNING, ABANDONED)) {
+                stuck.incrementAndGet();
+            }
+            System.out.println("Java compile timed out after " + timeoutMillis + " ms");
+            return CompilationResult.failure("Compilation timed out after " + timeoutMillis + " ms");
+        } catch (InterruptedException e) {
+            compile.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private CompilationResult compileNow(Map<String, String> sources, Map<String, byte[]> classPath)
+            throws IOException {
+        List<JavaFileObject> units = new ArrayList<>();
+        for (Map.Entry<String, String> source : sources.entrySet()) {
+            units.add(new SourceFile(source.getKey(), source.getValue()));
+        }
+
+        StandardJavaFileManager standard = fileManagers.poll();
+        if (standard == null) {
+            standard = compiler.getStandardFileManager(null, Locale.ROOT, StandardCharsets.UTF_8);
+            // Submissions only see the JDK, the same as a bare `javac` call
+            standard.setLocation(StandardLocation.CLASS_PATH, Collections.emptyList());
+        }
+
+        try {
+            MemoryFileManager fileManager = new MemoryFileManager(standard, classPath);
+            DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+            boolean success = compiler.getTask(null, fileManager, diagnostics, OPTIONS, null, units).call();
+            if (!success) {
+                return CompilationResult.failure(formatDiagnostics(diagnostics.getDiagnostics()));
+            }
+            return CompilationResult.success(fileManager.getClasses());
+        } finally {
+            fileManagers.offer(standard);
+        }
+    }
+
+    // Mirrors javac's command-line output: "File.java:3: error: message", the source line and a caret
+    private String formatDiagnostics(List<Diagnostic<? extends JavaFileObject>> diagnostics) {
+        StringBuilder sb = new StringBuilder();
+        int errors = 0;
+        for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics) {
+            if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+                errors++;
+            } else if (diagnostic.getKind() != Diagnostic.Kind.WARNING
+                    && diagnostic.getKind() != Diagnostic.Kind.MANDATORY_WARNING) {
+                continue;
+            }
+
+            String kind = diagnostic.getKind() == Diagnostic.Kind.ERROR ? "error" : "warning";
+            if (diagnostic.getSource() != null) {
+                sb.append(((SourceFile) diagnostic.getSource()).fileName)
+                        .append(':').append(diagnostic.getLineNumber()).append(": ");
+            }
+            sb.append(kind).append(": ").append(diagnostic.getMessage(Locale.ROOT)).append('\n');
+
+            String line = sourceLine(diagnostic);
+            if (line != null) {
+                sb.append(line).append('\n');
+                long column = diagnostic.getColumnNumber();
+                if (column > 0) {
+                    sb.append(" ".repeat((int) column - 1)).append("^\n");
+                }
+            }
+        }
+        sb.append(errors).append(errors == 1 ? " error" : " errors");
+        return sb.toString();
+    }
+
+    private String sourceLine(Diagnostic<? extends JavaFileObject> diagnostic) {
+        if (diagnostic.getSource() == null || diagnostic.getLineNumber() <= 0) {
+            return null;
+        }
+        String[] lines = ((SourceFile) diagnostic.getSource()).code.split("\n", -1);
+        int index = (int) diagnostic.getLineNumber() - 1;
+        return index < lines.length ? lines[index].replace("\r", "") : null;
+    }
+
+    private static class SourceFile extends SimpleJavaFileObject {
+        private final String fileName;
+        private final String code;
+
+        SourceFile(String fileName, String code) {
+            super(URI.create("string:///" + fileName), Kind.SOURCE);
+            this.fileName = fileName;
+            this.code = code;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return code;
+        }
+    }
+
+    private static class ClassFile extends SimpleJavaFileObject {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        ClassFile(String className) {
+            super(URI.create("bytes:///" + className.replace('.', '/') + ".class"), Kind.CLASS);
+        }
+
+        @Override
+        public OutputStream openOutputStream() {
+            return bytes;
+        }
+    }
+
+    private static class LinkedClass extends SimpleJavaFileObject {
+        private final String className;
+        private final byte[] bytes;
+
+        LinkedClass(String className, byte[] bytes) {
+            super(URI.create("linked:///" + className.replace('.', '/') + ".class"), Kind.CLASS);
+            this.className = className;
+            this.bytes = bytes;
+        }
+
+        @Override
+        public InputStream openInputStream() {
+            return new ByteArrayInputStream(bytes);
+        }
+    }
+
+    private static class MemoryFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+        private final Map<String, ClassFile> outputs = new ConcurrentHashMap<>();
+        private final Map<String, byte[]> classPath;
+
+        MemoryFileManager(StandardJavaFileManager standard, Map<String, byte[]> classPath) {
+            super(standard);
+            this.classPath = classPath;
+        }
+
+        @Override
+        public Iterable<JavaFileObject> list(Location location, String packageName, Set<JavaFileObject.Kind> kinds,
+                boolean recurse) throws IOException {
+            Iterable<JavaFileObject> listed = super.list(location, packageName, kinds, recurse);
+            if (location != StandardLocation.CLASS_PATH || classPath.isEmpty()
+                    || !kinds.contains(JavaFileObject.Kind.CLASS)) {
+                return listed;
+            }
+            List<JavaFileObject> files = new ArrayList<>();
+            listed.forEach(files::add);
+            for (Map.Entry<String, byte[]> linked : classPath.entrySet()) {
+                String name = linked.getKey();
+                String classPackage = name.lastIndexOf('.') >= 0 ? name.substring(0, name.lastIndexOf('.')) : "";
+                if (classPackage.equals(packageName)
+                        || recurse && (packageName.isEmpty() || classPackage.startsWith(packageName + "."))) {
+                    files.add(new LinkedClass(name, linked.getValue()));
+                }
+            }
+            return files;
+        }
+
+        @Override
+        public String inferBinaryName(Location location, JavaFileObject file) {
+            if (file instanceof LinkedClass) {
+                return ((LinkedClass) file).className;
+            }
+            return super.inferBinaryName(location, file);
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind,
+                FileObject sibling) {
+            ClassFile file = new ClassFile(className);
+            outputs.put(className, file);
+            return file;
+        }
+
+        Map<String, byte[]> getClasses() {
+            Map<String, byte[]> classes = new HashMap<>();
+            outputs.forEach((name, file) -> classes.put(name, file.bytes.toByteArray()));
+            return classes;
+        }
+
+        @Override
+        public void close() {
+            // The underlying standard file manager is pooled, not closed
+        }
+    }
+
+    /**
+     * Class bytes keyed by binary name, or javac-style diagnostics on failure.
+     */
+    public static class CompilationResult {
+        private final boolean success;
+        private final Map<String, byte[]> classes;
+        private final String diagnostics;
+
+        private CompilationResult(boolean success, Map<String, byte[]> classes, String diagnostics) {
+            this.success = success;
+            this.classes = classes;
+            this.diagnostics = diagnostics;
+        }
+
+        static CompilationResult success(Map<String, byte[]> classes) {
+            return new CompilationResult(true, classes, "");
+        }
+
+        static CompilationResult failure(String diagnostics) {
+            return new CompilationResult(false, Map.of(), diagnostics);
+        }
+
+        public boolean isSuccess() {
+            return success;
+        }
+
+        public Map<String, byte[]> getClasses() {
+            return classes;
+        }
+
+        public String getDiagnostics() {
+            return diagnostics;
+        }
+    }
+}
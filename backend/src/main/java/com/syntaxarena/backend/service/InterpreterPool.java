@@ -0,0 +1,345 @@
+package com.syntaxarena.backend.service;
+
+import com.syntaxarena.backend.runner.JavaLauncher;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps pre-started interpreter workers per language so that a Run does not
+ * pay interpreter startup. Java is served the same way by JavaLauncher
+ * workers, which keep a warm JVM and load each submission into a throwaway
+ * class loader. Workers are recycled after a fixed number of runs, as soon as
+ * one crashes or times out, or when a run reports a leak.
+ */
+@Service
+@ConditionalOnExpression(ExecutionService.LOCAL_ENGINE)
+public class InterpreterPool {
+
+    @Value("${execution.pool.enabled:true}")
+    private boolean enabled;
+
+    @Value("${execution.pool.max-runs-per-worker:50}")
+    private int maxRunsPerWorker;
+
+    @Value("${execution.output.max-bytes:65536}")
+    private int maxOutputBytes;
+
+    @Value("${execution.pool.python.min:1}")
+    private int pythonMin;
+
+    @Value("${execution.pool.python.max:4}")
+    private int pythonMax;
+
+    @Value("${execution.pool.node.min:1}")
+    private int nodeMin;
+
+    @Value("${execution.pool.node.max:4}")
+    private int nodeMax;
+
+    @Value("${execution.pool.java.min:1}")
+    private int javaMin;
+
+    @Value("${execution.pool.java.max:2}")
+    private int javaMax;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ResourceGovernor resourceGovernor;
+
+    @Autowired
+    private JavaLauncherClasspath launcherClasspath;
+
+    private final Map<String, LanguagePool> pools = new ConcurrentHashMap<>();
+
+    // Spawning happens off the request path
+    private final ExecutorService refiller = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "interpreter-pool-refill");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PostConstruct
+    public void start() {
+        String outputLimit = String.valueOf(maxOutputBytes);
+        register("python", InterpreterWorker.command(
+                List.of("python3", "-u", "-c", loadRunner("python_worker.py"), outputLimit)), pythonMin, pythonMax);
+        register("node", InterpreterWorker.command(List.of("node", "-e", loadRunner("node_worker.js"), outputLimit)),
+                nodeMin, nodeMax);
+        List<String> javaCommand = new ArrayList<>(launcherClasspath.command(JavaLauncher.class));
+        javaCommand.addAll(List.of("--worker", outputLimit));
+        register("java", InterpreterWorker.command(javaCommand), javaMin, javaMax);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refiller.shutdownNow();
+        pools.values().forEach(LanguagePool::closeAll);
+    }
+
+    /**
+     * Returns true if submissions for this language can be served by the pool.
+     */
+    public boolean supports(String language) {
+        LanguagePool pool = pools.get(language);
+        return enabled && pool != null && pool.available;
+    }
+
+    /**
+     * Runs a submission once per input on a single worker. This works even
+     * with pooling disabled, in which case the worker is a one-off process.
+     */
+    public List<InterpreterWorker.Result> executeBatch(String language, String code, List<String> inputs,
+            long caseTimeoutMillis, long batchTimeoutMillis, PhaseTimer timer) throws IOException {
+        return executeBatch(language, code.getBytes(StandardCharsets.UTF_8), inputs, caseTimeoutMillis,
+                batchTimeoutMillis, timer);
+    }
+
+    public List<InterpreterWorker.Result> executeBatch(String language, byte[] code, List<String> inputs,
+            long caseTimeoutMillis, long batchTimeoutMillis, PhaseTimer timer) throws IOException {
+        LanguagePool pool = pools.get(language);
+        if (pool == null) {
+            throw new IOException("No interpreter pool for " + language);
+        }
+        return BatchRunner.run(pool, code, inputs, caseTimeoutMillis, batchTimeoutMillis, timer);
+    }
+
+    /**
+     * Runs the cases on up to shards workers of the language's pool at once;
+     * see {@link BatchRunner#runParallel}.
+     */
+    public List<InterpreterWorker.Result> executeParallel(String language, byte[] code, List<String> inputs,
+            int shards, long caseTimeoutMillis, long batchTimeoutMillis, Executor executor,
+            BatchRunner.ResultListener listener) throws IOException, InterruptedException {
+        LanguagePool pool = pools.get(language);
+        if (pool == null) {
+            throw new IOException("No interpreter pool for " + language);
+        }
+        return BatchRunner.runParallel(pool, code, inputs, shards, caseTimeoutMillis, batchTimeoutMillis, executor,
+                listener);
+    }
+
+    /**
+     * How many workers the language's pool keeps at most; busier callers
+     * get one-off workers that are not reused, except parallel runs, which
+     * wait for a worker rather than go past this.
+     */
+    public int getMaxWorkers(String language) {
+        LanguagePool pool = pools.get(language);
+        return pool != null ? pool.max : 0;
+    }
+
+    /**
+     * Runs a submission on an idle worker, spawning one if none is idle.
+     */
+    public InterpreterWorker.Result execute(String language, String code, String stdin, long timeoutMillis,
+            PhaseTimer timer) throws IOException {
+        return execute(language, code.getBytes(StandardCharsets.UTF_8), stdin, timeoutMillis, timer);
+    }
+
+    /**
+     * Same as above with the code field already encoded; for java this is
+     * the JavaLauncher class payload.
+     */
+    public InterpreterWorker.Result execute(String language, byte[] code, String stdin, long timeoutMillis,
+            PhaseTimer timer) throws IOException {
+        LanguagePool pool = pools.get(language);
+        if (pool == null) {
+            throw new IOException("No interpreter pool for " + language);
+        }
+
+        timer.start(PhaseTimer.Phase.SPAWN);
+        InterpreterWorker worker = pool.acquire();
+        timer.stop();
+        long started = System.nanoTime();
+        try {
+            InterpreterWorker.Result result = worker.execute(code, stdin, timeoutMillis);
+            BatchRunner.recordRun(timer, worker, started, result);
+            timer.start(PhaseTimer.Phase.COLLECT);
+            if (result.isTimedOut()) {
+                pool.discard(worker, "timeout");
+            } else {
+                pool.release(worker);
+            }
+            return result;
+        } catch (IOException e) {
+            pool.discard(worker, "crash");
+            throw e;
+        }
+    }
+
+    private void register(String language, List<String> command, int min, int max) {
+        // With pooling disabled the language is still registered, but never keeps a worker around
+        LanguagePool pool = enabled
+                ? new LanguagePool(language, command, Math.max(0, min), Math.max(1, max))
+                : new LanguagePool(language, command, 0, 0);
+        pools.put(language, pool);
+        pool.refill();
+    }
+
+    private String loadRunner(String name) {
+        try (InputStream in = getClass().getResourceAsStream("/runners/" + name)) {
+            if (in == null) {
+                throw new IllegalStateException("Missing runner script: " + name);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not load runner script: " + name, e);
+        }
+    }
+
+    private class LanguagePool implements BatchRunner.WorkerSource {
+        private final String language;
+        private final List<String> command;
+        private final int min;
+        private final int max;
+        private final ConcurrentLinkedDeque<InterpreterWorker> idle = new ConcurrentLinkedDeque<>();
+        // Workers owned by the pool, idle or busy; anything else is a one-off overflow worker
+        private final Set<InterpreterWorker> owned = ConcurrentHashMap.newKeySet();
+        // Parallel runs between them hold at most max workers
+        private final Semaphore leases;
+        private final Set<InterpreterWorker> leased = ConcurrentHashMap.newKeySet();
+        private volatile boolean available = true;
+
+        private final Counter hits;
+        private final Counter coldSpawns;
+
+        LanguagePool(String language, List<String> command, int min, int max) {
+            this.language = language;
+            this.command = command;
+            this.min = Math.min(min, max);
+            this.max = max;
+            this.leases = new Semaphore(Math.max(1, max), true);
+            this.hits = Counter.builder("execution.pool.acquire")
+                    .tag("language", language).tag("result", "hit")
+                    .register(meterRegistry);
+            this.coldSpawns = Counter.builder("execution.pool.acquire")
+                    .tag("language", language).tag("result", "cold_spawn")
+                    .register(meterRegistry);
+            Gauge.builder("execution.pool.workers", idle, ConcurrentLinkedDeque::size)
+                    .tag("language", language).tag("state", "idle")
+                    .register(meterRegistry);
+            Gauge.builder("execution.pool.workers", owned, Set::size)
+                    .tag("language", language).tag("state", "total")
+                    .register(meterRegistry);
+        }
+
+        @Override
+        public InterpreterWorker acquire() throws IOException {
+            InterpreterWorker worker;
+            while ((worker = idle.pollFirst()) != null) {
+                if (!worker.isBroken()) {
+                    hits.increment();
+                    return worker;
+                }
+                discard(worker, "crash");
+            }
+
+            coldSpawns.increment();
+            worker = InterpreterWorker.spawn(language, resourceGovernor.openWorker(command));
+            if (owned.size() < max) {
+                owned.add(worker);
+            }
+            return worker;
+        }
+
+        @Override
+        public InterpreterWorker lease(long timeoutMillis) throws IOException, InterruptedException {
+            if (!leases.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                return null;
+            }
+            InterpreterWorker worker;
+            try {
+                worker = acquire();
+            } catch (IOException | RuntimeException e) {
+                leases.release();
+                throw e;
+            }
+            leased.add(worker);
+            return worker;
+        }
+
+        @Override
+        public void release(InterpreterWorker worker) {
+            returnLease(worker);
+            if (!owned.contains(worker)) {
+                worker.close();
+            } else if (worker.isBroken()) {
+                discard(worker, "crash");
+            } else if (worker.getLeak() != null) {
+                System.out.println("Retiring " + language + " worker: run leaked " + worker.getLeak());
+                discard(worker, "leak");
+            } else if (worker.getRuns() >= maxRunsPerWorker) {
+                discard(worker, "max_runs");
+            } else {
+                idle.offerFirst(worker);
+            }
+        }
+
+        @Override
+        public void discard(InterpreterWorker worker, String reason) {
+            returnLease(worker);
+            worker.close();
+            if (owned.remove(worker)) {
+                meterRegistry.counter("execution.pool.recycled", "language", language, "reason", reason)
+                        .increment();
+                refill();
+            }
+        }
+
+        private void returnLease(InterpreterWorker worker) {
+            if (leased.remove(worker)) {
+                leases.release();
+            }
+        }
+
+        void refill() {
+            refiller.execute(() -> {
+                while (owned.size() < min) {
+                    try {
+                        InterpreterWorker worker = InterpreterWorker.spawn(language,
+                                resourceGovernor.openWorker(command));
+                        owned.add(worker);
+                        idle.offerLast(worker);
+                        available = true;
+                    } catch (IOException e) {
+                        // Interpreter missing on this host; ExecutionService falls back to cold runs
+                        System.out.println("Could not start " + language + " worker: " + e.getMessage());
+                        available = false;
+                        return;
+                    }
+                }
+            });
+        }
+
+        void closeAll() {
+            InterpreterWorker worker;
+            while ((worker = idle.pollFirst()) != null) {
+                worker.close();
+            }
+        }
+    }
+}
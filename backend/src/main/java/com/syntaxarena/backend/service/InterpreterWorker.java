@@ -0,0 +1,410 @@
+package com.syntaxarena.backend.service;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A long-lived interpreter process that runs one submission at a time over a
+ * framed protocol (see resources/runners/*_worker.*): requests go to its
+ * stdin, replies come back on its fd 3. Every request carries a fresh nonce
+ * that the reply must echo, so a reply forged by user code cannot be taken
+ * for the next run's. Instances are not thread-safe; InterpreterPool hands
+ * each one to a single caller at a time.
+ */
+public class InterpreterWorker implements Closeable {
+
+    // Replies larger than this are treated as a broken protocol
+    private static final int MAX_FRAME_BYTES = 16 * 1024 * 1024;
+    private static final int MAX_HEADER_BYTES = 128;
+    // Room for the per-iteration samples of a bench mode JavaLauncher
+    private static final int MAX_TRAILER_BYTES = 16 * 1024;
+
+    private static final SecureRandom NONCES = new SecureRandom();
+
+    // How often a run's CPU time is checked against the sandbox limit
+    private static final long CPU_CHECK_MILLIS = 100;
+
+    private static final ScheduledExecutorService WATCHDOG = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "interpreter-watchdog");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final String language;
+    private final ResourceGovernor.Sandbox sandbox;
+    private final Process process;
+    private final OutputStream requests;
+    private final InputStream replies;
+    private int runs;
+    private volatile boolean broken;
+    private String leak;
+
+    private InterpreterWorker(String language, ResourceGovernor.Sandbox sandbox, Process process) {
+        this.language = language;
+        this.sandbox = sandbox;
+        this.process = process;
+        this.requests = process.getOutputStream();
+        this.replies = new BufferedInputStream(process.getInputStream());
+    }
+
+    /**
+     * Wraps a worker command line so the worker finds the reply pipe on fd 3
+     * and its fd 1 points at /dev/null. User code writing to its stdout
+     * directly (rather than through the captured streams) then goes nowhere.
+     */
+    public static List<String> command(List<String> worker) {
+        List<String> command = new ArrayList<>(
+                List.of("sh", "-c", "exec 3>&1 1>/dev/null && exec \"$@\"", "worker"));
+        command.addAll(worker);
+        return command;
+    }
+
+    public static InterpreterWorker spawn(String language, ResourceGovernor.Sandbox sandbox) throws IOException {
+        ProcessBuilder pb = new ProcessBuilder();
+        // The worker's own diagnostics are not part of any submission's output
+        pb.redirectError(ProcessBuilder.Redirect.DISCARD);
+        return new InterpreterWorker(language, sandbox, sandbox.start(pb));
+    }
+
+    /**
+     * Runs one submission. A timeout or protocol failure kills the worker and
+     * marks it broken; the caller must then discard it.
+     */
+    public Result execute(String code, String stdin, long timeoutMillis) throws IOException {
+        return execute(code.getBytes(StandardCharsets.UTF_8), stdin, timeoutMillis);
+    }
+
+    /**
+     * Same as above for workers whose code field is not source text, such as
+     * the class payload a JavaLauncher worker reads.
+     */
+    public Result execute(byte[] codeBytes, String stdin, long timeoutMillis) throws IOException {
+        if (broken || !process.isAlive()) {
+            broken = true;
+            throw new IOException(language + " worker is not alive");
+        }
+        runs++;
+
+        byte[] stdinBytes = (stdin != null ? stdin : "").getBytes(StandardCharsets.UTF_8);
+        String nonce = Long.toHexString(NONCES.nextLong());
+
+        long started = System.nanoTime();
+        AtomicBoolean timedOut = new AtomicBoolean();
+        ScheduledFuture<?> watchdog = WATCHDOG.schedule(() -> {
+            timedOut.set(true);
+            broken = true;
+            process.destroyForcibly();
+        }, timeoutMillis, TimeUnit.MILLISECONDS);
+
+        // The worker outlives its runs, so RLIMIT_CPU cannot bound one of them; this does
+        long cpuLimit = sandbox.runCpuLimitNanos();
+        long cpuStart = cpuLimit > 0 ? sandbox.cpuNanos() : -1;
+        AtomicBoolean cpuExceeded = new AtomicBoolean();
+        ScheduledFuture<?> cpuWatch = cpuStart < 0 ? null : WATCHDOG.scheduleAtFixedRate(() -> {
+            if (sandbox.cpuNanos() - cpuStart > cpuLimit && !timedOut.get()) {
+                cpuExceeded.set(true);
+                broken = true;
+                process.destroyForcibly();
+            }
+        }, CPU_CHECK_MILLIS, CPU_CHECK_MILLIS, TimeUnit.MILLISECONDS);
+
+        try {
+            requests.write((codeBytes.length + " " + stdinBytes.length + " " + nonce + "\n")
+                    .getBytes(StandardCharsets.US_ASCII));
+            requests.write(codeBytes);
+            requests.write(stdinBytes);
+            requests.flush();
+            long sent = System.nanoTime();
+            long roundTripNanos = awaitReply() - sent;
+
+            String output = new String(readBlob(), StandardCharsets.UTF_8);
+            String error = new String(readBlob(), StandardCharsets.UTF_8);
+            String[] fields = readLine(MAX_TRAILER_BYTES).split(" ");
+            if (!fields[0].equals(nonce)) {
+                throw new IOException(language + " worker reply does not match its request");
+            }
+            String[] trailer = Arrays.copyOfRange(fields, 1, fields.length);
+            int status = "x".equals(trailer[0]) ? exitStatus() : Integer.parseInt(trailer[0]);
+            long elapsedNanos = Long.parseLong(trailer[1]);
+            boolean truncated = trailer.length > 2 && "1".equals(trailer[2]);
+            long cpuNanos = trailer.length > 3 ? Long.parseLong(trailer[3]) : -1;
+            long peakRssBytes = trailer.length > 4 ? Long.parseLong(trailer[4]) : -1;
+            String runLeak = trailer.length > 5 && !"-".equals(trailer[5]) ? trailer[5] : null;
+            if (replies.available() > 0) {
+                // Something besides the worker loop wrote to the reply pipe
+                runLeak = "reply";
+            }
+            if (runLeak != null) {
+                leak = runLeak;
+            }
+            List<Sample> samples = trailer.length > 6 ? parseSamples(trailer[6]) : List.of();
+            return new Result(output, error, status, elapsedNanos, false, truncated, cpuNanos, peakRssBytes,
+                    samples, null, roundTripNanos, runLeak);
+        } catch (IOException | RuntimeException e) {
+            broken = true;
+            process.destroyForcibly();
+            if (timedOut.get()) {
+                return new Result("", "", -1, TimeUnit.MILLISECONDS.toNanos(timeoutMillis), true, false);
+            }
+            if (cpuExceeded.get()) {
+                return new Result("", "", ResourceGovernor.EXIT_CPU_LIMIT, System.nanoTime() - started, false,
+                        false, cpuLimit, -1, List.of(), "CPU time");
+            }
+            if (sandbox.isPidsExceeded()) {
+                return new Result("", "", ResourceGovernor.EXIT_PIDS_LIMIT, System.nanoTime() - started, false,
+                        false, -1, -1, List.of(), "Process count");
+            }
+            throw e instanceof IOException ? (IOException) e
+                    : new IOException(language + " worker protocol error: " + e.getMessage(), e);
+        } finally {
+            watchdog.cancel(false);
+            if (cpuWatch != null) {
+                cpuWatch.cancel(false);
+            }
+        }
+    }
+
+    // Blocks until the first byte of the reply arrives and returns when that was
+    private long awaitReply() throws IOException {
+        replies.mark(1);
+        if (replies.read() < 0) {
+            throw new EOFException(language + " worker exited");
+        }
+        replies.reset();
+        return System.nanoTime();
+    }
+
+    // The run called System.exit; the worker answered from its exit hook and is going away
+    private int exitStatus() throws IOException {
+        broken = true;
+        try {
+            if (process.waitFor(1, TimeUnit.SECONDS)) {
+                return process.exitValue();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        throw new IOException(language + " worker did not exit");
+    }
+
+    private byte[] readBlob() throws IOException {
+        int length = Integer.parseInt(readLine(MAX_HEADER_BYTES));
+        if (length < 0 || length > MAX_FRAME_BYTES) {
+            throw new IOException("Invalid frame length: " + length);
+        }
+        byte[] data = replies.readNBytes(length);
+        if (data.length != length) {
+            throw new EOFException(language + " worker closed mid-frame");
+        }
+        return data;
+    }
+
+    // "nanos/allocatedBytes" pairs, comma separated
+    private static List<Sample> parseSamples(String field) {
+        List<Sample> samples = new ArrayList<>();
+        for (String pair : field.split(",")) {
+            int slash = pair.indexOf('/');
+            samples.add(new Sample(Long.parseLong(pair.substring(0, slash)),
+                    Long.parseLong(pair.substring(slash + 1))));
+        }
+        return samples;
+    }
+
+    private String readLine(int maxBytes) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(32);
+        int b;
+        while ((b = replies.read()) != '\n') {
+            if (b < 0) {
+                throw new EOFException(language + " worker exited");
+            }
+            if (line.size() > maxBytes) {
+                throw new IOException("Invalid frame header from " + language + " worker");
+            }
+            line.write(b);
+        }
+        return line.toString(StandardCharsets.US_ASCII).trim();
+    }
+
+    public String getLanguage() {
+        return language;
+    }
+
+    public int getRuns() {
+        return runs;
+    }
+
+    /**
+     * What the last run left behind that makes this worker unsafe to reuse
+     * ("threads", "modules", "globals", "reply", ...), or null.
+     */
+    public String getLeak() {
+        return leak;
+    }
+
+    public boolean isBroken() {
+        return broken || !process.isAlive();
+    }
+
+    @Override
+    public void close() {
+        broken = true;
+        try {
+            requests.close();
+        } catch (IOException ignored) {
+            // Process is being torn down anyway
+        }
+        process.destroyForcibly();
+        sandbox.close();
+    }
+
+    /**
+     * Outcome of a single submission run inside a worker.
+     */
+    public static class Result {
+        private final String output;
+        private final String error;
+        private final int status;
+        private final long elapsedNanos;
+        private final boolean timedOut;
+        private final boolean truncated;
+        private final long cpuNanos;
+        private final long peakRssBytes;
+        private final List<Sample> samples;
+        private final String limitExceeded;
+        private final long roundTripNanos;
+        private final String leak;
+
+        public Result(String output, String error, int status, long elapsedNanos, boolean timedOut,
+                boolean truncated) {
+            this(output, error, status, elapsedNanos, timedOut, truncated, -1, -1);
+        }
+
+        public Result(String output, String error, int status, long elapsedNanos, boolean timedOut,
+                boolean truncated, long cpuNanos, long peakRssBytes) {
+            this(output, error, status, elapsedNanos, timedOut, truncated, cpuNanos, peakRssBytes, List.of());
+        }
+
+        public Result(String output, String error, int status, long elapsedNanos, boolean timedOut,
+                boolean truncated, long cpuNanos, long peakRssBytes, List<Sample> samples) {
+            this(output, error, status, elapsedNanos, timedOut, truncated, cpuNanos, peakRssBytes, samples, null);
+        }
+
+        public Result(String output, String error, int status, long elapsedNanos, boolean timedOut,
+                boolean truncated, long cpuNanos, long peakRssBytes, List<Sample> samples, String limitExceeded) {
+            this(output, error, status, elapsedNanos, timedOut, truncated, cpuNanos, peakRssBytes, samples,
+                    limitExceeded, -1, null);
+        }
+
+        public Result(String output, String error, int status, long elapsedNanos, boolean timedOut,
+                boolean truncated, long cpuNanos, long peakRssBytes, List<Sample> samples, String limitExceeded,
+                long roundTripNanos, String leak) {
+            this.output = output;
+            this.error = error;
+            this.status = status;
+            this.elapsedNanos = elapsedNanos;
+            this.timedOut = timedOut;
+            this.truncated = truncated;
+            this.cpuNanos = cpuNanos;
+            this.peakRssBytes = peakRssBytes;
+            this.samples = samples;
+            this.limitExceeded = limitExceeded;
+            this.roundTripNanos = roundTripNanos;
+            this.leak = leak;
+        }
+
+        public String getOutput() {
+            return output;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        // As reported by the worker, so code running in it can skew it
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * Time from the request being sent to the first byte of its reply,
+         * measured on this side of the pipe; -1 when the run did not reply.
+         */
+        public long getRoundTripNanos() {
+            return roundTripNanos;
+        }
+
+        public boolean isTimedOut() {
+            return timedOut;
+        }
+
+        public boolean isTruncated() {
+            return truncated;
+        }
+
+        // -1 when the worker did not report it
+        public long getCpuNanos() {
+            return cpuNanos;
+        }
+
+        // Peak resident set of the worker process during the run, -1 when not reported
+        public long getPeakRssBytes() {
+            return peakRssBytes;
+        }
+
+        // Measured iterations of a bench mode run; empty otherwise
+        public List<Sample> getSamples() {
+            return samples;
+        }
+
+        // The sandbox limit the run was killed for ("CPU time"), or null
+        public String getLimitExceeded() {
+            return limitExceeded;
+        }
+
+        // What this run left behind in the worker ("modules", "reply", ...), or null
+        public String getLeak() {
+            return leak;
+        }
+    }
+
+    /**
+     * One measured benchmark iteration.
+     */
+    public static class Sample {
+        private final long nanos;
+        private final long allocatedBytes;
+
+        public Sample(long nanos, long allocatedBytes) {
+            this.nanos = nanos;
+            this.allocatedBytes = allocatedBytes;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        // -1 when not measured
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+    }
+}
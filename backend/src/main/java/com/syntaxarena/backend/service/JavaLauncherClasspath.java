@@ -0,0 +1,68 @@
+package com.syntaxarena.backend.service;
+
+import com.syntaxarena.backend.runner.JavaLauncher;
+import com.syntaxarena.backend.runner.MemoryClassLoader;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Extracts the runner classes once at startup into a directory that child
+ * JVMs can use as their classpath. The backend itself may be packaged as a
+ * fat jar whose nested classes a plain `java -cp` cannot see.
+ */
+@Component
+public class JavaLauncherClasspath {
+
+    private static final List<Class<?>> RUNNER_CLASSES = List.of(JavaLauncher.class, MemoryClassLoader.class);
+
+    @Autowired
+    private ResourceGovernor resourceGovernor;
+
+    private Path directory;
+
+    @PostConstruct
+    public void install() throws IOException {
+        directory = Files.createTempDirectory("syntaxarena_runner");
+        List<Class<?>> classes = new ArrayList<>();
+        for (Class<?> runnerClass : RUNNER_CLASSES) {
+            classes.add(runnerClass);
+            // Nested helpers live in their own .class files
+            classes.addAll(Arrays.asList(runnerClass.getDeclaredClasses()));
+        }
+        for (Class<?> runnerClass : classes) {
+            String resource = runnerClass.getName().replace('.', '/') + ".class";
+            Path target = directory.resolve(resource);
+            Files.createDirectories(target.getParent());
+            try (InputStream in = runnerClass.getClassLoader().getResourceAsStream(resource)) {
+                if (in == null) {
+                    throw new IOException("Runner class not found: " + resource);
+                }
+                Files.copy(in, target);
+            }
+        }
+    }
+
+    public String getPath() {
+        return directory.toAbsolutePath().toString();
+    }
+
+    /**
+     * Command prefix that starts a launcher JVM with the given entry point.
+     */
+    public List<String> command(Class<?> mainClass) {
+        List<String> command = new ArrayList<>();
+        command.add("java");
+        command.addAll(resourceGovernor.jvmOptions());
+        command.addAll(List.of("-cp", getPath(), mainClass.getName()));
+        return command;
+    }
+}
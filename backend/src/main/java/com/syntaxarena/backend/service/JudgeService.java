@@ -0,0 +1,200 @@
+package com.syntaxarena.backend.service;
+
+import com.syntaxarena.backend.model.BenchmarkResult;
+import com.syntaxarena.backend.model.ExecutionRequest;
+import com.syntaxarena.backend.model.ExecutionResponse;
+import com.syntaxarena.backend.model.TestValidationRequest;
+import com.syntaxarena.backend.model.TestValidationResponse;
+import com.syntaxarena.backend.model.TestValidationResponse.TestResult;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Judges a solution by running it against the problem's test cases and
+ * comparing real outputs, so the same code always gets the same verdict.
+ * Requests without test cases use the problem's generated suite from the
+ * {@link TestSuiteStore}. Only when there is no suite either, or the language
+ * cannot be run here, is the solution handed to the LLM validator instead.
+ */
+@Service
+public class JudgeService {
+
+    @Autowired
+    private ExecutionService executionService;
+
+    @Autowired
+    private ExecutionScheduler executionScheduler;
+
+    @Autowired
+    private TestValidationService testValidationService;
+
+    @Autowired
+    private TestSuiteStore testSuiteStore;
+
+    /**
+     * Runs in the caller's execution queue like any other run. No thread
+     * waits on the run, the suite or the LLM validator. Completes
+     * exceptionally with an {@link ExecutionRejectedException} if the
+     * execution backlog is full.
+     */
+    public CompletableFuture<TestValidationResponse> judge(TestValidationRequest request, String callerId) {
+        return resolveTestCases(request).thenCompose(testCases -> {
+            if (testCases == null) {
+                return testValidationService.validateSolutionAsync(request);
+            }
+            ExecutionRequest run = toRun(request, testCases);
+            return executionScheduler.submit(callerId, () -> executionService.executeCode(run))
+                    .handle((response, error) -> error == null ? toVerdict(request, testCases, response)
+                            : CompletableFuture.completedFuture(failedAll(testCases,
+                                    "Could not run your solution: " + LlmGateway.unwrap(error).getMessage())))
+                    .thenCompose(verdict -> verdict);
+        });
+    }
+
+    /**
+     * Arena verdict: only whether every case passes matters, so the cases run
+     * side by side and the first failure cancels the rest (see
+     * {@link ExecutionService#executeUntilFailure}). Each case result goes to
+     * the listener as it finishes. Nothing here blocks the calling thread,
+     * not even a problem's first submission, which waits for its suite to be
+     * generated. Completes exceptionally with an
+     * {@link ExecutionRejectedException} if the execution backlog is full.
+     */
+    public CompletableFuture<TestValidationResponse> judgeUntilFailure(TestValidationRequest request,
+            String callerId, ExecutionService.TestCaseListener listener) {
+        return resolveTestCases(request).thenCompose(testCases -> {
+            if (testCases == null) {
+                return testValidationService.validateSolutionAsync(request);
+            }
+            ExecutionRequest run = toRun(request, testCases);
+            return executionScheduler.submit(callerId, () -> executionService.executeUntilFailure(run, listener))
+                    .handle((response, error) -> error == null ? toVerdict(request, testCases, response)
+                            : CompletableFuture.completedFuture(failedAll(testCases,
+                                    "Could not run your solution: " + LlmGateway.unwrap(error).getMessage())))
+                    .thenCompose(verdict -> verdict);
+        });
+    }
+
+    /**
+     * Times a judged solution for an optimize battle. Every solution to the
+     * problem is measured on the same input, the largest case of its test
+     * suite, and through the same harness as its verdict. Completes with
+     * null if the problem has no suite, and exceptionally if the solution
+     * could not be timed or the execution backlog is full.
+     */
+    public CompletableFuture<BenchmarkResult> benchmark(TestValidationRequest request, String callerId) {
+        return resolveTestCases(request).thenCompose(testCases -> {
+            if (testCases == null) {
+                return CompletableFuture.completedFuture(null);
+            }
+
+            ExecutionRequest.Benchmark benchmark = new ExecutionRequest.Benchmark();
+            benchmark.setInput(testCases.stream()
+                    .map(ExecutionRequest.TestCase::getInput)
+                    .filter(input -> input != null)
+                    .max(Comparator.comparingInt(String::length))
+                    .orElse(""));
+            ExecutionRequest run = new ExecutionRequest();
+            run.setLanguage(request.getLanguage());
+            run.setCode(request.getCode());
+            run.setTestHarness(request.getTestHarness());
+            run.setBenchmark(benchmark);
+            return executionScheduler.submit(callerId, () -> executionService.executeCode(run))
+                    .thenApply(ExecutionResponse::getBenchmark);
+        });
+    }
+
+    // The request's own cases, else the problem's generated suite; null if there are neither
+    private CompletableFuture<List<ExecutionRequest.TestCase>> resolveTestCases(TestValidationRequest request) {
+        List<ExecutionRequest.TestCase> testCases = request.getTestCases();
+        if (testCases != null && !testCases.isEmpty()) {
+            return CompletableFuture.completedFuture(testCases);
+        }
+        return testSuiteStore.getOrGenerate(request.getProblemTitle(), request.getProblemDescription(),
+                request.getExpectedBehavior());
+    }
+
+    private static ExecutionRequest toRun(TestValidationRequest request, List<ExecutionRequest.TestCase> testCases) {
+        ExecutionRequest run = new ExecutionRequest();
+        run.setLanguage(request.getLanguage());
+        run.setCode(request.getCode());
+        run.setTestHarness(request.getTestHarness());
+        run.setTestCases(testCases);
+        run.setChecker(request.getChecker());
+        return run;
+    }
+
+    // Languages this engine cannot run go to the LLM validator, without waiting on it here
+    private CompletableFuture<TestValidationResponse> toVerdict(TestValidationRequest request,
+            List<ExecutionRequest.TestCase> testCases, ExecutionResponse response) {
+        if (response.getTestResults() == null) {
+            String error = response.getError() != null ? response.getError() : "";
+            if (error.startsWith("Unsupported language")) {
+                return testValidationService.validateSolutionAsync(request);
+            }
+            return CompletableFuture.completedFuture(failedAll(testCases, error.startsWith("Compilation Error")
+                    ? error : "Could not run your solution: " + error));
+        }
+        return CompletableFuture.completedFuture(toValidationResponse(testCases, response));
+    }
+
+    private static TestValidationResponse toValidationResponse(List<ExecutionRequest.TestCase> testCases,
+            ExecutionResponse response) {
+        List<TestResult> results = new ArrayList<>();
+        ExecutionResponse.TestCaseResult firstFailure = null;
+        for (ExecutionResponse.TestCaseResult caseResult : response.getTestResults()) {
+            ExecutionRequest.TestCase testCase = testCases.get(caseResult.getTestNumber() - 1);
+            results.add(new TestResult(caseResult.getTestNumber(), nullToEmpty(testCase.getInput()),
+                    nullToEmpty(testCase.getExpectedOutput()), caseResult.getActualOutput(), caseResult.isPassed()));
+            // Skipped cases were cut short by another case's failure, which is the one to report
+            if (!caseResult.isPassed() && !caseResult.isSkipped() && firstFailure == null) {
+                firstFailure = caseResult;
+            }
+        }
+
+        int total = testCases.size();
+        int passed = response.getPassedCount();
+        String feedback;
+        if (passed == total) {
+            feedback = "All " + total + " test cases passed.";
+        } else if (firstFailure == null) {
+            feedback = "Passed " + passed + " of " + total + " test cases.";
+        } else {
+            feedback = "Passed " + passed + " of " + total + " test cases. Test " + firstFailure.getTestNumber()
+                    + " failed: " + describeFailure(firstFailure);
+        }
+        return new TestValidationResponse(passed == total, passed, total, results, feedback);
+    }
+
+    private static String describeFailure(ExecutionResponse.TestCaseResult result) {
+        if (result.isTimedOut()) {
+            return "time limit exceeded.";
+        }
+        if (result.getMismatch() != null) {
+            return "wrong answer at " + result.getMismatch() + ".";
+        }
+        if (result.getError() != null && !result.getError().isEmpty()) {
+            // First line is enough to point at the problem, e.g. the exception
+            return result.getError().lines().findFirst().orElse("");
+        }
+        return "wrong answer.";
+    }
+
+    private static TestValidationResponse failedAll(List<ExecutionRequest.TestCase> testCases, String feedback) {
+        List<TestResult> results = new ArrayList<>();
+        for (int i = 0; i < testCases.size(); i++) {
+            results.add(new TestResult(i + 1, nullToEmpty(testCases.get(i).getInput()),
+                    nullToEmpty(testCases.get(i).getExpectedOutput()), "", false));
+        }
+        return new TestValidationResponse(false, 0, testCases.size(), results, feedback);
+    }
+
+    private static String nullToEmpty(String text) {
+        return text != null ? text : "";
+    }
+}
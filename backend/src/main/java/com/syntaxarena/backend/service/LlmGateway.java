@@ -0,0 +1,456 @@
+package com.syntaxarena.backend.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The one way out to the LLM providers. Each upstream host gets a single
+ * HTTP/2 client, so every service shares its connections; connections to
+ * the configured hosts are opened at startup so the first user request does
+ * not pay for the TLS handshake. Every call is timed as llm.requests, tagged
+ * with host, operation and outcome.
+ */
+@Service
+public class LlmGateway {
+
+    private static final String NVIDIA_CHAT_URL = "https://integrate.api.nvidia.com/v1/chat/completions";
+    private static final String DEFAULT_MODEL = "nvidia/nemotron-3-nano-30b-a3b";
+
+    @Value("${NVIDIA_API_KEY}")
+    private String nvidiaApiKey;
+
+    @Value("${llm.gateway.connect-timeout-ms:10000}")
+    private long connectTimeoutMillis;
+
+    // Long generations with thinking enabled can take minutes
+    @Value("${llm.gateway.request-timeout-ms:180000}")
+    private long requestTimeoutMillis;
+
+    // Comma-separated base URLs to connect to at startup; empty to skip
+    @Value("${llm.gateway.prewarm-hosts:https://integrate.api.nvidia.com,https://generativelanguage.googleapis.com}")
+    private String prewarmHosts;
+
+    // Share one upstream call between identical concurrent completions
+    @Value("${llm.gateway.coalesce:true}")
+    private boolean coalesce;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Keyed by scheme://host[:port]
+    private final Map<String, HttpClient> clients = new ConcurrentHashMap<>();
+
+    // Completions on their way, keyed by request payload
+    private final Map<String, CompletableFuture<Completion>> inFlight = new ConcurrentHashMap<>();
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @PostConstruct
+    public void prewarm() {
+        for (String host : prewarmHosts.split(",")) {
+            if (host.isBlank()) {
+                continue;
+            }
+            URI uri = URI.create(host.trim());
+            // Any answer will do, the point is the open connection it leaves behind
+            HttpRequest request = HttpRequest.newBuilder(uri)
+                    .timeout(Duration.ofMillis(connectTimeoutMillis))
+                    .method("HEAD", HttpRequest.BodyPublishers.noBody())
+                    .build();
+            client(uri).sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> {
+                        if (error != null) {
+                            System.out.println("Could not prewarm connection to " + uri + ": " + error.getMessage());
+                        }
+                    });
+        }
+    }
+
+    /**
+     * Sends a chat completion to the NVIDIA (OpenAI-compatible) API. No
+     * thread waits while the model works; the future completes on the HTTP
+     * client's own threads.
+     * <p>
+     * A request identical to one already on its way (same payload, byte for
+     * byte) does not go out again: it waits for that call and gets the same
+     * completion. Such requests are counted as llm.requests.coalesced.
+     */
+    public CompletableFuture<Completion> completeAsync(ChatRequest request) {
+        String body;
+        try {
+            body = payload(request, false);
+        } catch (JsonProcessingException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        if (!coalesce) {
+            return sendCompletion(request.getOperation(), body);
+        }
+
+        CompletableFuture<Completion> shared = new CompletableFuture<>();
+        CompletableFuture<Completion> existing = inFlight.putIfAbsent(body, shared);
+        if (existing != null) {
+            meterRegistry.counter("llm.requests.coalesced", "operation", request.getOperation()).increment();
+            // A copy, so no caller can complete or cancel the others' result
+            return existing.copy();
+        }
+
+        CompletableFuture<Completion> sent;
+        try {
+            sent = sendCompletion(request.getOperation(), body);
+        } catch (RuntimeException e) {
+            // Failed before it went out (a rejected executor, say); nobody may wait on the entry
+            inFlight.remove(body, shared);
+            shared.completeExceptionally(e);
+            return shared.copy();
+        }
+        sent.whenComplete((completion, error) -> {
+            // Out of the map first, so later requests send afresh rather than join a finished call
+            inFlight.remove(body, shared);
+            if (error != null) {
+                shared.completeExceptionally(error);
+            } else {
+                shared.complete(completion);
+            }
+        });
+        return shared.copy();
+    }
+
+    private CompletableFuture<Completion> sendCompletion(String operation, String body) {
+        return postJsonAsync(operation, NVIDIA_CHAT_URL, body, Map.of("Authorization", "Bearer " + nvidiaApiKey))
+                .thenApply(response -> new Completion(response.statusCode(), response.body(),
+                        response.statusCode() == 200 ? extractContent(response.body()) : null));
+    }
+
+    /**
+     * Streams a chat completion: each piece of the reply goes to the
+     * listener as the API sends it, and nothing of a successful reply is
+     * kept. The returned completion has only the status code, plus the body
+     * when the API answered with an error. If the listener throws, the call
+     * is abandoned and the future fails with that exception.
+     */
+    public CompletableFuture<Completion> streamAsync(ChatRequest request, TokenListener listener) {
+        String body;
+        try {
+            body = payload(request, true);
+        } catch (JsonProcessingException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        CompletableFuture<Completion> result = new CompletableFuture<>();
+        TokenSubscriber tokens = new TokenSubscriber(request.getOperation(), listener, result);
+        HttpResponse.BodyHandler<String> handler = info -> info.statusCode() == 200
+                ? HttpResponse.BodySubscribers.fromLineSubscriber(tokens, subscriber -> null, StandardCharsets.UTF_8,
+                        null)
+                : HttpResponse.BodySubscribers.ofString(StandardCharsets.UTF_8);
+        send(request.getOperation(), NVIDIA_CHAT_URL, body,
+                Map.of("Authorization", "Bearer " + nvidiaApiKey, "Accept", "text/event-stream"), handler)
+                .whenComplete((response, error) -> {
+                    if (error != null) {
+                        result.completeExceptionally(error);
+                    } else {
+                        result.complete(new Completion(response.statusCode(), response.body(), null));
+                    }
+                });
+        return result;
+    }
+
+    /**
+     * Blocking {@link #completeAsync}, for callers that are already on a
+     * worker thread of their own.
+     */
+    public Completion complete(ChatRequest request) throws IOException, InterruptedException {
+        CompletableFuture<Completion> completion = completeAsync(request);
+        try {
+            return completion.get();
+        } catch (InterruptedException e) {
+            completion.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException io ? io : new IOException(cause);
+        }
+    }
+
+    /**
+     * Posts a JSON body through the pooled client for the URL's host. For
+     * providers without a typed call, such as Gemini.
+     */
+    public CompletableFuture<HttpResponse<String>> postJsonAsync(String operation, String url, String body,
+            Map<String, String> headers) {
+        return send(operation, url, body, headers, HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * The failure behind a future's CompletionException, for error messages.
+     */
+    public static Throwable unwrap(Throwable error) {
+        while ((error instanceof CompletionException || error instanceof ExecutionException)
+                && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+
+    private <T> CompletableFuture<HttpResponse<T>> send(String operation, String url, String body,
+            Map<String, String> headers, HttpResponse.BodyHandler<T> handler) {
+        URI uri = URI.create(url);
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri)
+                .timeout(Duration.ofMillis(requestTimeoutMillis))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body));
+        headers.forEach(builder::header);
+
+        long startNanos = System.nanoTime();
+        return client(uri).sendAsync(builder.build(), handler)
+                .whenComplete((response, error) -> Timer.builder("llm.requests")
+                        .tag("host", uri.getHost())
+                        .tag("operation", operation)
+                        .tag("outcome", error == null ? response.statusCode() / 100 + "xx" : "error")
+                        .register(meterRegistry)
+                        .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS));
+    }
+
+    private String payload(ChatRequest request, boolean stream) throws JsonProcessingException {
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("model", request.getModel());
+        if (request.getTemperature() != null) {
+            payload.put("temperature", request.getTemperature());
+        }
+        if (request.getTopP() != null) {
+            payload.put("top_p", request.getTopP());
+        }
+        if (request.getMaxTokens() != null) {
+            payload.put("max_tokens", request.getMaxTokens());
+        }
+        payload.put("stream", stream);
+        payload.put("messages", request.getMessages());
+        if (request.isThinking()) {
+            payload.put("chat_template_kwargs", Map.of("enable_thinking", true));
+        }
+        return objectMapper.writeValueAsString(payload);
+    }
+
+    private HttpClient client(URI uri) {
+        return clients.computeIfAbsent(uri.getScheme() + "://" + uri.getAuthority(), host -> HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMillis))
+                .build());
+    }
+
+    // choices[0].message.content, or null if the body does not have one
+    private String extractContent(String body) {
+        try {
+            JsonNode content = objectMapper.readTree(body).path("choices").path(0).path("message").path("content");
+            return content.isMissingNode() || content.isNull() ? null : content.asText();
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Receives a streamed reply piece by piece, on an HTTP client thread.
+     */
+    public interface TokenListener {
+        void onToken(String text);
+    }
+
+    /**
+     * Reads the API's server-sent events ("data: {chunk}" lines, ending with
+     * "data: [DONE]") and hands each chunk's text to the listener.
+     */
+    private class TokenSubscriber implements Flow.Subscriber<String> {
+        private final String operation;
+        private final TokenListener listener;
+        private final CompletableFuture<Completion> result;
+        private final long startNanos = System.nanoTime();
+        private Flow.Subscription subscription;
+        private boolean firstToken = true;
+
+        TokenSubscriber(String operation, TokenListener listener, CompletableFuture<Completion> result) {
+            this.operation = operation;
+            this.listener = listener;
+            this.result = result;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(String line) {
+            if (!line.startsWith("data:") || result.isDone()) {
+                return;
+            }
+            String data = line.substring(5).trim();
+            if (data.equals("[DONE]")) {
+                return;
+            }
+            String text;
+            try {
+                text = objectMapper.readTree(data).path("choices").path(0).path("delta").path("content").asText("");
+            } catch (JsonProcessingException e) {
+                return;
+            }
+            if (text.isEmpty()) {
+                return;
+            }
+
+            if (firstToken) {
+                firstToken = false;
+                Timer.builder("llm.first_token")
+                        .tag("operation", operation)
+                        .register(meterRegistry)
+                        .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+            }
+            try {
+                listener.onToken(text);
+            } catch (RuntimeException e) {
+                // Usually the client went away; no point in generating the rest
+                subscription.cancel();
+                result.completeExceptionally(e);
+            }
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            // Reported through the response future
+        }
+
+        @Override
+        public void onComplete() {
+        }
+    }
+
+    /**
+     * A chat completion request. Unset sampling options are left to the
+     * model's defaults.
+     */
+    public static class ChatRequest {
+        private final String operation; // Metrics tag, e.g. "question"
+        private final List<Map<String, String>> messages = new ArrayList<>();
+        private String model = DEFAULT_MODEL;
+        private Double temperature;
+        private Double topP;
+        private Integer maxTokens;
+        private boolean thinking;
+
+        public ChatRequest(String operation) {
+            this.operation = operation;
+        }
+
+        public void addMessage(String role, String content) {
+            Map<String, String> message = new HashMap<>();
+            message.put("role", role);
+            message.put("content", content);
+            messages.add(message);
+        }
+
+        public String getOperation() {
+            return operation;
+        }
+
+        public List<Map<String, String>> getMessages() {
+            return messages;
+        }
+
+        public String getModel() {
+            return model;
+        }
+
+        public void setModel(String model) {
+            this.model = model;
+        }
+
+        public Double getTemperature() {
+            return temperature;
+        }
+
+        public void setTemperature(Double temperature) {
+            this.temperature = temperature;
+        }
+
+        public Double getTopP() {
+            return topP;
+        }
+
+        public void setTopP(Double topP) {
+            this.topP = topP;
+        }
+
+        public Integer getMaxTokens() {
+            return maxTokens;
+        }
+
+        public void setMaxTokens(Integer maxTokens) {
+            this.maxTokens = maxTokens;
+        }
+
+        public boolean isThinking() {
+            return thinking;
+        }
+
+        public void setThinking(boolean thinking) {
+            this.thinking = thinking;
+        }
+    }
+
+    /**
+     * The API's answer. Content is the first choice's message, null unless
+     * the call succeeded and the body had one. A successful streamed call
+     * has neither body nor content.
+     */
+    public static class Completion {
+        private final int statusCode;
+        private final String body;
+        private final String content;
+
+        Completion(int statusCode, String body, String content) {
+            this.statusCode = statusCode;
+            this.body = body;
+            this.content = content;
+        }
+
+        public boolean isSuccess() {
+            return statusCode == 200;
+        }
+
+        public int getStatusCode() {
+            return statusCode;
+        }
+
+        public String getBody() {
+            return body;
+        }
+
+        public String getContent() {
+            return content;
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.syntaxarena.backend.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Answers to LLM calls that are asked the same thing over and over (concept
+ * explanations, code stories, execution visualizations), one cache per
+ * operation. Keyed by a hash of the model, the normalized messages and the
+ * temperature rounded to one decimal. Each cache is bounded by the bytes of
+ * text it holds and evicts by W-TinyLFU, so a burst of one-off prompts does
+ * not push out the popular ones. Operations without a cache go straight to
+ * the gateway.
+ */
+@Service
+public class LlmResponseCache {
+
+    @Value("${llm.cache.concept.ttl-ms:86400000}")
+    private long conceptTtlMs;
+
+    @Value("${llm.cache.concept.max-bytes:16777216}")
+    private long conceptMaxBytes;
+
+    @Value("${llm.cache.code-story.ttl-ms:3600000}")
+    private long codeStoryTtlMs;
+
+    @Value("${llm.cache.code-story.max-bytes:16777216}")
+    private long codeStoryMaxBytes;
+
+    @Value("${llm.cache.visualize.ttl-ms:86400000}")
+    private long visualizeTtlMs;
+
+    @Value("${llm.cache.visualize.max-bytes:33554432}")
+    private long visualizeMaxBytes;
+
+    @Autowired
+    private LlmGateway llmGateway;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<String, OperationCache> caches = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void createCaches() {
+        register("concept", conceptTtlMs, conceptMaxBytes);
+        register("code_story", codeStoryTtlMs, codeStoryMaxBytes);
+        register("visualize", visualizeTtlMs, visualizeMaxBytes);
+    }
+
+    private void register(String operation, long ttlMs, long maxBytes) {
+        if (ttlMs <= 0 || maxBytes <= 0) {
+            return;
+        }
+        Cache<String, String> answers = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .maximumWeight(maxBytes)
+                .weigher((String key, String content) -> 2 * (key.length() + content.length()))
+                .recordStats()
+                .build();
+        caches.put(operation, new OperationCache(answers,
+                meterRegistry.counter("llm.cache.requests", "operation", operation, "result", "hit"),
+                meterRegistry.counter("llm.cache.requests", "operation", operation, "result", "miss")));
+
+        Gauge.builder("llm.cache.hit_ratio", answers, cache -> cache.stats().hitRate())
+                .tag("operation", operation)
+                .register(meterRegistry);
+        Gauge.builder("llm.cache.entries", answers, Cache::estimatedSize)
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+
+    /**
+     * {@link LlmGateway#completeAsync} through the cache for the request's
+     * operation. A hit completes at once with the stored content (and no
+     * body). Only successful answers that {@code usable} accepts are stored,
+     * so a reply the caller could not parse is asked for again next time.
+     */
+    public CompletableFuture<LlmGateway.Completion> completeAsync(LlmGateway.ChatRequest request,
+            Predicate<String> usable) {
+        OperationCache cache = caches.get(request.getOperation());
+        if (cache == null) {
+            return llmGateway.completeAsync(request);
+        }
+
+        String key = key(request);
+        String content = cache.answers.getIfPresent(key);
+        if (content != null) {
+            cache.hits.increment();
+            return CompletableFuture.completedFuture(new LlmGateway.Completion(200, null, content));
+        }
+        cache.misses.increment();
+
+        return llmGateway.completeAsync(request).thenApply(completion -> {
+            if (completion.isSuccess() && completion.getContent() != null && usable.test(completion.getContent())) {
+                cache.answers.put(key, completion.getContent());
+            }
+            return completion;
+        });
+    }
+
+    public CompletableFuture<LlmGateway.Completion> completeAsync(LlmGateway.ChatRequest request) {
+        return completeAsync(request, content -> true);
+    }
+
+    private static String key(LlmGateway.ChatRequest request) {
+        StringBuilder text = new StringBuilder();
+        text.append(request.getModel()).append('\0');
+        // Temperatures that round to the same tenth sample alike
+        text.append(request.getTemperature() != null ? Math.round(request.getTemperature() * 10) : "default")
+                .append('\0');
+        for (Map<String, String> message : request.getMessages()) {
+            text.append(message.get("role")).append('\0');
+            text.append(normalize(message.get("content"))).append('\0');
+        }
+
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(text.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Line endings and trailing whitespace. Indentation is left alone, since
+     * prompts carry code where it matters.
+     */
+    static String normalize(String content) {
+        if (content == null) {
+            return "";
+        }
+        String[] lines = content.replace("\r\n", "\n").replace('\r', '\n').split("\n");
+        StringBuilder normalized = new StringBuilder(content.length());
+        for (String line : lines) {
+            normalized.append(line.stripTrailing()).append('\n');
+        }
+        return normalized.toString().strip();
+    }
+
+    private static class OperationCache {
+        private final Cache<String, String> answers;
+        private final Counter hits;
+        private final Counter misses;
+
+        OperationCache(Cache<String, String> answers, Counter hits, Counter misses) {
+            this.answers = answers;
+            this.hits = hits;
+            this.misses = misses;
+        }
+    }
+}
@@ -0,0 +1,825 @@
+package com.syntaxarena.backend.service;
+
+import com.syntaxarena.backend.model.ExecutionRequest;
+import com.syntaxarena.backend.model.ExecutionResponse;
+import com.syntaxarena.backend.runner.JavaLauncher;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Runs submissions in this JVM: Java is compiled in process and launched in
+ * a pooled or fresh JVM, Python and Node run in pooled interpreters or fresh
+ * processes. Executor nodes run their jobs through this backend as well.
+ */
+@Service
+@ConditionalOnExpression(ExecutionService.LOCAL_ENGINE)
+public class LocalExecutionBackend implements ExecutionBackend {
+
+    private static final long RUN_TIMEOUT_MILLIS = 5000;
+    private static final long COMPILE_TIMEOUT_MILLIS = 10000;
+    // Upper bound for a whole test batch; each case still gets RUN_TIMEOUT_MILLIS at most
+    private static final long BATCH_TIMEOUT_MILLIS = 15000;
+
+    private static final java.util.regex.Pattern PUBLIC_CLASS = java.util.regex.Pattern
+            .compile("public\\s+class\\s+(\\w+)");
+
+    @Value("${execution.output.max-bytes:65536}")
+    private int maxOutputBytes;
+
+    @Value("${execution.benchmark.warmup-iterations:5}")
+    private int defaultWarmupIterations;
+
+    @Value("${execution.benchmark.measurement-iterations:20}")
+    private int defaultMeasurementIterations;
+
+    // Cap on warmup + measurement iterations a request may ask for
+    @Value("${execution.benchmark.max-iterations:100}")
+    private int maxBenchmarkIterations;
+
+    // Workers one verdict run may use at once (0 = one per CPU core); the language's pool size also caps it
+    @Value("${execution.fanout.max-shards:0}")
+    private int maxShards;
+
+    // Threads running shards for all verdicts together (0 = one per CPU core); further shards queue
+    @Value("${execution.fanout.threads:0}")
+    private int fanOutThreadCount;
+
+    @Autowired
+    private InterpreterPool interpreterPool;
+
+    @Autowired
+    private InMemoryJavaCompiler javaCompiler;
+
+    @Autowired
+    private JavaLauncherClasspath launcherClasspath;
+
+    @Autowired
+    private CompiledClassCache classCache;
+
+    @Autowired
+    private HarnessCache harnessCache;
+
+    @Autowired
+    private ResourceGovernor resourceGovernor;
+
+    @Autowired
+    private WorkspaceManager workspaceManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Runs the shards of executeUntilFailure; the calling execution slot waits until they have all stopped
+    private final AtomicInteger fanOutThreads = new AtomicInteger();
+    private ExecutorService fanOut;
+
+    @PostConstruct
+    public void start() {
+        int threads = fanOutThreadCount > 0 ? fanOutThreadCount : Runtime.getRuntime().availableProcessors();
+        fanOut = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "execution-fanout-" + fanOutThreads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        fanOut.shutdownNow();
+    }
+
+    @Override
+    public ExecutionResponse executeCode(ExecutionRequest request) {
+        return executeCode(request, null);
+    }
+
+    /**
+     * Runs the request's test cases for a pass/fail verdict as fast as
+     * possible: cases are spread over several pooled workers at once, each
+     * result goes to the listener (may be null) as it comes in, and the first
+     * failing or timed-out case ends the run without waiting for the others.
+     * Cases that never reported are marked skipped. Because the shards
+     * overlap, their combined time is reported as RUN.
+     */
+    @Override
+    public ExecutionResponse executeUntilFailure(ExecutionRequest request,
+            ExecutionService.TestCaseListener listener) {
+        PhaseTimer timer = new PhaseTimer();
+        timer.start(PhaseTimer.Phase.PREPARE);
+        ExecutionResponse response;
+        try {
+            response = executeFanOut(request.getLanguage(), request.getCode(), request.getTestHarness(),
+                    request.getTestCases() != null ? request.getTestCases() : List.of(), request.getChecker(),
+                    listener, timer);
+        } catch (IOException | InterruptedException e) {
+            response = new ExecutionResponse("", "Execution failed: " + e.getMessage());
+        }
+        timer.stop();
+        response.setTimings(timer.toTimings());
+        recordTimings(request.getLanguage(), response, timer);
+        return response;
+    }
+
+    /**
+     * Runs a submission and streams its output to the listener as it is
+     * produced. The returned response only carries output that was not
+     * streamed, such as compile errors, plus the exit status.
+     */
+    @Override
+    public ExecutionResponse executeCodeStreaming(ExecutionRequest request, ProcessPump.OutputListener listener) {
+        return executeCode(request, listener);
+    }
+
+    private ExecutionResponse executeCode(ExecutionRequest request, ProcessPump.OutputListener listener) {
+        PhaseTimer timer = new PhaseTimer();
+        timer.start(PhaseTimer.Phase.PREPARE);
+        ExecutionResponse response = executeCode(request, listener, timer);
+        timer.stop();
+        response.setTimings(timer.toTimings());
+        recordTimings(request.getLanguage(), response, timer);
+        return response;
+    }
+
+    private ExecutionResponse executeCode(ExecutionRequest request, ProcessPump.OutputListener listener,
+            PhaseTimer timer) {
+        String language = request.getLanguage();
+        String code = request.getCode();
+        String testHarness = request.getTestHarness();
+
+        try {
+            if (request.getBenchmark() != null) {
+                return executeBenchmark(language, code, testHarness, request.getBenchmark(), timer);
+            }
+            List<ExecutionRequest.TestCase> testCases = request.getTestCases();
+            if (testCases != null && !testCases.isEmpty()) {
+                return executeBatch(language, code, testHarness, testCases, request.getChecker(), timer);
+            }
+
+            if ("python".equalsIgnoreCase(language)) {
+                return executePython(code, testHarness, listener, timer);
+            } else if ("javascript".equalsIgnoreCase(language) || "node".equalsIgnoreCase(language)) {
+                return executeNode(code, testHarness, listener, timer);
+            } else if ("java".equalsIgnoreCase(language)) {
+                return executeJava(code, testHarness, listener, timer);
+            } else {
+                return new ExecutionResponse("", "Unsupported language: " + language);
+            }
+        } catch (IOException | InterruptedException e) {
+            return new ExecutionResponse("", "Execution failed: " + e.getMessage());
+        }
+    }
+
+    private void recordTimings(String language, ExecutionResponse response, PhaseTimer timer) {
+        String languageTag = language == null ? "unknown" : switch (language.toLowerCase()) {
+            case "python", "java" -> language.toLowerCase();
+            case "javascript", "node" -> "node";
+            default -> "unsupported";
+        };
+        String outcome = outcome(response);
+        for (PhaseTimer.Phase phase : PhaseTimer.Phase.values()) {
+            Timer.builder("execution.phase")
+                    .tag("language", languageTag)
+                    .tag("outcome", outcome)
+                    .tag("phase", phase.name().toLowerCase())
+                    .register(meterRegistry)
+                    .record(timer.get(phase), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static String outcome(ExecutionResponse response) {
+        if (response.isTimedOut()) {
+            return "timeout";
+        } else if (response.getError() != null && response.getError().startsWith("Compilation Error")) {
+            return "compile_error";
+        } else if (response.getTestResults() != null) {
+            return response.getPassedCount() == response.getTestResults().size() ? "success" : "failed_tests";
+        } else if (response.getExitCode() != null && response.getExitCode() == 0) {
+            return "success";
+        }
+        return "error";
+    }
+
+    private ExecutionResponse executePython(String code, String testHarness, ProcessPump.OutputListener listener,
+            PhaseTimer timer) throws IOException, InterruptedException {
+        // If testHarness is present, append it to the code
+        String finalCode = code;
+        if (testHarness != null && !testHarness.isEmpty()) {
+            finalCode = code + "\n\n" + testHarness;
+        }
+
+        // Pooled workers reply once per run, so streaming runs use a fresh process
+        if (listener == null && interpreterPool.supports("python")) {
+            return runPooled("python", finalCode, timer);
+        }
+
+        try (WorkspaceManager.Workspace workspace = workspaceManager.acquire()) {
+            workspace.writeFile("script.py", finalCode);
+            return runProcess(listener, timer, workspace, "python3", "script.py");
+        }
+    }
+
+    private ExecutionResponse executeNode(String code, String testHarness, ProcessPump.OutputListener listener,
+            PhaseTimer timer) throws IOException, InterruptedException {
+        // If testHarness is present, append it to the code
+        String finalCode = code;
+        if (testHarness != null && !testHarness.isEmpty()) {
+            finalCode = code + "\n\n" + testHarness;
+        }
+
+        if (listener == null && interpreterPool.supports("node")) {
+            return runPooled("node", finalCode, timer);
+        }
+
+        try (WorkspaceManager.Workspace workspace = workspaceManager.acquire()) {
+            workspace.writeFile("script.js", finalCode);
+            return runProcess(listener, timer, workspace, "node", "script.js");
+        }
+    }
+
+    private ExecutionResponse runPooled(String language, String code, PhaseTimer timer) throws IOException {
+        return runPooled(language, code.getBytes(StandardCharsets.UTF_8), timer);
+    }
+
+    private ExecutionResponse runPooled(String language, byte[] code, PhaseTimer timer) throws IOException {
+        return toResponse(interpreterPool.execute(language, code, "", RUN_TIMEOUT_MILLIS, timer));
+    }
+
+    // Same shape as the result of a cold process
+    private ExecutionResponse toResponse(InterpreterWorker.Result result) {
+        return toResponse(new ProcessPump.Result(result.getOutput(), result.getError(),
+                result.isTimedOut() ? null : result.getStatus(), result.isTimedOut(), result.isTruncated()),
+                new ResourceGovernor.Usage(result.getCpuNanos(), result.getElapsedNanos(),
+                        result.getPeakRssBytes(), result.getLimitExceeded()));
+    }
+
+    /**
+     * Runs the whole program warmup + measurement times with the same input
+     * and reports time per run. Java gets a fresh JVM that keeps the classes
+     * loaded across iterations (so the JIT can warm up) and also measures
+     * allocation; Python and Node time one warm worker frame per iteration,
+     * from this side of the pipe, since the worker's own clock is in reach of
+     * the code it runs. The response output is that of the first iteration,
+     * and any failing iteration turns the whole benchmark into that failure,
+     * as does one that leaves state behind in its worker.
+     */
+    private ExecutionResponse executeBenchmark(String language, String code, String testHarness,
+            ExecutionRequest.Benchmark options, PhaseTimer timer) throws IOException, InterruptedException {
+        int warmup = Math.max(0, options.getWarmupIterations() != null
+                ? options.getWarmupIterations() : defaultWarmupIterations);
+        int measurements = Math.max(2, options.getMeasurementIterations() != null
+                ? options.getMeasurementIterations() : defaultMeasurementIterations);
+        if (warmup + measurements > maxBenchmarkIterations) {
+            return new ExecutionResponse("", "Benchmark is limited to " + maxBenchmarkIterations
+                    + " iterations in total");
+        }
+        String input = options.getInput() != null ? options.getInput() : "";
+
+        InterpreterWorker.Result result;
+        List<InterpreterWorker.Sample> samples;
+        if ("python".equalsIgnoreCase(language) || "javascript".equalsIgnoreCase(language)
+                || "node".equalsIgnoreCase(language)) {
+            String pool = "python".equalsIgnoreCase(language) ? "python" : "node";
+            List<InterpreterWorker.Result> results = interpreterPool.executeBatch(pool,
+                    withHarness(code, testHarness), Collections.nCopies(warmup + measurements, input),
+                    RUN_TIMEOUT_MILLIS, BATCH_TIMEOUT_MILLIS, timer);
+            for (InterpreterWorker.Result iteration : results) {
+                if (iteration.isTimedOut() || iteration.getStatus() != 0) {
+                    return toResponse(iteration);
+                }
+                if (iteration.getLeak() != null) {
+                    ExecutionResponse response = toResponse(iteration);
+                    response.setError("Benchmark iteration left state behind in its worker ("
+                            + iteration.getLeak() + "), so its timings cannot be trusted");
+                    return response;
+                }
+            }
+            result = results.get(0);
+            samples = results.subList(warmup, results.size()).stream()
+                    .map(iteration -> new InterpreterWorker.Sample(iteration.getRoundTripNanos(), -1))
+                    .collect(Collectors.toList());
+        } else if ("java".equalsIgnoreCase(language)) {
+            CompiledClassCache.CompiledProgram program;
+            try {
+                program = compileJava(code, testHarness, timer);
+            } catch (CompilationFailedException e) {
+                return new ExecutionResponse("", "Compilation Error:\n" + e.getMessage());
+            }
+            result = runLauncherBench(program, input, warmup, measurements, timer);
+            samples = result.getSamples();
+            if (result.isTimedOut() || result.getStatus() != 0) {
+                return toResponse(result);
+            }
+            if (samples.isEmpty()) {
+                // System.exit ends the JVM after the first iteration
+                ExecutionResponse response = toResponse(result);
+                response.setError("Benchmark needs main to return instead of calling System.exit");
+                return response;
+            }
+        } else {
+            return new ExecutionResponse("", "Unsupported language: " + language);
+        }
+
+        ExecutionResponse response = toResponse(result);
+        response.setBenchmark(BenchmarkStats.summarize(samples, warmup));
+        return response;
+    }
+
+    // A fresh JVM per benchmark, like a JMH fork, so earlier runs cannot skew its JIT profile
+    private InterpreterWorker.Result runLauncherBench(CompiledClassCache.CompiledProgram program, String input,
+            int warmup, int measurements, PhaseTimer timer) throws IOException {
+        timer.start(PhaseTimer.Phase.PREPARE);
+        byte[] payload = launcherPayload(program.getMainClass(), program.getClasses());
+        List<String> command = new ArrayList<>(launcherClasspath.command(JavaLauncher.class));
+        command.addAll(List.of("--bench", String.valueOf(warmup), String.valueOf(measurements),
+                String.valueOf(maxOutputBytes)));
+
+        timer.start(PhaseTimer.Phase.SPAWN);
+        InterpreterWorker worker = InterpreterWorker.spawn("java",
+                resourceGovernor.openWorker(InterpreterWorker.command(command)));
+        try {
+            timer.stop();
+            long started = System.nanoTime();
+            InterpreterWorker.Result result = worker.execute(payload, input, BATCH_TIMEOUT_MILLIS);
+            BatchRunner.recordRun(timer, worker, started, result);
+            timer.start(PhaseTimer.Phase.COLLECT);
+            return result;
+        } finally {
+            worker.close();
+        }
+    }
+
+    /**
+     * Runs every test case inside one process launch: the interpreter workers
+     * and the JavaLauncher worker take one request frame per case, each with
+     * the case input on stdin.
+     */
+    private ExecutionResponse executeBatch(String language, String code, String testHarness,
+            List<ExecutionRequest.TestCase> testCases, ExecutionRequest.Checker checkerSettings, PhaseTimer timer)
+            throws IOException, InterruptedException {
+        OutputChecker checker;
+        try {
+            checker = OutputChecker.of(checkerSettings);
+        } catch (IllegalArgumentException e) {
+            return new ExecutionResponse("", e.getMessage());
+        }
+        List<String> inputs = testCases.stream()
+                .map(testCase -> testCase.getInput() != null ? testCase.getInput() : "")
+                .collect(Collectors.toList());
+
+        List<InterpreterWorker.Result> results;
+        if ("python".equalsIgnoreCase(language)) {
+            results = interpreterPool.executeBatch("python", withHarness(code, testHarness), inputs,
+                    RUN_TIMEOUT_MILLIS, BATCH_TIMEOUT_MILLIS, timer);
+        } else if ("javascript".equalsIgnoreCase(language) || "node".equalsIgnoreCase(language)) {
+            results = interpreterPool.executeBatch("node", withHarness(code, testHarness), inputs,
+                    RUN_TIMEOUT_MILLIS, BATCH_TIMEOUT_MILLIS, timer);
+        } else if ("java".equalsIgnoreCase(language)) {
+            CompiledClassCache.CompiledProgram program;
+            try {
+                program = compileJava(code, testHarness, timer);
+            } catch (CompilationFailedException e) {
+                return new ExecutionResponse("", "Compilation Error:\n" + e.getMessage());
+            }
+            timer.start(PhaseTimer.Phase.PREPARE);
+            results = interpreterPool.executeBatch("java",
+                    launcherPayload(program.getMainClass(), program.getClasses()), inputs,
+                    RUN_TIMEOUT_MILLIS, BATCH_TIMEOUT_MILLIS, timer);
+        } else {
+            return new ExecutionResponse("", "Unsupported language: " + language);
+        }
+
+        return toBatchResponse(testCases, results, checker);
+    }
+
+    private ExecutionResponse executeFanOut(String language, String code, String testHarness,
+            List<ExecutionRequest.TestCase> testCases, ExecutionRequest.Checker checkerSettings,
+            ExecutionService.TestCaseListener listener, PhaseTimer timer) throws IOException, InterruptedException {
+        OutputChecker checker;
+        try {
+            checker = OutputChecker.of(checkerSettings);
+        } catch (IllegalArgumentException e) {
+            return new ExecutionResponse("", e.getMessage());
+        }
+        String pool;
+        byte[] payload;
+        if ("python".equalsIgnoreCase(language)) {
+            pool = "python";
+            payload = withHarness(code, testHarness).getBytes(StandardCharsets.UTF_8);
+        } else if ("javascript".equalsIgnoreCase(language) || "node".equalsIgnoreCase(language)) {
+            pool = "node";
+            payload = withHarness(code, testHarness).getBytes(StandardCharsets.UTF_8);
+        } else if ("java".equalsIgnoreCase(language)) {
+            CompiledClassCache.CompiledProgram program;
+            try {
+                program = compileJava(code, testHarness, timer);
+            } catch (CompilationFailedException e) {
+                return new ExecutionResponse("", "Compilation Error:\n" + e.getMessage());
+            }
+            timer.start(PhaseTimer.Phase.PREPARE);
+            pool = "java";
+            payload = launcherPayload(program.getMainClass(), program.getClasses());
+        } else {
+            return new ExecutionResponse("", "Unsupported language: " + language);
+        }
+
+        List<String> inputs = testCases.stream()
+                .map(testCase -> testCase.getInput() != null ? testCase.getInput() : "")
+                .collect(Collectors.toList());
+        int shards = Math.min(maxShards > 0 ? maxShards : Runtime.getRuntime().availableProcessors(),
+                interpreterPool.getMaxWorkers(pool));
+
+        timer.start(PhaseTimer.Phase.RUN);
+        List<InterpreterWorker.Result> results = interpreterPool.executeParallel(pool, payload, inputs, shards,
+                RUN_TIMEOUT_MILLIS, BATCH_TIMEOUT_MILLIS, fanOut, (index, result) -> {
+                    ExecutionResponse.TestCaseResult testResult = toTestCaseResult(index, result,
+                            testCases.get(index), checker);
+                    if (listener != null) {
+                        listener.onTestResult(testResult);
+                    }
+                    return testResult.isPassed();
+                });
+        timer.start(PhaseTimer.Phase.COLLECT);
+        return toBatchResponse(testCases, results, checker);
+    }
+
+    /**
+     * Results may contain null for cases that were cancelled before they
+     * finished; those are reported as skipped.
+     */
+    private ExecutionResponse toBatchResponse(List<ExecutionRequest.TestCase> testCases,
+            List<InterpreterWorker.Result> results, OutputChecker checker) {
+        List<ExecutionResponse.TestCaseResult> testResults = new ArrayList<>();
+        int passedCount = 0;
+        boolean anyTimedOut = false;
+        boolean anyTruncated = false;
+        long cpuNanos = 0;
+        long wallNanos = 0;
+        long peakRssBytes = -1;
+        for (int i = 0; i < results.size(); i++) {
+            InterpreterWorker.Result result = results.get(i);
+            if (result == null) {
+                ExecutionResponse.TestCaseResult skipped = new ExecutionResponse.TestCaseResult(i + 1, false, "", "",
+                        false, 0);
+                skipped.setSkipped(true);
+                testResults.add(skipped);
+                continue;
+            }
+            ExecutionResponse.TestCaseResult testResult = toTestCaseResult(i, result, testCases.get(i), checker);
+            if (testResult.isPassed()) {
+                passedCount++;
+            }
+            anyTimedOut |= result.isTimedOut();
+            anyTruncated |= result.isTruncated();
+            cpuNanos += Math.max(0, result.getCpuNanos());
+            wallNanos += result.getElapsedNanos();
+            peakRssBytes = Math.max(peakRssBytes, result.getPeakRssBytes());
+            testResults.add(testResult);
+        }
+
+        ExecutionResponse response = new ExecutionResponse(
+                "Passed " + passedCount + "/" + testCases.size() + " test cases", "");
+        response.setTestResults(testResults);
+        response.setPassedCount(passedCount);
+        response.setTimedOut(anyTimedOut);
+        response.setTruncated(anyTruncated);
+        response.setCpuTimeNanos(cpuNanos);
+        response.setWallTimeNanos(wallNanos);
+        response.setPeakRssBytes(peakRssBytes >= 0 ? peakRssBytes : null);
+        return response;
+    }
+
+    private static ExecutionResponse.TestCaseResult toTestCaseResult(int index, InterpreterWorker.Result result,
+            ExecutionRequest.TestCase testCase, OutputChecker checker) {
+        String error = joinLines(result.getError());
+        if (result.isTimedOut()) {
+            error += (error.isEmpty() ? "" : "\n") + "Timeout";
+        }
+        if (result.getLimitExceeded() != null) {
+            error += (error.isEmpty() ? "" : "\n") + result.getLimitExceeded() + " limit exceeded";
+        }
+        OutputChecker.Mismatch mismatch = null;
+        if (!result.isTimedOut() && result.getStatus() == 0 && testCase.getExpectedOutput() != null) {
+            try {
+                mismatch = checker.check(new StringReader(result.getOutput()),
+                        new StringReader(testCase.getExpectedOutput()));
+            } catch (IOException e) {
+                // String readers do not fail
+                throw new UncheckedIOException(e);
+            }
+        }
+        boolean passed = !result.isTimedOut() && result.getStatus() == 0 && mismatch == null;
+        ExecutionResponse.TestCaseResult testResult = new ExecutionResponse.TestCaseResult(index + 1, passed,
+                joinLines(result.getOutput()), error, result.isTimedOut(), result.getElapsedNanos());
+        testResult.setTruncated(result.isTruncated());
+        testResult.setMismatch(mismatch != null ? mismatch.toString() : null);
+        return testResult;
+    }
+
+    private static String withHarness(String code, String testHarness) {
+        if (testHarness != null && !testHarness.isEmpty()) {
+            return code + "\n\n" + testHarness;
+        }
+        return code;
+    }
+
+    private static String joinLines(String text) {
+        return text.lines().collect(Collectors.joining("\n"));
+    }
+
+    private ExecutionResponse executeJava(String code, String testHarness, ProcessPump.OutputListener listener,
+            PhaseTimer timer) throws IOException, InterruptedException {
+        CompiledClassCache.CompiledProgram program;
+        try {
+            program = compileJava(code, testHarness, timer);
+        } catch (CompilationFailedException e) {
+            return new ExecutionResponse("", "Compilation Error:\n" + e.getMessage());
+        }
+        if (listener == null && interpreterPool.supports("java")) {
+            timer.start(PhaseTimer.Phase.PREPARE);
+            return runPooled("java", launcherPayload(program.getMainClass(), program.getClasses()), timer);
+        }
+        return runLauncher(program.getMainClass(), program.getClasses(), listener, timer);
+    }
+
+    /**
+     * Compiles a submission, or returns the classes from an earlier compile of
+     * the same code. With a test harness the user code goes into
+     * Solution.java and the harness into Main.java, and once the harness has
+     * been compiled only Solution.java is; otherwise the code is a single file
+     * named after its public class.
+     */
+    private CompiledClassCache.CompiledProgram compileJava(String code, String testHarness, PhaseTimer timer)
+            throws IOException, InterruptedException, CompilationFailedException {
+        timer.start(PhaseTimer.Phase.COMPILE);
+        String cacheKey = classCache.key(code, testHarness);
+        CompiledClassCache.CompiledProgram cached = classCache.get(cacheKey);
+        if (cached != null) {
+            return cached;
+        }
+
+        boolean hasHarness = testHarness != null && !testHarness.isEmpty();
+        Map<String, byte[]> classes = hasHarness && javaCompiler.isAvailable()
+                ? compileAgainstHarness(code, testHarness)
+                : null;
+        String mainClass;
+        if (hasHarness) {
+            mainClass = "Main";
+            if (classes == null) {
+                classes = compileWithHarness(code, testHarness);
+            }
+        } else {
+            mainClass = findPublicClassName(code);
+            Map<String, String> sources = Map.of(mainClass + ".java", code);
+            classes = javaCompiler.isAvailable() ? compileInMemory(sources) : compileWithJavac(sources);
+        }
+
+        CompiledClassCache.CompiledProgram program = new CompiledClassCache.CompiledProgram(mainClass, classes);
+        classCache.put(cacheKey, program);
+        return program;
+    }
+
+    /**
+     * Compiles the problem's test harness ahead of the first submission, so
+     * submissions only compile Solution.java. Returns the compile errors, or
+     * null if the harness compiled with the given starter code.
+     */
+    @Override
+    public String precompileHarness(String starterCode, String testHarness) {
+        if (harnessCache.get(harnessKey(testHarness)) != null) {
+            return null;
+        }
+        try {
+            compileWithHarness(starterCode, testHarness);
+            return null;
+        } catch (CompilationFailedException | IOException e) {
+            return e.getMessage();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "Interrupted";
+        }
+    }
+
+    /**
+     * Compiles Solution.java alone against the problem's compiled harness.
+     * Returns null if the harness is not compiled yet or the solution does not
+     * link against it (say, a method signature the harness calls changed), in
+     * which case both files need compiling together.
+     */
+    private Map<String, byte[]> compileAgainstHarness(String code, String testHarness)
+            throws IOException, InterruptedException, CompilationFailedException {
+        HarnessCache.CompiledHarness harness = harnessCache.get(harnessKey(testHarness));
+        if (harness == null) {
+            return null;
+        }
+        InMemoryJavaCompiler.CompilationResult compiled = javaCompiler.compile(Map.of("Solution.java", code),
+                harness.getClasses());
+        if (!compiled.isSuccess()) {
+            throw new CompilationFailedException(compiled.getDiagnostics());
+        }
+        Map<String, byte[]> linked = harness.link(compiled.getClasses());
+        if (linked == null) {
+            harnessCache.recordLinkFallback();
+        }
+        return linked;
+    }
+
+    // Solution.java and Main.java together; the harness half of the result is kept for later submissions
+    private Map<String, byte[]> compileWithHarness(String code, String testHarness)
+            throws IOException, InterruptedException, CompilationFailedException {
+        Map<String, String> sources = new LinkedHashMap<>();
+        sources.put("Solution.java", code);
+        sources.put(HarnessCache.HARNESS_FILE, testHarness);
+        if (!javaCompiler.isAvailable()) {
+            return compileWithJavac(sources);
+        }
+        Map<String, byte[]> classes = compileInMemory(sources);
+        HarnessCache.CompiledHarness harness = HarnessCache.split(classes);
+        if (harness != null) {
+            harnessCache.put(harnessKey(testHarness), harness);
+        }
+        return classes;
+    }
+
+    private String harnessKey(String testHarness) {
+        return classCache.key(null, testHarness);
+    }
+
+    // javax.tools keeps sources and classes in memory; nothing is written to disk
+    private Map<String, byte[]> compileInMemory(Map<String, String> sources)
+            throws IOException, InterruptedException, CompilationFailedException {
+        InMemoryJavaCompiler.CompilationResult compiled = javaCompiler.compile(sources);
+        if (!compiled.isSuccess()) {
+            throw new CompilationFailedException(compiled.getDiagnostics());
+        }
+        return compiled.getClasses();
+    }
+
+    // Fallback for runtimes without a system compiler (a JRE rather than a JDK)
+    private Map<String, byte[]> compileWithJavac(Map<String, String> sources)
+            throws IOException, InterruptedException, CompilationFailedException {
+        try (WorkspaceManager.Workspace workspace = workspaceManager.acquire()) {
+            List<String> command = new ArrayList<>();
+            command.add("javac");
+            for (Map.Entry<String, String> source : sources.entrySet()) {
+                workspace.writeFile(source.getKey(), source.getValue());
+                command.add(source.getKey());
+            }
+
+            String compileError = runCompiler(workspace.getDirectory(), command.toArray(new String[0]));
+            if (compileError != null) {
+                throw new CompilationFailedException(compileError);
+            }
+            return readClassFiles(workspace.getDirectory());
+        }
+    }
+
+    // Collects the .class files javac wrote, keyed by binary class name
+    private static Map<String, byte[]> readClassFiles(Path dir) throws IOException {
+        Map<String, byte[]> classes = new HashMap<>();
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path file : (Iterable<Path>) files.filter(f -> f.toString().endsWith(".class"))::iterator) {
+                String relative = dir.relativize(file).toString();
+                String name = relative.substring(0, relative.length() - ".class".length())
+                        .replace(File.separatorChar, '.');
+                classes.put(name, Files.readAllBytes(file));
+            }
+        }
+        return classes;
+    }
+
+    // Class bytes go to the launcher JVM over stdin
+    private ExecutionResponse runLauncher(String mainClass, Map<String, byte[]> classes,
+            ProcessPump.OutputListener listener, PhaseTimer timer) throws IOException, InterruptedException {
+        timer.start(PhaseTimer.Phase.PREPARE);
+        byte[] payload = launcherPayload(mainClass, classes);
+        ResourceGovernor.Sandbox sandbox = resourceGovernor.open(launcherClasspath.command(JavaLauncher.class));
+
+        timer.start(PhaseTimer.Phase.SPAWN);
+        long startNanos = System.nanoTime();
+        Process process = sandbox.start(new ProcessBuilder());
+        timer.start(PhaseTimer.Phase.RUN);
+        try (OutputStream out = process.getOutputStream()) {
+            out.write(payload);
+        } catch (IOException e) {
+            // The launcher died before reading its input; report whatever it printed
+        }
+        return handleProcessOutput(process, sandbox, startNanos, listener, timer);
+    }
+
+    // The format JavaLauncher reads from stdin, and a JavaLauncher worker from each frame
+    private static byte[] launcherPayload(String mainClass, Map<String, byte[]> classes) throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(payload)) {
+            out.writeUTF(mainClass);
+            out.writeInt(classes.size());
+            for (Map.Entry<String, byte[]> entry : classes.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeInt(entry.getValue().length);
+                out.write(entry.getValue());
+            }
+        }
+        return payload.toByteArray();
+    }
+
+    // Extract class name to match filename
+    private static String findPublicClassName(String code) {
+        java.util.regex.Matcher matcher = PUBLIC_CLASS.matcher(code);
+        return matcher.find() ? matcher.group(1) : "Main";
+    }
+
+    private ExecutionResponse handleProcessOutput(Process process, ResourceGovernor.Sandbox sandbox,
+            long startNanos, ProcessPump.OutputListener listener, PhaseTimer timer) throws InterruptedException {
+        ProcessPump.Result result;
+        ResourceGovernor.Usage usage;
+        try {
+            result = ProcessPump.run(process, startNanos, RUN_TIMEOUT_MILLIS, maxOutputBytes, listener);
+        } finally {
+            usage = sandbox.close();
+        }
+        timer.split(result.getExitedAtNanos(), PhaseTimer.Phase.COLLECT);
+        return toResponse(result, usage);
+    }
+
+    private ExecutionResponse runProcess(ProcessPump.OutputListener listener, PhaseTimer timer,
+            WorkspaceManager.Workspace workspace, String... command) throws IOException, InterruptedException {
+        ResourceGovernor.Sandbox sandbox = resourceGovernor.open(List.of(command));
+        timer.start(PhaseTimer.Phase.SPAWN);
+        long startNanos = System.nanoTime();
+        Process process = sandbox.start(new ProcessBuilder().directory(workspace.getDirectory().toFile()));
+        workspace.onOverflow(() -> ProcessPump.killTree(process));
+        timer.start(PhaseTimer.Phase.RUN);
+        ExecutionResponse response = handleProcessOutput(process, sandbox, startNanos, listener, timer);
+        if (workspace.isOverflowed()) {
+            response.setError(response.getError() + "\nDisk space limit exceeded");
+        }
+        return response;
+    }
+
+    private ExecutionResponse toResponse(ProcessPump.Result result, ResourceGovernor.Usage usage) {
+        String error = joinLines(result.getError());
+        if (result.isTruncated()) {
+            error += "\nOutput truncated at " + maxOutputBytes + " bytes";
+        }
+        if (result.isTimedOut()) {
+            error += "\nTimeout";
+        }
+        if (usage.getLimitExceeded() != null) {
+            error += "\n" + usage.getLimitExceeded() + " limit exceeded";
+        }
+        ExecutionResponse response = new ExecutionResponse(joinLines(result.getOutput()), error);
+        response.setExitCode(result.getExitCode());
+        response.setTimedOut(result.isTimedOut());
+        response.setTruncated(result.isTruncated());
+        response.setCpuTimeNanos(usage.getCpuNanos() >= 0 ? usage.getCpuNanos() : null);
+        response.setWallTimeNanos(usage.getWallNanos() >= 0 ? usage.getWallNanos() : null);
+        response.setPeakRssBytes(usage.getPeakRssBytes() >= 0 ? usage.getPeakRssBytes() : null);
+        return response;
+    }
+
+    // Runs javac and returns its diagnostics, or null if compilation succeeded
+    private String runCompiler(Path workingDir, String... command) throws IOException, InterruptedException {
+        long startNanos = System.nanoTime();
+        Process process = new ProcessBuilder(command).directory(workingDir.toFile()).start();
+        ProcessPump.Result result = ProcessPump.run(process, startNanos, COMPILE_TIMEOUT_MILLIS, maxOutputBytes);
+        if (result.isTimedOut()) {
+            return "Compilation timed out";
+        }
+        return result.getExitCode() == 0 ? null : joinLines(result.getError());
+    }
+
+    private static class CompilationFailedException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        CompilationFailedException(String diagnostics) {
+            super(diagnostics);
+        }
+    }
+}
@@ -6,35 +6,23 @@ import com.syntaxarena.backend.model.ExecutionFlowResponse.VisualizerStep;
 import com.syntaxarena.backend.model.ConceptRequest;
 import com.syntaxarena.backend.model.ConceptResponse;
 import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
-import java.time.Duration;
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.HashMap;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 public class NvidiaVisualizerService {
 
-    @Value("${NVIDIA_API_KEY}")
-    private String apiKey;
-
-    private final HttpClient httpClient = HttpClient.newBuilder()
-            .version(HttpClient.Version.HTTP_2)
-            .connectTimeout(Duration.ofSeconds(30))
-            .build();
+    @Autowired
+    private LlmResponseCache llmResponseCache;
 
     private final ObjectMapper objectMapper = new ObjectMapper();
 
-    public ExecutionFlowResponse visualizeExecution(ExecutionFlowRequest request) {
+    public CompletableFuture<ExecutionFlowResponse> visualizeExecution(ExecutionFlowRequest request) {
         String prompt = String.format(
                 "You are a code execution visualizer. Analyze this %s code step by step.\n\n" +
                         "Code:\n```\n%s\n```\n\n" +
@@ -47,46 +35,30 @@ public class NvidiaVisualizerService {
                         "5. Do NOT include any text outside the JSON block.\n",
                 request.getLanguage(), request.getCode());
 
-        try {
-            Map<String, Object> payload = new HashMap<>();
-            payload.put("model", "nvidia/nemotron-3-nano-30b-a3b");
-            payload.put("temperature", 0.2); // Low temperature for deterministic JSON
-            payload.put("top_p", 1);
-            payload.put("max_tokens", 2048);
-            payload.put("stream", false);
-
-            Map<String, Object> message = new HashMap<>();
-            message.put("role", "user");
-            message.put("content", prompt);
-            payload.put("messages", List.of(message));
-
-            String requestBody = objectMapper.writeValueAsString(payload);
-            String url = "https://integrate.api.nvidia.com/v1/chat/completions";
-
-            HttpRequest httpRequest = HttpRequest.newBuilder()
-                    .uri(URI.create(url))
-                    .header("Content-Type", "application/json")
-                    .header("Authorization", "Bearer " + apiKey)
-                    .POST(HttpRequest.BodyPublishers.ofString(requestBody))
-                    .build();
-
-            HttpResponse<String> response = httpClient.send(httpRequest, HttpResponse.BodyHandlers.ofString());
-
-            if (response.statusCode() == 200) {
-                return parseExecutionResponse(response.body());
+        LlmGateway.ChatRequest chat = new LlmGateway.ChatRequest("visualize");
+        chat.setTemperature(0.2); // Low temperature for deterministic JSON
+        chat.setTopP(1.0);
+        chat.setMaxTokens(2048);
+        chat.addMessage("user", prompt);
+
+        // Only replies that parse into steps are worth keeping
+        return llmResponseCache.completeAsync(chat,
+                content -> parseExecutionResponse(content).getError() == null).thenApply(completion -> {
+            if (completion.isSuccess()) {
+                return parseExecutionResponse(completion.getContent());
             } else {
-                System.out.println("API Error: " + response.body());
+                System.out.println("API Error: " + completion.getBody());
                 return new ExecutionFlowResponse(
-                        "Error: Could not visualize execution. Status: " + response.statusCode());
+                        "Error: Could not visualize execution. Status: " + completion.getStatusCode());
             }
-
-        } catch (Exception e) {
-            System.out.println("Exception: " + e.getMessage());
-            return new ExecutionFlowResponse("Error visualizing code execution: " + e.getMessage());
-        }
+        }).exceptionally(error -> {
+            Throwable cause = LlmGateway.unwrap(error);
+            System.out.println("Exception: " + cause.getMessage());
+            return new ExecutionFlowResponse("Error visualizing code execution: " + cause.getMessage());
+        });
     }
 
-    public ConceptResponse simplifyConcept(ConceptRequest request) {
+    public CompletableFuture<ConceptResponse> simplifyConcept(ConceptRequest request) {
         String prompt = String.format(
                 "Explain the concept \"%s\" simply for a %s level student.\n\n" +
                         "Instructions:\n" +
@@ -95,47 +67,35 @@ public class NvidiaVisualizerService {
                         "3. Keep it under 100 words\n" +
                         "4. Be clear and direct\n" +
                         "5. No complex jargon",
-                request.getConcept(), request.getLevel(), request.getLanguage());
-
-        try {
-            Map<String, Object> payload = new HashMap<>();
-            payload.put("model", "nvidia/nemotron-3-nano-30b-a3b"); // Or another suitable model
-            payload.put("temperature", 0.7);
-            payload.put("max_tokens", 1024);
+                normalizeTerm(request.getConcept()), normalizeTerm(request.getLevel()),
+                normalizeTerm(request.getLanguage()));
 
-            Map<String, Object> message = new HashMap<>();
-            message.put("role", "user");
-            message.put("content", prompt);
-            payload.put("messages", List.of(message));
+        LlmGateway.ChatRequest chat = new LlmGateway.ChatRequest("concept");
+        chat.setTemperature(0.7);
+        chat.setMaxTokens(1024);
+        chat.addMessage("user", prompt);
 
-            String requestBody = objectMapper.writeValueAsString(payload);
-            String url = "https://integrate.api.nvidia.com/v1/chat/completions";
-
-            HttpRequest httpRequest = HttpRequest.newBuilder()
-                    .uri(URI.create(url))
-                    .header("Content-Type", "application/json")
-                    .header("Authorization", "Bearer " + apiKey)
-                    .POST(HttpRequest.BodyPublishers.ofString(requestBody))
-                    .build();
-
-            HttpResponse<String> response = httpClient.send(httpRequest, HttpResponse.BodyHandlers.ofString());
-
-            if (response.statusCode() == 200) {
-                return parseConceptResponse(response.body());
+        return llmResponseCache.completeAsync(chat).thenApply(completion -> {
+            if (completion.isSuccess()) {
+                return parseConceptResponse(completion.getContent());
             } else {
                 return new ConceptResponse("Error: Could not simplify concept.");
             }
-
-        } catch (Exception e) {
+        }).exceptionally(error -> {
             return new ConceptResponse("Error simplifying concept.");
-        }
+        });
     }
 
-    private ExecutionFlowResponse parseExecutionResponse(String jsonResponse) {
-        try {
-            JsonNode root = objectMapper.readTree(jsonResponse);
-            String content = root.path("choices").get(0).path("message").path("content").asText();
+    /**
+     * "  Binary  Search" and "binary search" ask the same question, so they
+     * share a prompt and a cached answer.
+     */
+    private static String normalizeTerm(String term) {
+        return term == null ? null : term.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
 
+    private ExecutionFlowResponse parseExecutionResponse(String content) {
+        try {
             // Clean up content to find JSON array
             int startIndex = content.indexOf("[");
             int endIndex = content.lastIndexOf("]");
@@ -153,13 +113,7 @@ public class NvidiaVisualizerService {
         }
     }
 
-    private ConceptResponse parseConceptResponse(String jsonResponse) {
-        try {
-            JsonNode root = objectMapper.readTree(jsonResponse);
-            String text = root.path("choices").get(0).path("message").path("content").asText();
-            return new ConceptResponse(text);
-        } catch (Exception e) {
-            return new ConceptResponse("Could not parse response.");
-        }
+    private ConceptResponse parseConceptResponse(String content) {
+        return new ConceptResponse(content != null ? content : "Could not parse response.");
     }
 }
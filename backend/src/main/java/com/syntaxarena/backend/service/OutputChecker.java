@@ -0,0 +1,440 @@
+package com.syntaxarena.backend.service;
+
+import com.syntaxarena.backend.model.ExecutionRequest;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Compares a program's output with the expected output while reading both,
+ * a character at a time, and stops at the first difference. Besides the
+ * readers only a short prefix of the current line or token is kept (for
+ * float parsing and the message). Callers capture the output whole before
+ * checking it, bounded by execution.output.max-bytes, so this bounds the
+ * work of a check rather than the memory of the run.
+ *
+ * Modes:
+ * - lines (default): line by line, ignoring trailing whitespace on a line
+ *   and trailing blank lines
+ * - tokens: whitespace-separated tokens, ignoring how much whitespace and
+ *   which kind separates them
+ * - float: like tokens, but two numbers also match when they are within the
+ *   absolute or the relative tolerance of each other
+ * Any mode can additionally ignore case.
+ */
+final class OutputChecker {
+
+    // Used in float mode when the request sets neither tolerance
+    private static final double DEFAULT_TOLERANCE = 1e-6;
+    // Longest token kept for float parsing and for the mismatch message
+    private static final int TOKEN_PREFIX_CHARS = 64;
+    private static final int EOF = -1;
+
+    enum Mode {
+        LINES, TOKENS, FLOAT
+    }
+
+    private static final OutputChecker DEFAULT = new OutputChecker(Mode.LINES, false, 0, 0);
+
+    private final Mode mode;
+    private final boolean ignoreCase;
+    private final double absoluteTolerance;
+    private final double relativeTolerance;
+
+    private OutputChecker(Mode mode, boolean ignoreCase, double absoluteTolerance, double relativeTolerance) {
+        this.mode = mode;
+        this.ignoreCase = ignoreCase;
+        this.absoluteTolerance = absoluteTolerance;
+        this.relativeTolerance = relativeTolerance;
+    }
+
+    /**
+     * Checker for a request's settings; null settings give the default line
+     * mode.
+     *
+     * @throws IllegalArgumentException for an unknown mode or a negative tolerance
+     */
+    static OutputChecker of(ExecutionRequest.Checker settings) {
+        if (settings == null) {
+            return DEFAULT;
+        }
+        Mode mode;
+        try {
+            mode = settings.getMode() != null ? Mode.valueOf(settings.getMode().trim().toUpperCase()) : Mode.LINES;
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown checker mode: " + settings.getMode());
+        }
+        double absolute = settings.getAbsoluteTolerance() != null ? settings.getAbsoluteTolerance() : 0;
+        double relative = settings.getRelativeTolerance() != null ? settings.getRelativeTolerance() : 0;
+        if (absolute < 0 || relative < 0 || Double.isNaN(absolute) || Double.isNaN(relative)) {
+            throw new IllegalArgumentException("Checker tolerances must not be negative");
+        }
+        if (settings.getAbsoluteTolerance() == null && settings.getRelativeTolerance() == null) {
+            absolute = DEFAULT_TOLERANCE;
+            relative = DEFAULT_TOLERANCE;
+        }
+        return new OutputChecker(mode, settings.isIgnoreCase(), absolute, relative);
+    }
+
+    /**
+     * Returns null if the outputs match, otherwise where they first differ.
+     */
+    Mismatch check(Reader actual, Reader expected) throws IOException {
+        BufferedReader actualReader = new BufferedReader(actual);
+        BufferedReader expectedReader = new BufferedReader(expected);
+        return mode == Mode.LINES ? checkLines(new LineReader(actualReader), new LineReader(expectedReader))
+                : checkTokens(new TokenReader(actualReader), new TokenReader(expectedReader));
+    }
+
+    private Mismatch checkLines(LineReader actual, LineReader expected) throws IOException {
+        for (int line = 1;; line++) {
+            boolean actualMore = actual.startLine();
+            boolean expectedMore = expected.startLine();
+            if (!actualMore && !expectedMore) {
+                return null;
+            }
+            if (!actualMore) {
+                expected.readRest();
+                return expected.restIsBlank() ? null : new Mismatch(line, 1, 0, expected.content(), null);
+            }
+            if (!expectedMore) {
+                actual.readRest();
+                return actual.restIsBlank() ? null : new Mismatch(line, 1, 0, null, actual.content());
+            }
+
+            // Walk both lines in step while they agree
+            int matched = 0;
+            while (true) {
+                int a = actual.nextLineChar();
+                int e = expected.nextLineChar();
+                if (a == EOF && e == EOF) {
+                    break;
+                }
+                if (a == EOF || e == EOF || !sameChar((char) a, (char) e)) {
+                    break;
+                }
+                matched++;
+            }
+            actual.readRest();
+            expected.readRest();
+            // Whatever follows the common part may only be trailing whitespace
+            if (actual.contentLength > matched || expected.contentLength > matched) {
+                int column = Math.min(matched, Math.min(actual.contentLength, expected.contentLength));
+                return new Mismatch(line, column + 1, 0, expected.content(), actual.content());
+            }
+        }
+    }
+
+    private Mismatch checkTokens(TokenReader actual, TokenReader expected) throws IOException {
+        for (int token = 1;; token++) {
+            boolean actualMore = actual.skipWhitespace();
+            boolean expectedMore = expected.skipWhitespace();
+            if (!actualMore && !expectedMore) {
+                return null;
+            }
+            int line = actual.line;
+            int column = actual.column;
+            if (!actualMore) {
+                expected.startToken();
+                expected.readRest();
+                return new Mismatch(line, column, token, expected.prefix(), null);
+            }
+            if (!expectedMore) {
+                actual.startToken();
+                actual.readRest();
+                return new Mismatch(line, column, token, null, actual.prefix());
+            }
+
+            actual.startToken();
+            expected.startToken();
+            // Walk both tokens in step while they agree; most tokens end here
+            boolean same = true;
+            while (true) {
+                int a = actual.nextTokenChar();
+                int e = expected.nextTokenChar();
+                if (a == EOF && e == EOF) {
+                    break;
+                }
+                if (a == EOF || e == EOF || !sameChar((char) a, (char) e)) {
+                    same = false;
+                    break;
+                }
+            }
+            if (same) {
+                continue;
+            }
+            actual.readRest();
+            expected.readRest();
+            if (mode == Mode.FLOAT && closeEnough(actual, expected)) {
+                continue;
+            }
+            return new Mismatch(line, column, token, expected.prefix(), actual.prefix());
+        }
+    }
+
+    private boolean closeEnough(TokenReader actual, TokenReader expected) {
+        if (actual.overflowed() || expected.overflowed()) {
+            return false;
+        }
+        double a;
+        double e;
+        try {
+            a = Double.parseDouble(actual.prefix());
+            e = Double.parseDouble(expected.prefix());
+        } catch (NumberFormatException ex) {
+            return false;
+        }
+        if (Double.isNaN(a) || Double.isNaN(e)) {
+            return Double.isNaN(a) && Double.isNaN(e);
+        }
+        if (Double.isInfinite(a) || Double.isInfinite(e)) {
+            return a == e;
+        }
+        double difference = Math.abs(a - e);
+        return difference <= absoluteTolerance || difference <= relativeTolerance * Math.abs(e);
+    }
+
+    private boolean sameChar(char a, char e) {
+        return a == e || ignoreCase && Character.toLowerCase(a) == Character.toLowerCase(e);
+    }
+
+    /**
+     * Reads lines one character at a time, as BufferedReader.readLine splits
+     * them, remembering the first TOKEN_PREFIX_CHARS characters of the
+     * current line and how long it is without its trailing whitespace.
+     */
+    private static class LineReader {
+        private final BufferedReader in;
+        private final StringBuilder prefix = new StringBuilder(TOKEN_PREFIX_CHARS);
+        private int pending = EOF - 1; // Lookahead character, or EOF - 1 for none
+        private boolean skipLineFeed;
+        private boolean inLine;
+        private int length;
+        private int contentLength;
+
+        LineReader(BufferedReader in) {
+            this.in = in;
+        }
+
+        /**
+         * Moves to the next line; false at the end of input.
+         */
+        boolean startLine() throws IOException {
+            prefix.setLength(0);
+            length = 0;
+            contentLength = 0;
+            inLine = peek() != EOF;
+            return inLine;
+        }
+
+        /**
+         * Next character of the current line, or EOF once it has ended; the
+         * line terminator is consumed but not returned.
+         */
+        int nextLineChar() throws IOException {
+            if (!inLine) {
+                return EOF;
+            }
+            int c = peek();
+            pending = EOF - 1;
+            if (c == EOF || c == '\n' || c == '\r') {
+                // A "\r\n" pair ends one line
+                skipLineFeed = c == '\r';
+                inLine = false;
+                return EOF;
+            }
+            length++;
+            if (!Character.isWhitespace(c)) {
+                contentLength = length;
+            }
+            if (prefix.length() <= TOKEN_PREFIX_CHARS) {
+                prefix.append((char) c);
+            }
+            return c;
+        }
+
+        void readRest() throws IOException {
+            while (nextLineChar() != EOF) {
+                // Counting the line's length
+            }
+        }
+
+        /**
+         * True if the current line and all after it are blank.
+         */
+        boolean restIsBlank() throws IOException {
+            if (contentLength > 0) {
+                return false;
+            }
+            int c;
+            while ((c = in.read()) != EOF) {
+                if (!Character.isWhitespace(c)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // The current line without trailing whitespace, shortened for the message
+        String content() {
+            if (contentLength > TOKEN_PREFIX_CHARS) {
+                return prefix.substring(0, TOKEN_PREFIX_CHARS) + "...";
+            }
+            return prefix.substring(0, contentLength);
+        }
+
+        private int peek() throws IOException {
+            if (pending == EOF - 1) {
+                pending = in.read();
+                if (skipLineFeed && pending == '\n') {
+                    pending = in.read();
+                }
+                skipLineFeed = false;
+            }
+            return pending;
+        }
+    }
+
+    /**
+     * Reads whitespace-separated tokens one character at a time, remembering
+     * the first TOKEN_PREFIX_CHARS characters of the current token and where
+     * it started.
+     */
+    private static class TokenReader {
+        private final BufferedReader in;
+        private final StringBuilder prefix = new StringBuilder(TOKEN_PREFIX_CHARS);
+        private int pending = EOF - 1; // Lookahead character, or EOF - 1 for none
+        private int line = 1;
+        private int column = 1;
+        private boolean lastWasCarriageReturn;
+        private boolean inToken;
+
+        TokenReader(BufferedReader in) {
+            this.in = in;
+        }
+
+        /**
+         * Skips to the start of the next token; false at the end of input.
+         */
+        boolean skipWhitespace() throws IOException {
+            int c;
+            while ((c = peek()) != EOF && Character.isWhitespace(c)) {
+                advance();
+            }
+            return c != EOF;
+        }
+
+        void startToken() {
+            prefix.setLength(0);
+            inToken = true;
+        }
+
+        /**
+         * Next character of the current token, or EOF once it has ended.
+         */
+        int nextTokenChar() throws IOException {
+            if (!inToken) {
+                return EOF;
+            }
+            int c = peek();
+            if (c == EOF || Character.isWhitespace(c)) {
+                inToken = false;
+                return EOF;
+            }
+            advance();
+            if (prefix.length() <= TOKEN_PREFIX_CHARS) {
+                prefix.append((char) c);
+            }
+            return c;
+        }
+
+        /**
+         * Reads the current token up to just past the prefix limit; the rest
+         * is left unread, as nothing more is compared after a mismatch.
+         */
+        void readRest() throws IOException {
+            while (prefix.length() <= TOKEN_PREFIX_CHARS && nextTokenChar() != EOF) {
+                // Collecting into prefix
+            }
+        }
+
+        boolean overflowed() {
+            return prefix.length() > TOKEN_PREFIX_CHARS;
+        }
+
+        String prefix() {
+            return overflowed() ? prefix.substring(0, TOKEN_PREFIX_CHARS) + "..." : prefix.toString();
+        }
+
+        private int peek() throws IOException {
+            if (pending == EOF - 1) {
+                pending = in.read();
+            }
+            return pending;
+        }
+
+        private void advance() {
+            int c = pending;
+            pending = EOF - 1;
+            if (c == '\n') {
+                if (!lastWasCarriageReturn) {
+                    line++;
+                }
+                column = 1;
+            } else if (c == '\r') {
+                line++;
+                column = 1;
+            } else {
+                column++;
+            }
+            lastWasCarriageReturn = c == '\r';
+        }
+    }
+
+    /**
+     * First difference between the outputs. Token is the 1-based token
+     * number in token modes and 0 in line mode; line and column point into
+     * the actual output. Expected or actual is null when that side ended
+     * first.
+     */
+    static class Mismatch {
+        private final int line;
+        private final int column;
+        private final int token;
+        private final String expected;
+        private final String actual;
+
+        Mismatch(int line, int column, int token, String expected, String actual) {
+            this.line = line;
+            this.column = column;
+            this.token = token;
+            this.expected = expected;
+            this.actual = actual;
+        }
+
+        int getLine() {
+            return line;
+        }
+
+        int getColumn() {
+            return column;
+        }
+
+        int getToken() {
+            return token;
+        }
+
+        @Override
+        public String toString() {
+            String where = (token > 0 ? "token " + token + " at " : "") + "line " + line + ", column " + column;
+            if (expected == null) {
+                return where + ": expected end of output, got \"" + actual + "\"";
+            }
+            if (actual == null) {
+                return where + ": expected \"" + expected + "\", got end of output";
+            }
+            return where + ": expected \"" + expected + "\", got \"" + actual + "\"";
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.syntaxarena.backend.service;
+
+import com.syntaxarena.backend.model.ExecutionTimings;
+
+/**
+ * Splits one run's wall time into phases. Starting a phase ends the previous
+ * one; time spent in a phase more than once (batch runs) accumulates.
+ * Not thread-safe; each run owns its timer.
+ */
+public final class PhaseTimer {
+
+    public enum Phase {
+        PREPARE, COMPILE, SPAWN, RUN, COLLECT
+    }
+
+    private final long[] nanos = new long[Phase.values().length];
+    private Phase current;
+    private long since;
+
+    public void start(Phase phase) {
+        long now = System.nanoTime();
+        if (current != null) {
+            nanos[current.ordinal()] += now - since;
+        }
+        current = phase;
+        since = now;
+    }
+
+    /**
+     * Ends the current phase as of the given System.nanoTime() and continues
+     * with the next one, for boundaries observed after the fact.
+     */
+    public void split(long atNanos, Phase next) {
+        if (current != null) {
+            nanos[current.ordinal()] += atNanos - since;
+        }
+        current = next;
+        since = atNanos;
+    }
+
+    /**
+     * Adds time measured elsewhere, such as the user-code time a worker reports.
+     */
+    public void add(Phase phase, long amountNanos) {
+        nanos[phase.ordinal()] += amountNanos;
+    }
+
+    public void stop() {
+        if (current != null) {
+            nanos[current.ordinal()] += System.nanoTime() - since;
+            current = null;
+        }
+    }
+
+    public long get(Phase phase) {
+        return nanos[phase.ordinal()];
+    }
+
+    public ExecutionTimings toTimings() {
+        return new ExecutionTimings(get(Phase.PREPARE), get(Phase.COMPILE), get(Phase.SPAWN), get(Phase.RUN),
+                get(Phase.COLLECT));
+    }
+}
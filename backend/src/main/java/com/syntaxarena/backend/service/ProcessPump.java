@@ -0,0 +1,254 @@
+package com.syntaxarena.backend.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Collects a child process's stdout and stderr. Both streams are drained
+ * concurrently into size-capped buffers, so a chatty child can neither fill
+ * a pipe and deadlock nor exhaust backend memory. The deadline is measured
+ * from when the process started; when it passes the whole process tree is
+ * killed.
+ *
+ * With an OutputListener the pump streams decoded chunks as they arrive
+ * instead of buffering them.
+ */
+public final class ProcessPump {
+
+    // Time allowed for the pipes to drain after the process has exited
+    private static final long DRAIN_GRACE_MILLIS = 500;
+
+    private static final ExecutorService DRAINERS = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "process-pump");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private ProcessPump() {
+    }
+
+    /**
+     * Waits for the process to finish, or kills it once timeoutMillis have
+     * passed since startNanos (a System.nanoTime() taken before it was spawned).
+     */
+    public static Result run(Process process, long startNanos, long timeoutMillis, int maxBytes)
+            throws InterruptedException {
+        return run(process, startNanos, timeoutMillis, maxBytes, null);
+    }
+
+    /**
+     * Like run, but hands output to the listener as it is produced. The
+     * returned Result then carries empty output and error; maxBytes still
+     * caps how much of each stream is forwarded.
+     */
+    public static Result run(Process process, long startNanos, long timeoutMillis, int maxBytes,
+            OutputListener listener) throws InterruptedException {
+        // Any input has already been written; the child sees EOF from here on
+        closeQuietly(process.getOutputStream());
+
+        CappedBuffer stdout = new CappedBuffer(maxBytes, OutputListener.STDOUT, listener);
+        CappedBuffer stderr = new CappedBuffer(maxBytes, OutputListener.STDERR, listener);
+        Future<?> outDrain = DRAINERS.submit(() -> drain(process.getInputStream(), stdout));
+        Future<?> errDrain = DRAINERS.submit(() -> drain(process.getErrorStream(), stderr));
+
+        long remainingNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis) - (System.nanoTime() - startNanos);
+        boolean finished;
+        try {
+            finished = process.waitFor(Math.max(0, remainingNanos), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            killTree(process);
+            throw e;
+        }
+        if (!finished) {
+            killTree(process);
+        }
+        long exitedAtNanos = System.nanoTime();
+
+        // A grandchild that inherited the pipes can keep them open; don't wait on it forever
+        awaitDrain(outDrain);
+        awaitDrain(errDrain);
+        if (!outDrain.isDone() || !errDrain.isDone()) {
+            killTree(process);
+            closeQuietly(process.getInputStream());
+            closeQuietly(process.getErrorStream());
+        }
+
+        Integer exitCode = finished ? process.exitValue() : null;
+        return new Result(stdout.toText(), stderr.toText(), exitCode, !finished,
+                stdout.isTruncated() || stderr.isTruncated(), exitedAtNanos);
+    }
+
+    /**
+     * Forcibly kills the process and everything it spawned.
+     */
+    public static void killTree(Process process) {
+        process.descendants().forEach(ProcessHandle::destroyForcibly);
+        process.destroyForcibly();
+    }
+
+    private static Void drain(InputStream in, CappedBuffer buffer) throws IOException {
+        byte[] chunk = new byte[8192];
+        int read;
+        try (in) {
+            // Keep reading past the cap so the child never blocks on a full pipe
+            while ((read = in.read(chunk)) != -1) {
+                buffer.write(chunk, read);
+            }
+        }
+        buffer.finish();
+        return null;
+    }
+
+    private static void awaitDrain(Future<?> drain) throws InterruptedException {
+        try {
+            drain.get(DRAIN_GRACE_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            // Pipe closed under us or still held open by a leftover process
+        }
+    }
+
+    private static void closeQuietly(java.io.Closeable stream) {
+        try {
+            stream.close();
+        } catch (IOException ignored) {
+            // Already closed by the child exiting
+        }
+    }
+
+    /**
+     * Receives output chunks from a streaming run.
+     */
+    public interface OutputListener {
+        String STDOUT = "stdout";
+        String STDERR = "stderr";
+
+        void onOutput(String stream, String text);
+    }
+
+    private static class CappedBuffer {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final int maxBytes;
+        private final String stream;
+        private final OutputListener listener;
+        // Chunks can split a multi-byte character, so streaming decodes incrementally
+        private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private ByteBuffer pending = ByteBuffer.allocate(0);
+        private int size;
+        private volatile boolean truncated;
+
+        CappedBuffer(int maxBytes, String stream, OutputListener listener) {
+            this.maxBytes = maxBytes;
+            this.stream = stream;
+            this.listener = listener;
+        }
+
+        synchronized void write(byte[] chunk, int length) {
+            int room = maxBytes - size;
+            if (length > room) {
+                truncated = true;
+            }
+            int kept = Math.min(Math.max(room, 0), length);
+            if (kept == 0) {
+                return;
+            }
+            size += kept;
+            if (listener == null) {
+                bytes.write(chunk, 0, kept);
+                return;
+            }
+            ByteBuffer input = ByteBuffer.allocate(pending.remaining() + kept);
+            input.put(pending).put(chunk, 0, kept).flip();
+            CharBuffer text = CharBuffer.allocate(input.remaining());
+            decoder.decode(input, text, false);
+            pending = input.slice();
+            if (text.position() > 0) {
+                listener.onOutput(stream, text.flip().toString());
+            }
+        }
+
+        synchronized void finish() {
+            if (listener == null || !pending.hasRemaining()) {
+                return;
+            }
+            CharBuffer text = CharBuffer.allocate(pending.remaining());
+            decoder.decode(pending, text, true);
+            decoder.flush(text);
+            pending = ByteBuffer.allocate(0);
+            listener.onOutput(stream, text.flip().toString());
+        }
+
+        synchronized String toText() {
+            return bytes.toString(StandardCharsets.UTF_8);
+        }
+
+        boolean isTruncated() {
+            return truncated;
+        }
+    }
+
+    /**
+     * Captured output of a finished (or killed) process.
+     */
+    public static class Result {
+        private final String output;
+        private final String error;
+        private final Integer exitCode;
+        private final boolean timedOut;
+        private final boolean truncated;
+        private final long exitedAtNanos;
+
+        public Result(String output, String error, Integer exitCode, boolean timedOut, boolean truncated) {
+            this(output, error, exitCode, timedOut, truncated, System.nanoTime());
+        }
+
+        public Result(String output, String error, Integer exitCode, boolean timedOut, boolean truncated,
+                long exitedAtNanos) {
+            this.output = output;
+            this.error = error;
+            this.exitCode = exitCode;
+            this.timedOut = timedOut;
+            this.truncated = truncated;
+            this.exitedAtNanos = exitedAtNanos;
+        }
+
+        public String getOutput() {
+            return output;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        // Null when the process was killed
+        public Integer getExitCode() {
+            return exitCode;
+        }
+
+        public boolean isTimedOut() {
+            return timedOut;
+        }
+
+        public boolean isTruncated() {
+            return truncated;
+        }
+
+        // System.nanoTime() at which the process exited or was killed; output may have drained after it
+        public long getExitedAtNanos() {
+            return exitedAtNanos;
+        }
+    }
+}
@@ -4,78 +4,65 @@ import com.syntaxarena.backend.model.QuestionRequest;
 import com.syntaxarena.backend.model.QuestionResponse;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
-import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 public class QuestionService {
 
-    @Value("${NVIDIA_API_KEY}")
-    private String apiKey;
-
-    private final HttpClient httpClient = HttpClient.newBuilder()
-            .version(HttpClient.Version.HTTP_2)
-            .connectTimeout(Duration.ofSeconds(10))
-            .build();
-
     private final ObjectMapper objectMapper = new ObjectMapper();
 
-    public QuestionResponse generateQuestion(QuestionRequest request) {
+    @Autowired
+    private LlmGateway llmGateway;
+
+    @Autowired
+    private ExecutionService executionService;
+
+    /**
+     * Generates a question and compiles its Java test harness, if it has one,
+     * so a broken harness shows up here once rather than on every submission.
+     * Never completes exceptionally; a fallback question stands in for a
+     * failed generation.
+     */
+    public CompletableFuture<QuestionResponse> generateQuestion(QuestionRequest request) {
+        return requestQuestion(request).thenApply(question -> {
+            String harness = question.getTestHarness();
+            if (harness != null && !harness.isEmpty() && question.getStarterCode() != null
+                    && !question.getStarterCode().isEmpty()) {
+                String errors = executionService.precompileHarness(question.getStarterCode(), harness);
+                if (errors != null) {
+                    System.out.println("Test harness for \"" + question.getTitle() + "\" does not compile: " + errors);
+                }
+            }
+            return question;
+        });
+    }
+
+    private CompletableFuture<QuestionResponse> requestQuestion(QuestionRequest request) {
         String prompt = createPrompt(request);
 
-        // NVIDIA (OpenAI-compatible) payload
-        try {
-            Map<String, Object> payload = new HashMap<>();
-            payload.put("model", "nvidia/nemotron-3-nano-30b-a3b");
-            payload.put("temperature", 1);
-            payload.put("top_p", 1);
-            payload.put("max_tokens", 8192); // Reduced from 16k to be safe, or stick to 4k
-            payload.put("stream", false);
-
-            Map<String, Object> message = new HashMap<>();
-            message.put("role", "user");
-            message.put("content", prompt);
-            payload.put("messages", List.of(message));
-
-            // Extra body for reasoning if needed, though we just want the output
-            Map<String, Object> extra = new HashMap<>();
-            extra.put("enable_thinking", true);
-            payload.put("chat_template_kwargs", extra);
-
-            String requestBody = objectMapper.writeValueAsString(payload);
-
-            String url = "https://integrate.api.nvidia.com/v1/chat/completions";
-
-            HttpRequest httpRequest = HttpRequest.newBuilder()
-                    .uri(URI.create(url))
-                    .header("Content-Type", "application/json")
-                    .header("Authorization", "Bearer " + apiKey)
-                    .POST(HttpRequest.BodyPublishers.ofString(requestBody))
-                    .build();
-
-            HttpResponse<String> response = httpClient.send(httpRequest, HttpResponse.BodyHandlers.ofString());
-
-            if (response.statusCode() == 200) {
-                return parseResponse(response.body());
+        LlmGateway.ChatRequest chat = new LlmGateway.ChatRequest("question");
+        chat.setTemperature(1.0);
+        chat.setTopP(1.0);
+        chat.setMaxTokens(8192); // Reduced from 16k to be safe, or stick to 4k
+        chat.setThinking(true);
+        chat.addMessage("user", prompt);
+
+        return llmGateway.completeAsync(chat).thenApply(completion -> {
+            if (completion.isSuccess()) {
+                return parseResponse(completion.getContent());
             } else {
-                System.out.println("API Error: " + response.body() + ". Utilizing fallback.");
+                System.out.println("API Error: " + completion.getBody() + ". Utilizing fallback.");
                 return getFallbackQuestion(request.getDifficulty());
             }
-
-        } catch (Exception e) {
-            System.out.println("Exception: " + e.getMessage() + ". Utilizing fallback.");
+        }).exceptionally(error -> {
+            System.out.println("Exception: " + LlmGateway.unwrap(error).getMessage() + ". Utilizing fallback.");
             return getFallbackQuestion(request.getDifficulty());
-        }
+        });
     }
 
     private QuestionResponse getFallbackQuestion(String difficulty) {
@@ -155,11 +142,9 @@ public class QuestionService {
 
     // Helper for parsing JSON from Gemini which might not have test harness yet
     // For now we will just pass null or empty string for dynamic ones
-    private QuestionResponse parseResponse(String jsonResponse) {
+    private QuestionResponse parseResponse(String content) {
         try {
-            JsonNode root = objectMapper.readTree(jsonResponse);
-            // OpenAI format: choices[0].message.content
-            String text = root.path("choices").get(0).path("message").path("content").asText();
+            String text = content;
 
             // The text should be the JSON object we asked for
             // Clean potentially markdown blocks like ```json
@@ -193,7 +178,7 @@ public class QuestionService {
             return new QuestionResponse(title, description, examples, starterCode, "");
 
         } catch (Exception e) {
-            return new QuestionResponse("Error Parsing", "Raw response: " + jsonResponse, List.of(), "", "");
+            return new QuestionResponse("Error Parsing", "Raw response: " + content, List.of(), "", "");
         }
     }
 }
@@ -0,0 +1,379 @@
+package com.syntaxarena.backend.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.syntaxarena.backend.model.ExecutionRequest;
+import com.syntaxarena.backend.model.ExecutionResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs submissions on executor nodes (see {@link ExecutionNodeServer}). Each
+ * job goes to the healthy node with the lowest load relative to its slots,
+ * where load is what the node last reported plus the jobs sent to it since.
+ * Nodes are probed every execution.remote.health-interval-ms; one that fails
+ * a probe or drops a job is avoided until it answers a probe again. A job
+ * whose node is lost is retried on another node, up to
+ * execution.remote.max-attempts nodes in all, unless streamed output has
+ * already reached the caller. Harness precompiles go to every node, as each
+ * keeps its own harness cache.
+ */
+@Service
+public class RemoteExecutionBackend implements ExecutionBackend {
+
+    // Comma-separated "host:port" or "unix:/path" addresses
+    @Value("${execution.remote.nodes:}")
+    private String nodeAddresses;
+
+    @Value("${execution.remote.max-attempts:3}")
+    private int maxAttempts;
+
+    // Also bounds a status probe as a whole
+    @Value("${execution.remote.connect-timeout-ms:1000}")
+    private int connectTimeoutMillis;
+
+    // Longest a job may take on a node, waiting for a slot there included
+    @Value("${execution.remote.job-timeout-ms:120000}")
+    private long jobTimeoutMillis;
+
+    // Must match the nodes' execution.node.secret
+    @Value("${execution.node.secret:}")
+    private String secret;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final List<Node> nodes = new ArrayList<>();
+    // Rotates the starting node so that equally loaded nodes share the work
+    private final AtomicInteger nextStart = new AtomicInteger();
+
+    // Closes connections whose job or probe has run past its deadline
+    private final ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "execution-remote-watchdog");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private Counter completed;
+    private Counter failed;
+    private Counter nodeLosses;
+
+    @PostConstruct
+    public void start() {
+        for (String address : nodeAddresses.split(",")) {
+            if (!address.isBlank()) {
+                nodes.add(new Node(address.trim(), ExecutionProtocol.parseAddress(address)));
+            }
+        }
+        completed = meterRegistry.counter("execution.remote.jobs", "result", "completed");
+        failed = meterRegistry.counter("execution.remote.jobs", "result", "failed");
+        nodeLosses = meterRegistry.counter("execution.remote.node_losses");
+        Gauge.builder("execution.remote.nodes.healthy", nodes,
+                list -> list.stream().filter(node -> node.healthy).count()).register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        watchdog.shutdownNow();
+    }
+
+    @Override
+    public ExecutionResponse executeCode(ExecutionRequest request) {
+        return dispatch(ExecutionProtocol.RUN, request, null, null);
+    }
+
+    @Override
+    public ExecutionResponse executeUntilFailure(ExecutionRequest request,
+            ExecutionService.TestCaseListener listener) {
+        return dispatch(ExecutionProtocol.RUN_UNTIL_FAILURE, request, listener, null);
+    }
+
+    @Override
+    public ExecutionResponse executeCodeStreaming(ExecutionRequest request, ProcessPump.OutputListener listener) {
+        return dispatch(ExecutionProtocol.RUN_STREAMING, request, null, listener);
+    }
+
+    /**
+     * Compiles the harness on every node that answers, so that each one's
+     * first submission for the problem only compiles Solution.java. Returns
+     * the first compile errors reported, or null.
+     */
+    @Override
+    public String precompileHarness(String starterCode, String testHarness) {
+        Map<String, String> body = Map.of("starterCode", starterCode, "testHarness", testHarness);
+        String errors = null;
+        for (Node node : nodes) {
+            try (SocketChannel channel = ExecutionProtocol.connect(node.address, connectTimeoutMillis)) {
+                ScheduledFuture<?> deadline = watchdog.schedule(() -> closeQuietly(channel), jobTimeoutMillis,
+                        TimeUnit.MILLISECONDS);
+                try {
+                    DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+                    DataOutputStream out = new DataOutputStream(
+                            new BufferedOutputStream(Channels.newOutputStream(channel)));
+                    ExecutionProtocol.authenticate(in, out, secret);
+                    ExecutionProtocol.writeFrame(out, ExecutionProtocol.PRECOMPILE, body);
+                    ExecutionProtocol.Frame frame = ExecutionProtocol.readFrame(in);
+                    if (frame.getType() != ExecutionProtocol.COMPILE_REPLY) {
+                        throw new IOException("Unexpected frame type " + frame.getType());
+                    }
+                    JsonNode reply = frame.read(JsonNode.class).path("errors");
+                    if (errors == null && !reply.isNull() && !reply.isMissingNode()) {
+                        errors = reply.asText();
+                    }
+                } finally {
+                    deadline.cancel(false);
+                }
+            } catch (IOException e) {
+                // The node compiles the harness with its first submission instead
+                System.out.println("Could not precompile harness on executor node " + node.name + ": "
+                        + describe(e));
+            }
+        }
+        return errors;
+    }
+
+    /**
+     * Asks every node for its load. A node that answers is healthy again.
+     */
+    @Scheduled(fixedDelayString = "${execution.remote.health-interval-ms:2000}")
+    public void checkNodes() {
+        for (Node node : nodes) {
+            try {
+                JsonNode status = probe(node);
+                node.reportedActive = status.path("active").asInt();
+                node.inFlightAtReport = node.inFlight.get();
+                node.capacity = Math.max(1, status.path("capacity").asInt(1));
+                if (!node.healthy) {
+                    node.healthy = true;
+                    System.out.println("Executor node " + node.name + " is up");
+                }
+            } catch (IOException e) {
+                markDown(node, e);
+            }
+        }
+    }
+
+    private ExecutionResponse dispatch(byte type, ExecutionRequest request,
+            ExecutionService.TestCaseListener testListener, ProcessPump.OutputListener outputListener) {
+        if (nodes.isEmpty()) {
+            failed.increment();
+            return new ExecutionResponse("", "Execution failed: no executor nodes configured");
+        }
+
+        // A retry reports the cases the lost node already reported again; the caller sees each once
+        Set<Integer> reportedTests = new HashSet<>();
+        AtomicBoolean streamed = new AtomicBoolean();
+        ExecutionService.TestCaseListener tests = testListener == null ? null : result -> {
+            if (reportedTests.add(result.getTestNumber())) {
+                testListener.onTestResult(result);
+            }
+        };
+        ProcessPump.OutputListener output = outputListener == null ? null : (stream, text) -> {
+            streamed.set(true);
+            outputListener.onOutput(stream, text);
+        };
+
+        List<Node> tried = new ArrayList<>();
+        String lastError = "no executor node available";
+        for (int attempt = 0; attempt < maxAttempts; attempt++) {
+            Node node = pick(tried);
+            if (node == null) {
+                break;
+            }
+            tried.add(node);
+            try {
+                ExecutionResponse response = runOn(node, type, request, tests, output);
+                completed.increment();
+                return response;
+            } catch (NodeTimeoutException e) {
+                // Another node would most likely take just as long
+                failed.increment();
+                return new ExecutionResponse("", "Execution failed: " + e.getMessage());
+            } catch (IOException e) {
+                nodeLosses.increment();
+                markDown(node, e);
+                lastError = "executor node " + node.name + " failed: " + describe(e);
+                if (streamed.get()) {
+                    // Output the caller has already seen cannot be taken back
+                    break;
+                }
+            }
+        }
+        failed.increment();
+        return new ExecutionResponse("", "Execution failed: " + lastError);
+    }
+
+    /**
+     * Least loaded node not tried yet, preferring healthy ones. A node that
+     * is down is still tried when all others have been, as it may have come
+     * back since the last probe.
+     */
+    private synchronized Node pick(List<Node> tried) {
+        Node best = null;
+        double bestLoad = 0;
+        int start = Math.floorMod(nextStart.getAndIncrement(), nodes.size());
+        for (int i = 0; i < nodes.size(); i++) {
+            Node node = nodes.get((start + i) % nodes.size());
+            if (tried.contains(node)) {
+                continue;
+            }
+            double load = node.load();
+            if (best == null || node.healthy && !best.healthy || node.healthy == best.healthy && load < bestLoad) {
+                best = node;
+                bestLoad = load;
+            }
+        }
+        if (best != null) {
+            // Counted here, not once connected, so concurrent picks see it
+            best.inFlight.incrementAndGet();
+        }
+        return best;
+    }
+
+    private ExecutionResponse runOn(Node node, byte type, ExecutionRequest request,
+            ExecutionService.TestCaseListener testListener, ProcessPump.OutputListener outputListener)
+            throws IOException {
+        AtomicBoolean timedOut = new AtomicBoolean();
+        try (SocketChannel channel = ExecutionProtocol.connect(node.address, connectTimeoutMillis)) {
+            ScheduledFuture<?> deadline = watchdog.schedule(() -> {
+                timedOut.set(true);
+                closeQuietly(channel);
+            }, jobTimeoutMillis, TimeUnit.MILLISECONDS);
+            try {
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+                DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+                ExecutionProtocol.authenticate(in, out, secret);
+                ExecutionProtocol.writeFrame(out, type, request);
+
+                while (true) {
+                    ExecutionProtocol.Frame frame = ExecutionProtocol.readFrame(in);
+                    switch (frame.getType()) {
+                        case ExecutionProtocol.TEST_RESULT -> {
+                            if (testListener != null) {
+                                testListener.onTestResult(frame.read(ExecutionResponse.TestCaseResult.class));
+                            }
+                        }
+                        case ExecutionProtocol.OUTPUT -> {
+                            if (outputListener != null) {
+                                JsonNode chunk = frame.read(JsonNode.class);
+                                outputListener.onOutput(chunk.path("stream").asText(), chunk.path("text").asText());
+                            }
+                        }
+                        case ExecutionProtocol.RESULT -> {
+                            return frame.read(ExecutionResponse.class);
+                        }
+                        case ExecutionProtocol.ERROR -> throw new IOException(
+                                frame.read(JsonNode.class).path("message").asText());
+                        default -> throw new IOException("Unexpected frame type " + frame.getType());
+                    }
+                }
+            } catch (IOException e) {
+                if (timedOut.get()) {
+                    throw new NodeTimeoutException("executor node " + node.name + " did not finish within "
+                            + jobTimeoutMillis + " ms");
+                }
+                throw e;
+            } finally {
+                deadline.cancel(false);
+            }
+        } finally {
+            node.inFlight.decrementAndGet();
+        }
+    }
+
+    private JsonNode probe(Node node) throws IOException {
+        try (SocketChannel channel = ExecutionProtocol.connect(node.address, connectTimeoutMillis)) {
+            ScheduledFuture<?> deadline = watchdog.schedule(() -> closeQuietly(channel), connectTimeoutMillis,
+                    TimeUnit.MILLISECONDS);
+            try {
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+                DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+                ExecutionProtocol.authenticate(in, out, secret);
+                ExecutionProtocol.writeFrame(out, ExecutionProtocol.STATUS, null);
+                ExecutionProtocol.Frame frame = ExecutionProtocol.readFrame(in);
+                if (frame.getType() != ExecutionProtocol.STATUS_REPLY) {
+                    throw new IOException("Unexpected frame type " + frame.getType());
+                }
+                return frame.read(JsonNode.class);
+            } finally {
+                deadline.cancel(false);
+            }
+        }
+    }
+
+    private static void markDown(Node node, IOException cause) {
+        if (node.healthy) {
+            node.healthy = false;
+            System.out.println("Executor node " + node.name + " is down: " + describe(cause));
+        }
+    }
+
+    private static String describe(IOException e) {
+        return e instanceof EOFException ? "connection closed" : e.getMessage();
+    }
+
+    private static void closeQuietly(SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Closing only to unblock the reader
+        }
+    }
+
+    private static class Node {
+        private final String name;
+        private final SocketAddress address;
+        // Assumed up until a probe or a job says otherwise
+        private volatile boolean healthy = true;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private volatile int reportedActive;
+        private volatile int inFlightAtReport;
+        private volatile int capacity = 1;
+
+        Node(String name, SocketAddress address) {
+            this.name = name;
+            this.address = address;
+        }
+
+        // Jobs from other clients as of the last probe, plus ours now, per slot
+        double load() {
+            int others = Math.max(0, reportedActive - inFlightAtReport);
+            return (double) (others + inFlight.get()) / capacity;
+        }
+    }
+
+    private static class NodeTimeoutException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        NodeTimeoutException(String message) {
+            super(message);
+        }
+    }
+}
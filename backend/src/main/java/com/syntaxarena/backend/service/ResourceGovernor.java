@@ -0,0 +1,465 @@
+package com.syntaxarena.backend.service;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Puts memory, CPU-time, file-size and process-count limits on every child
+ * process that runs user code, and measures what each run used.
+ *
+ * When the backend has a writable cgroup v2 parent, every sandbox gets its
+ * own group with memory.max and pids.max, and usage is read back from
+ * cpu.stat and memory.peak. Without cgroups the same limits are applied as
+ * rlimits through prlimit and usage is sampled from /proc. CPU time is capped
+ * with RLIMIT_CPU in both modes, since cgroups can only throttle CPU, and the
+ * size of any one file a run writes with RLIMIT_FSIZE. In cgroup mode files a
+ * run writes to tmpfs also count against its memory.max.
+ */
+@Service
+public class ResourceGovernor {
+
+    private static final long SAMPLE_INTERVAL_MILLIS = 10;
+    // Pooled workers sit idle most of their life, so their process tree is walked less often
+    private static final long WORKER_SAMPLE_INTERVAL_MILLIS = 50;
+    private static final long CLOCK_TICK_NANOS = 10_000_000; // USER_HZ is 100 on Linux
+    private static final long PAGE_SIZE = 4096;
+
+    // Killed by RLIMIT_CPU (128 + SIGXCPU)
+    static final int EXIT_CPU_LIMIT = 152;
+    // Killed by RLIMIT_FSIZE (128 + SIGXFSZ)
+    private static final int EXIT_FILE_LIMIT = 153;
+    // Killed by the sampler for going over the pid cap (128 + SIGKILL)
+    static final int EXIT_PIDS_LIMIT = 137;
+
+    private static final ScheduledExecutorService SAMPLER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "resource-sampler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Value("${execution.limits.enabled:true}")
+    private boolean enabled;
+
+    @Value("${execution.limits.memory-mb:256}")
+    private int memoryMb;
+
+    @Value("${execution.limits.cpu-seconds:10}")
+    private int cpuSeconds;
+
+    @Value("${execution.limits.pids:64}")
+    private int pids;
+
+    @Value("${execution.limits.file-mb:16}")
+    private int fileMb;
+
+    @Value("${execution.limits.cgroup-parent:/sys/fs/cgroup/syntaxarena}")
+    private String cgroupParent;
+
+    // Null when cgroups are not usable on this host
+    private Path cgroupRoot;
+    private String prlimit;
+    private final AtomicLong groupIds = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            System.out.println("Resource governor disabled; runs have no memory, CPU or pid limits");
+            return;
+        }
+        prlimit = Stream.of("/usr/bin/prlimit", "/bin/prlimit")
+                .filter(path -> Files.isExecutable(Path.of(path)))
+                .findFirst().orElse(null);
+        cgroupRoot = setUpCgroupRoot();
+        if (cgroupRoot != null) {
+            System.out.println("Resource governor using cgroup v2 under " + cgroupRoot);
+        } else if (prlimit != null) {
+            System.out.println("Resource governor using rlimits (cgroup v2 not available)");
+        } else {
+            System.out.println("Resource governor found neither cgroup v2 nor prlimit; runs are not limited");
+        }
+    }
+
+    /**
+     * Sandbox for a single run: all limits apply and usage is measured.
+     */
+    public Sandbox open(List<String> command) {
+        return new Sandbox(command, true);
+    }
+
+    /**
+     * Sandbox for a long-lived worker that serves many runs. The memory cap
+     * applies as for open, and so does the pid cap: pids.max with cgroups,
+     * otherwise the sampler counts the worker's processes and kills it once
+     * there are too many (see isPidsExceeded), so the pool retires it.
+     * RLIMIT_CPU would count the worker's whole lifetime, so InterpreterWorker
+     * enforces the CPU limit per run from cpuNanos instead, and the worker
+     * reports per-run usage itself.
+     */
+    public Sandbox openWorker(List<String> command) {
+        return new Sandbox(command, false);
+    }
+
+    /**
+     * True when what a run writes to tmpfs is charged to its cgroup, and so
+     * bounded by the memory limit.
+     */
+    public boolean chargesTmpfs() {
+        return cgroupRoot != null;
+    }
+
+    /**
+     * JVM options that keep a launcher JVM inside the memory cap, so a large
+     * allocation ends in an OutOfMemoryError rather than a native crash.
+     */
+    public List<String> jvmOptions() {
+        if (!enabled) {
+            return List.of();
+        }
+        return List.of("-Xmx" + Math.max(16, memoryMb / 2) + "m", "-XX:+UseSerialGC");
+    }
+
+    private Path setUpCgroupRoot() {
+        if (!Files.exists(Path.of("/sys/fs/cgroup/cgroup.controllers"))) {
+            // cgroup v1 or no cgroup filesystem
+            return null;
+        }
+        Path parent = Path.of(cgroupParent);
+        try {
+            Files.createDirectories(parent);
+            String controllers = Files.readString(parent.resolve("cgroup.controllers"));
+            if (!controllers.contains("memory") || !controllers.contains("pids")) {
+                System.out.println("cgroup " + parent + " lacks memory/pids controllers: " + controllers.trim());
+                return null;
+            }
+            writeControl(parent.resolve("cgroup.subtree_control"), "+memory +pids");
+            return parent;
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Could not set up cgroup " + parent + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static void writeControl(Path file, String value) throws IOException {
+        Files.write(file, value.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static String readControl(Path file) {
+        try {
+            return Files.readString(file, StandardCharsets.US_ASCII);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static long readFlatKey(Path file, String key) {
+        String content = readControl(file);
+        if (content == null) {
+            return -1;
+        }
+        for (String line : content.split("\n")) {
+            String[] parts = line.trim().split(" ");
+            if (parts.length == 2 && parts[0].equals(key)) {
+                return Long.parseLong(parts[1]);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * The limits and bookkeeping for one child process. Create the process
+     * with start, and call close once it has exited (or been killed) to get
+     * its usage and release the cgroup.
+     */
+    public class Sandbox {
+        private final List<String> command = new ArrayList<>();
+        private final boolean perRun;
+        private Path group;
+        private Process process;
+        private long startNanos;
+        private volatile long exitNanos;
+        private ScheduledFuture<?> sampling;
+
+        // Fallback measurements, written by the sampler thread
+        private volatile long sampledCpuNanos = -1;
+        private volatile long sampledPeakRss = -1;
+        private volatile boolean pidsExceeded;
+
+        private Sandbox(List<String> userCommand, boolean perRun) {
+            this.perRun = perRun;
+            if (enabled && cgroupRoot != null) {
+                group = createGroup();
+            }
+            if (group != null) {
+                // The shell joins the group before exec, so every descendant is born inside it
+                command.addAll(List.of("sh", "-c", "echo $$ > \"$0\" && exec \"$@\"",
+                        group.resolve("cgroup.procs").toString()));
+            }
+            if (enabled && prlimit != null) {
+                command.add(prlimit);
+                if (perRun) {
+                    // SIGXCPU at the soft limit, SIGKILL a second later if it is ignored
+                    command.add("--cpu=" + cpuSeconds + ":" + (cpuSeconds + 1));
+                }
+                if (group == null) {
+                    command.add("--data=" + (long) memoryMb * 1024 * 1024);
+                }
+                command.add("--fsize=" + (long) fileMb * 1024 * 1024);
+                command.add("--");
+            }
+            command.addAll(userCommand);
+        }
+
+        private Path createGroup() {
+            Path dir = cgroupRoot.resolve("run-" + groupIds.incrementAndGet());
+            try {
+                Files.createDirectory(dir);
+                writeControl(dir.resolve("memory.max"), String.valueOf((long) memoryMb * 1024 * 1024));
+                writeControl(dir.resolve("pids.max"), String.valueOf(pids));
+                try {
+                    writeControl(dir.resolve("memory.swap.max"), "0");
+                } catch (IOException e) {
+                    // No swap accounting on this kernel
+                }
+                return dir;
+            } catch (IOException e) {
+                System.out.println("Could not create cgroup " + dir + ": " + e.getMessage());
+                removeGroup(dir, 0);
+                return null;
+            }
+        }
+
+        public List<String> getCommand() {
+            return command;
+        }
+
+        /**
+         * CPU time the process and its descendants have used so far, or -1
+         * if it cannot be read.
+         */
+        public long cpuNanos() {
+            if (group != null) {
+                long cpuMicros = readFlatKey(group.resolve("cpu.stat"), "usage_usec");
+                return cpuMicros >= 0 ? cpuMicros * 1000 : -1;
+            }
+            Process target = process;
+            long[] root = target != null ? readStat(target.pid()) : null;
+            if (root == null) {
+                return -1;
+            }
+            long cpuTicks = root[0];
+            for (ProcessHandle child : target.descendants().toList()) {
+                long[] stat = readStat(child.pid());
+                if (stat != null) {
+                    cpuTicks += stat[0];
+                }
+            }
+            return cpuTicks * CLOCK_TICK_NANOS;
+        }
+
+        // CPU time one run may use, or -1 when limits are off
+        public long runCpuLimitNanos() {
+            return enabled && cpuSeconds > 0 ? TimeUnit.SECONDS.toNanos(cpuSeconds) : -1;
+        }
+
+        public Process start(ProcessBuilder builder) throws IOException {
+            builder.command(command);
+            startNanos = System.nanoTime();
+            try {
+                process = builder.start();
+            } catch (IOException e) {
+                close();
+                throw e;
+            }
+            process.onExit().thenRun(() -> exitNanos = System.nanoTime());
+            if (group == null && enabled) {
+                long interval = perRun ? SAMPLE_INTERVAL_MILLIS : WORKER_SAMPLE_INTERVAL_MILLIS;
+                sample();
+                sampling = SAMPLER.scheduleAtFixedRate(this::sample, interval, interval, TimeUnit.MILLISECONDS);
+            }
+            return process;
+        }
+
+        /**
+         * True once the sampler killed the process for starting more
+         * processes than the pid cap allows; only happens without cgroups.
+         */
+        public boolean isPidsExceeded() {
+            return pidsExceeded;
+        }
+
+        /**
+         * Kills anything left in the sandbox and returns what the run used.
+         */
+        public Usage close() {
+            if (sampling != null) {
+                sampling.cancel(false);
+            }
+            long wallNanos = -1;
+            if (process != null) {
+                long end = exitNanos != 0 ? exitNanos : System.nanoTime();
+                wallNanos = end - startNanos;
+            }
+            String limitExceeded = null;
+            if (process != null && !process.isAlive()) {
+                if (perRun && process.exitValue() == EXIT_CPU_LIMIT) {
+                    limitExceeded = "CPU time";
+                } else if (process.exitValue() == EXIT_FILE_LIMIT) {
+                    limitExceeded = "File size";
+                }
+            }
+
+            if (group == null) {
+                if (pidsExceeded) {
+                    limitExceeded = "Process count";
+                }
+                return new Usage(sampledCpuNanos, wallNanos, sampledPeakRss, limitExceeded);
+            }
+
+            long cpuMicros = readFlatKey(group.resolve("cpu.stat"), "usage_usec");
+            String peak = readControl(group.resolve("memory.peak"));
+            long peakRss = peak != null ? Long.parseLong(peak.trim()) : -1;
+            if (readFlatKey(group.resolve("memory.events"), "oom_kill") > 0) {
+                limitExceeded = "Memory";
+            } else if (readFlatKey(group.resolve("pids.events"), "max") > 0) {
+                limitExceeded = "Process count";
+            }
+            killGroup();
+            removeGroup(group, 0);
+            return new Usage(cpuMicros >= 0 ? cpuMicros * 1000 : -1, wallNanos, peakRss, limitExceeded);
+        }
+
+        private void killGroup() {
+            try {
+                writeControl(group.resolve("cgroup.kill"), "1");
+                return;
+            } catch (IOException e) {
+                // cgroup.kill needs Linux 5.14; kill the members one by one
+            }
+            String members = readControl(group.resolve("cgroup.procs"));
+            if (members != null) {
+                members.lines().filter(line -> !line.isBlank())
+                        .forEach(pid -> ProcessHandle.of(Long.parseLong(pid.trim()))
+                                .ifPresent(ProcessHandle::destroyForcibly));
+            }
+        }
+
+        // Walks the process tree; runs on the sampler thread
+        private void sample() {
+            Process target = process;
+            if (target == null || !target.isAlive()) {
+                return;
+            }
+            long[] root = readStat(target.pid());
+            if (root == null) {
+                return;
+            }
+            long cpuTicks = root[0];
+            long rss = Math.max(readPeakRss(target.pid()), root[1]);
+            List<ProcessHandle> descendants = target.descendants().toList();
+            for (ProcessHandle child : descendants) {
+                long[] stat = readStat(child.pid());
+                if (stat != null) {
+                    cpuTicks += stat[0];
+                    rss += stat[1];
+                }
+            }
+            sampledCpuNanos = Math.max(sampledCpuNanos, cpuTicks * CLOCK_TICK_NANOS);
+            sampledPeakRss = Math.max(sampledPeakRss, rss);
+
+            // RLIMIT_NPROC counts every process of the user, so the pid cap is enforced here instead
+            if (descendants.size() + 1 > pids) {
+                pidsExceeded = true;
+                ProcessPump.killTree(target);
+            }
+        }
+    }
+
+    // {utime + stime + cutime + cstime in ticks, resident bytes}, or null if the process is gone
+    private static long[] readStat(long pid) {
+        String stat = readControl(Path.of("/proc", String.valueOf(pid), "stat"));
+        String statm = readControl(Path.of("/proc", String.valueOf(pid), "statm"));
+        if (stat == null || statm == null) {
+            return null;
+        }
+        // Fields after the parenthesised command name, starting at field 3 (state)
+        String[] fields = stat.substring(stat.lastIndexOf(')') + 2).split(" ");
+        long ticks = Long.parseLong(fields[11]) + Long.parseLong(fields[12])
+                + Long.parseLong(fields[13]) + Long.parseLong(fields[14]);
+        long resident = Long.parseLong(statm.split(" ")[1]) * PAGE_SIZE;
+        return new long[] { ticks, resident };
+    }
+
+    // VmHWM catches peaks that fall between two samples
+    private static long readPeakRss(long pid) {
+        String status = readControl(Path.of("/proc", String.valueOf(pid), "status"));
+        if (status != null) {
+            for (String line : status.split("\n")) {
+                if (line.startsWith("VmHWM:")) {
+                    return Long.parseLong(line.replaceAll("[^0-9]", "")) * 1024;
+                }
+            }
+        }
+        return -1;
+    }
+
+    // rmdir fails while the kernel is still tearing down killed members, so retry briefly
+    private static void removeGroup(Path dir, int attempt) {
+        try {
+            Files.deleteIfExists(dir);
+        } catch (IOException e) {
+            if (attempt < 20) {
+                SAMPLER.schedule(() -> removeGroup(dir, attempt + 1), 50, TimeUnit.MILLISECONDS);
+            } else {
+                System.out.println("Could not remove cgroup " + dir + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * What a run used. Values are -1 when they could not be measured.
+     */
+    public static class Usage {
+        private final long cpuNanos;
+        private final long wallNanos;
+        private final long peakRssBytes;
+        private final String limitExceeded;
+
+        public Usage(long cpuNanos, long wallNanos, long peakRssBytes, String limitExceeded) {
+            this.cpuNanos = cpuNanos;
+            this.wallNanos = wallNanos;
+            this.peakRssBytes = peakRssBytes;
+            this.limitExceeded = limitExceeded;
+        }
+
+        public long getCpuNanos() {
+            return cpuNanos;
+        }
+
+        public long getWallNanos() {
+            return wallNanos;
+        }
+
+        public long getPeakRssBytes() {
+            return peakRssBytes;
+        }
+
+        // "CPU time", "Memory", "File size" or "Process count" when the run hit that limit, otherwise null
+        public String getLimitExceeded() {
+            return limitExceeded;
+        }
+    }
+}
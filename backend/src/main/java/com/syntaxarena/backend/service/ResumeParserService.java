@@ -1,15 +1,14 @@
 package com.syntaxarena.backend.service;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
 import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 public class ResumeParserService {
@@ -20,20 +19,28 @@ public class ResumeParserService {
     @Value("${NVIDIA_RESUME_PARSER_KEY:}")
     private String nvidiaApiKey;
 
+    @Autowired
+    private LlmGateway llmGateway;
+
     private static final String GEMINI_VISION_ENDPOINT = "https://generativelanguage.googleapis.com/v1beta/models/gemini-1.5-flash:generateContent";
 
-    public String parseResumeFromImage(MultipartFile file) throws IOException, InterruptedException {
+    public CompletableFuture<String> parseResumeFromImage(MultipartFile file) {
         // Try Gemini API first (more reliable)
+        CompletableFuture<String> parsed;
         try {
-            return parseWithGemini(file);
-        } catch (Exception e) {
-            System.err.println("Gemini parsing failed: " + e.getMessage());
+            parsed = parseWithGemini(file);
+        } catch (IOException e) {
+            parsed = CompletableFuture.failedFuture(e);
+        }
+        return parsed.exceptionally(error -> {
+            System.err.println("Gemini parsing failed: " + LlmGateway.unwrap(error).getMessage());
             // Fallback to mock data if API fails
             return createMockResumeData();
-        }
+        });
     }
 
-    private String parseWithGemini(MultipartFile file) throws IOException, InterruptedException {
+    // The upload is read here, on the request thread, before the call goes out
+    private CompletableFuture<String> parseWithGemini(MultipartFile file) throws IOException {
         // Convert file to base64
         byte[] fileBytes = file.getBytes();
         String base64Image = Base64.getEncoder().encodeToString(fileBytes);
@@ -87,38 +94,33 @@ public class ResumeParserService {
                 base64Image);
 
         // Make API call
-        HttpClient client = HttpClient.newHttpClient();
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(GEMINI_VISION_ENDPOINT + "?key=" + geminiApiKey))
-                .header("Content-Type", "application/json")
-                .POST(HttpRequest.BodyPublishers.ofString(requestBody))
-                .build();
-
-        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
-
-        if (response.statusCode() == 200) {
-            // Extract content from Gemini response
-            String responseBody = response.body();
-            // Gemini response format:
-            // {"candidates":[{"content":{"parts":[{"text":"..."}]}}]}
-            int textStart = responseBody.indexOf("\"text\":\"") + 8;
-            int textEnd = responseBody.indexOf("\"", textStart);
-
-            if (textStart > 7 && textEnd > textStart) {
-                String content = responseBody.substring(textStart, textEnd);
-                // Unescape JSON
-                content = content.replace("\\n", "\n").replace("\\\"", "\"").replace("\\\\", "\\");
-
-                // Remove markdown code fences if present
-                content = content.replaceAll("```json\\s*", "").replaceAll("```\\s*", "");
-
-                return content.trim();
-            }
-
-            return responseBody; // Return full response if parsing fails
-        } else {
-            throw new RuntimeException("Gemini API error: " + response.statusCode() + " - " + response.body());
-        }
+        return llmGateway.postJsonAsync("resume_parse", GEMINI_VISION_ENDPOINT + "?key=" + geminiApiKey,
+                requestBody, Map.of()).thenApply(response -> {
+                    if (response.statusCode() == 200) {
+                        // Extract content from Gemini response
+                        String responseBody = response.body();
+                        // Gemini response format:
+                        // {"candidates":[{"content":{"parts":[{"text":"..."}]}}]}
+                        int textStart = responseBody.indexOf("\"text\":\"") + 8;
+                        int textEnd = responseBody.indexOf("\"", textStart);
+
+                        if (textStart > 7 && textEnd > textStart) {
+                            String content = responseBody.substring(textStart, textEnd);
+                            // Unescape JSON
+                            content = content.replace("\\n", "\n").replace("\\\"", "\"").replace("\\\\", "\\");
+
+                            // Remove markdown code fences if present
+                            content = content.replaceAll("```json\\s*", "").replaceAll("```\\s*", "");
+
+                            return content.trim();
+                        }
+
+                        return responseBody; // Return full response if parsing fails
+                    } else {
+                        throw new RuntimeException(
+                                "Gemini API error: " + response.statusCode() + " - " + response.body());
+                    }
+                });
     }
 
     private String createMockResumeData() {
@@ -161,50 +163,43 @@ public class ResumeParserService {
                 "}";
     }
 
-    public String enhanceResumeContent(String resumeData) throws IOException, InterruptedException {
-        try {
-            String prompt = "You are a professional resume writer. Given this resume data in JSON format, enhance it by:\n"
-                    +
-                    "1. Improving the professional summary to be more impactful\n" +
-                    "2. Rewriting experience bullet points to be more achievement-focused with metrics\n" +
-                    "3. Ensuring ATS-friendly keywords are included\n" +
-                    "4. Maintaining the same JSON structure\n\n" +
-                    "Resume data:\n" + resumeData + "\n\n" +
-                    "Return the enhanced resume in the same JSON format. Do not include markdown code fences, just return the JSON.";
-
-            String requestBody = String.format(
-                    "{\"contents\":[{\"parts\":[{\"text\":\"%s\"}]}],\"generationConfig\":{\"temperature\":0.7,\"topP\":0.9,\"maxOutputTokens\":2048}}",
-                    prompt.replace("\"", "\\\"").replace("\n", "\\n"));
-
-            HttpClient client = HttpClient.newHttpClient();
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(GEMINI_VISION_ENDPOINT + "?key=" + geminiApiKey))
-                    .header("Content-Type", "application/json")
-                    .POST(HttpRequest.BodyPublishers.ofString(requestBody))
-                    .build();
-
-            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
-
-            if (response.statusCode() == 200) {
-                String responseBody = response.body();
-                int textStart = responseBody.indexOf("\"text\":\"") + 8;
-                int textEnd = responseBody.lastIndexOf("\"");
-
-                if (textStart > 7 && textEnd > textStart) {
-                    String content = responseBody.substring(textStart, textEnd);
-                    content = content.replace("\\n", "\n").replace("\\\"", "\"").replace("\\\\", "\\");
-                    content = content.replaceAll("```json\\s*", "").replaceAll("```\\s*", "");
-                    return content.trim();
-                }
-
-                return responseBody;
-            } else {
-                throw new RuntimeException("Gemini API error: " + response.statusCode() + " - " + response.body());
-            }
-        } catch (Exception e) {
-            System.err.println("Resume enhancement failed: " + e.getMessage());
-            // Return original if enhancement fails
-            return resumeData;
-        }
+    public CompletableFuture<String> enhanceResumeContent(String resumeData) {
+        String prompt = "You are a professional resume writer. Given this resume data in JSON format, enhance it by:\n"
+                +
+                "1. Improving the professional summary to be more impactful\n" +
+                "2. Rewriting experience bullet points to be more achievement-focused with metrics\n" +
+                "3. Ensuring ATS-friendly keywords are included\n" +
+                "4. Maintaining the same JSON structure\n\n" +
+                "Resume data:\n" + resumeData + "\n\n" +
+                "Return the enhanced resume in the same JSON format. Do not include markdown code fences, just return the JSON.";
+
+        String requestBody = String.format(
+                "{\"contents\":[{\"parts\":[{\"text\":\"%s\"}]}],\"generationConfig\":{\"temperature\":0.7,\"topP\":0.9,\"maxOutputTokens\":2048}}",
+                prompt.replace("\"", "\\\"").replace("\n", "\\n"));
+
+        return llmGateway.postJsonAsync("resume_enhance", GEMINI_VISION_ENDPOINT + "?key=" + geminiApiKey,
+                requestBody, Map.of()).thenApply(response -> {
+                    if (response.statusCode() == 200) {
+                        String responseBody = response.body();
+                        int textStart = responseBody.indexOf("\"text\":\"") + 8;
+                        int textEnd = responseBody.lastIndexOf("\"");
+
+                        if (textStart > 7 && textEnd > textStart) {
+                            String content = responseBody.substring(textStart, textEnd);
+                            content = content.replace("\\n", "\n").replace("\\\"", "\"").replace("\\\\", "\\");
+                            content = content.replaceAll("```json\\s*", "").replaceAll("```\\s*", "");
+                            return content.trim();
+                        }
+
+                        return responseBody;
+                    } else {
+                        throw new RuntimeException(
+                                "Gemini API error: " + response.statusCode() + " - " + response.body());
+                    }
+                }).exceptionally(error -> {
+                    System.err.println("Resume enhancement failed: " + LlmGateway.unwrap(error).getMessage());
+                    // Return original if enhancement fails
+                    return resumeData;
+                });
     }
 }
@@ -0,0 +1,216 @@
+package com.syntaxarena.backend.service;
+
+import com.syntaxarena.backend.model.ExecutionRequest;
+import com.syntaxarena.backend.model.ExecutionResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Generated test suites, one per problem. A suite is generated the first
+ * time a problem is judged, checked against the reference solution that came
+ * with it, and then reused for every later submission to the same problem,
+ * including the other player in an arena match. Concurrent first calls for
+ * a problem share one generation. Bounded by entry count and evicted
+ * least-recently-used first.
+ */
+@Service
+public class TestSuiteStore {
+
+    // Fewer verified cases than this is not a suite worth judging by
+    private static final int MIN_CASES = 3;
+
+    // Reference solutions queue in the execution scheduler under this id
+    private static final String REFERENCE_RUNS = "test-suite-reference";
+
+    @Value("${execution.test-suites.max-entries:512}")
+    private int maxEntries;
+
+    @Autowired
+    private TestValidationService testValidationService;
+
+    @Autowired
+    private ExecutionService executionService;
+
+    @Autowired
+    private ExecutionScheduler executionScheduler;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Access-ordered, so iteration starts at the least recently used entry
+    private final LinkedHashMap<String, List<ExecutionRequest.TestCase>> entries = new LinkedHashMap<>(64, 0.75f, true);
+
+    // Generations under way by fingerprint; removed once done, whatever the outcome
+    private final ConcurrentHashMap<String, CompletableFuture<List<ExecutionRequest.TestCase>>> generating =
+            new ConcurrentHashMap<>();
+
+    private Counter hits;
+    private Counter misses;
+    private Counter rejected;
+    private Counter evictions;
+
+    @PostConstruct
+    public void registerMetrics() {
+        hits = meterRegistry.counter("execution.test_suites.requests", "result", "hit");
+        misses = meterRegistry.counter("execution.test_suites.requests", "result", "miss");
+        rejected = meterRegistry.counter("execution.test_suites.rejected");
+        evictions = meterRegistry.counter("execution.test_suites.evictions");
+    }
+
+    /**
+     * Problem fingerprint: SHA-256 over the title and description.
+     */
+    public String fingerprint(String title, String description) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String part : new String[] { title, description }) {
+                byte[] bytes = (part != null ? part.strip() : "").getBytes(StandardCharsets.UTF_8);
+                // Length prefix keeps ("ab", "c") and ("a", "bc") apart
+                digest.update(ByteBuffer.allocate(4).putInt(bytes.length).array());
+                digest.update(bytes);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Returns the problem's test suite, generating and verifying it on the
+     * first call; callers that arrive while that is under way get the same
+     * result. Completes with null, never exceptionally, if no suite could be
+     * generated or too few of its cases survived verification; nothing is
+     * cached then, so the next call tries again.
+     */
+    public CompletableFuture<List<ExecutionRequest.TestCase>> getOrGenerate(String title, String description,
+            String expectedBehavior) {
+        if (description == null || description.isBlank()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        String key = fingerprint(title, description);
+        List<ExecutionRequest.TestCase> cached = get(key);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        CompletableFuture<List<ExecutionRequest.TestCase>> created = new CompletableFuture<>();
+        CompletableFuture<List<ExecutionRequest.TestCase>> shared = generating.computeIfAbsent(key, k -> created);
+        if (shared != created) {
+            return shared.copy();
+        }
+        CompletableFuture<List<ExecutionRequest.TestCase>> generation;
+        try {
+            generation = generate(description, expectedBehavior);
+        } catch (RuntimeException e) {
+            generation = CompletableFuture.failedFuture(e);
+        }
+        generation.whenComplete((suite, error) -> {
+            if (suite != null) {
+                put(key, suite);
+            } else {
+                rejected.increment();
+                if (error != null) {
+                    System.out.println("Test suite generation failed: " + LlmGateway.unwrap(error).getMessage());
+                }
+            }
+            // Cached before it leaves the map, so no caller in between generates it again
+            generating.remove(key, created);
+            created.complete(suite);
+        });
+        return created.copy();
+    }
+
+    private CompletableFuture<List<ExecutionRequest.TestCase>> generate(String description, String expectedBehavior) {
+        return testValidationService.generateTestSuite(description, expectedBehavior)
+                .thenCompose(generated -> generated != null ? verify(generated)
+                        : CompletableFuture.completedFuture(null));
+    }
+
+    private synchronized List<ExecutionRequest.TestCase> get(String key) {
+        List<ExecutionRequest.TestCase> suite = entries.get(key);
+        if (suite != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return suite;
+    }
+
+    private synchronized void put(String key, List<ExecutionRequest.TestCase> suite) {
+        entries.put(key, suite);
+        Iterator<List<ExecutionRequest.TestCase>> eldest = entries.values().iterator();
+        while (entries.size() > maxEntries && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    /**
+     * Keeps the cases with an input, an expected output and no duplicate
+     * input, then runs the reference solution on them and keeps only those it
+     * agrees with. Without a reference solution nothing can be verified. The
+     * reference solution is run through the execution scheduler like any
+     * other submission.
+     */
+    private CompletableFuture<List<ExecutionRequest.TestCase>> verify(TestValidationService.GeneratedSuite generated) {
+        if (generated.getReferenceSolution() == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        List<ExecutionRequest.TestCase> candidates = new ArrayList<>();
+        Set<String> inputs = new HashSet<>();
+        for (ExecutionRequest.TestCase testCase : generated.getTestCases()) {
+            if (testCase.getInput() == null || testCase.getExpectedOutput() == null
+                    || testCase.getExpectedOutput().isBlank()) {
+                continue;
+            }
+            if (inputs.add(testCase.getInput().strip())) {
+                candidates.add(testCase);
+            }
+        }
+        if (candidates.size() < MIN_CASES) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        ExecutionRequest run = new ExecutionRequest();
+        run.setLanguage("python");
+        run.setCode(generated.getReferenceSolution());
+        run.setTestCases(candidates);
+        return executionScheduler.submit(REFERENCE_RUNS, () -> executionService.executeCode(run))
+                .thenApply(response -> verified(candidates, response));
+    }
+
+    private static List<ExecutionRequest.TestCase> verified(List<ExecutionRequest.TestCase> candidates,
+            ExecutionResponse response) {
+        if (response.getTestResults() == null) {
+            System.out.println("Reference solution did not run: " + response.getError());
+            return null;
+        }
+
+        List<ExecutionRequest.TestCase> verified = new ArrayList<>();
+        for (ExecutionResponse.TestCaseResult result : response.getTestResults()) {
+            if (result.isPassed()) {
+                verified.add(candidates.get(result.getTestNumber() - 1));
+            }
+        }
+        return verified.size() >= MIN_CASES ? List.copyOf(verified) : null;
+    }
+}
@@ -1,86 +1,80 @@
 package com.syntaxarena.backend.service;
 
+import com.syntaxarena.backend.model.ExecutionRequest;
 import com.syntaxarena.backend.model.TestValidationRequest;
 import com.syntaxarena.backend.model.TestValidationResponse;
 import com.syntaxarena.backend.model.TestValidationResponse.TestResult;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
-import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 public class TestValidationService {
 
-    @Value("${NVIDIA_API_KEY}")
-    private String apiKey;
-
-    private final HttpClient httpClient = HttpClient.newBuilder()
-            .version(HttpClient.Version.HTTP_2)
-            .connectTimeout(Duration.ofSeconds(30))
-            .build();
+    @Autowired
+    private LlmGateway llmGateway;
 
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     /**
      * Validates a user's solution against the problem description.
      * Uses NVIDIA API to analyze code correctness and generate test cases.
+     * No thread is held while the model works. Never completes
+     * exceptionally; a fallback verdict stands in for a failed call.
      */
-    public TestValidationResponse validateSolution(TestValidationRequest request) {
-        String prompt = createValidationPrompt(request);
+    public CompletableFuture<TestValidationResponse> validateSolutionAsync(TestValidationRequest request) {
+        // Lower temperature for more deterministic validation
+        return llmGateway.completeAsync(chatRequest("test_validation", createValidationPrompt(request), 0.3))
+                .thenApply(completion -> {
+                    String content = answer(completion);
+                    return content != null ? parseValidationResponse(content) : getFallbackValidation();
+                }).exceptionally(error -> {
+                    System.out.println("Exception during validation: " + LlmGateway.unwrap(error).getMessage());
+                    return getFallbackValidation();
+                });
+    }
 
-        try {
-            Map<String, Object> payload = new HashMap<>();
-            payload.put("model", "nvidia/nemotron-3-nano-30b-a3b");
-            payload.put("temperature", 0.3); // Lower temperature for more deterministic validation
-            payload.put("top_p", 0.9);
-            payload.put("max_tokens", 4096);
-            payload.put("stream", false);
-
-            Map<String, Object> message = new HashMap<>();
-            message.put("role", "user");
-            message.put("content", prompt);
-            payload.put("messages", List.of(message));
-
-            // Enable thinking for better analysis
-            Map<String, Object> extra = new HashMap<>();
-            extra.put("enable_thinking", true);
-            payload.put("chat_template_kwargs", extra);
-
-            String requestBody = objectMapper.writeValueAsString(payload);
-
-            String url = "https://integrate.api.nvidia.com/v1/chat/completions";
-
-            HttpRequest httpRequest = HttpRequest.newBuilder()
-                    .uri(URI.create(url))
-                    .header("Content-Type", "application/json")
-                    .header("Authorization", "Bearer " + apiKey)
-                    .POST(HttpRequest.BodyPublishers.ofString(requestBody))
-                    .build();
-
-            HttpResponse<String> response = httpClient.send(httpRequest, HttpResponse.BodyHandlers.ofString());
-
-            if (response.statusCode() == 200) {
-                return parseValidationResponse(response.body());
-            } else {
-                System.out.println("API Error during validation: " + response.body());
-                return getFallbackValidation();
-            }
+    /**
+     * Generates stdin/stdout test cases for a problem, together with a Python
+     * reference solution the expected outputs can be checked against.
+     * Completes with null when the API call or its response fails.
+     */
+    public CompletableFuture<GeneratedSuite> generateTestSuite(String problemDescription, String expectedBehavior) {
+        String prompt = createTestSuitePrompt(problemDescription, expectedBehavior);
+        return llmGateway.completeAsync(chatRequest("test_suite", prompt, 0.2))
+                .thenApply(completion -> {
+                    String content = answer(completion);
+                    return content != null ? parseTestSuiteResponse(content) : null;
+                }).exceptionally(error -> {
+                    System.out.println("Exception during test suite generation: "
+                            + LlmGateway.unwrap(error).getMessage());
+                    return null;
+                });
+    }
 
-        } catch (Exception e) {
-            System.out.println("Exception during validation: " + e.getMessage());
-            e.printStackTrace();
-            return getFallbackValidation();
+    private static LlmGateway.ChatRequest chatRequest(String operation, String prompt, double temperature) {
+        LlmGateway.ChatRequest chat = new LlmGateway.ChatRequest(operation);
+        chat.setTemperature(temperature);
+        chat.setTopP(0.9);
+        chat.setMaxTokens(4096);
+        // Enable thinking for better analysis
+        chat.setThinking(true);
+        chat.addMessage("user", prompt);
+        return chat;
+    }
+
+    // The model's answer, or null if the API answered with an error
+    private static String answer(LlmGateway.Completion completion) {
+        if (completion.isSuccess()) {
+            return completion.getContent();
         }
+        System.out.println("API Error from NVIDIA: " + completion.getBody());
+        return null;
     }
 
     private String createValidationPrompt(TestValidationRequest request) {
@@ -118,13 +112,10 @@ public class TestValidationService {
                 request.getCode());
     }
 
-    private TestValidationResponse parseValidationResponse(String jsonResponse) {
+    private TestValidationResponse parseValidationResponse(String content) {
         try {
-            JsonNode root = objectMapper.readTree(jsonResponse);
-            String text = root.path("choices").get(0).path("message").path("content").asText();
-
             // Clean markdown formatting if present
-            text = cleanJsonResponse(text);
+            String text = cleanJsonResponse(content);
 
             JsonNode validationNode = objectMapper.readTree(text);
 
@@ -155,6 +146,48 @@ public class TestValidationService {
         }
     }
 
+    private String createTestSuitePrompt(String problemDescription, String expectedBehavior) {
+        return String.format(
+                "You are writing the judge's test suite for a coding problem.\n\n" +
+                        "PROBLEM DESCRIPTION:\n%s\n\n" +
+                        "EXPECTED BEHAVIOR:\n%s\n\n" +
+                        "INSTRUCTIONS:\n" +
+                        "1. Solutions are complete programs that read their input from stdin and print the answer to stdout\n" +
+                        "2. Generate 8 test cases (mix of basic, edge cases, and complex cases) with the exact stdin text and exact expected stdout\n" +
+                        "3. Write a correct Python 3 reference solution reading the same stdin format\n\n" +
+                        "Return ONLY a valid JSON object (no markdown) with this exact structure:\n" +
+                        "{\n" +
+                        "  \"testCases\": [\n" +
+                        "    { \"input\": \"stdin text\", \"expectedOutput\": \"stdout text\" }\n" +
+                        "  ],\n" +
+                        "  \"referenceSolution\": \"python source code\"\n" +
+                        "}",
+                problemDescription,
+                expectedBehavior != null ? expectedBehavior : "Solve the problem as described");
+    }
+
+    private GeneratedSuite parseTestSuiteResponse(String content) {
+        try {
+            String text = cleanJsonResponse(content);
+            JsonNode suiteNode = objectMapper.readTree(text);
+
+            List<ExecutionRequest.TestCase> testCases = new ArrayList<>();
+            JsonNode casesNode = suiteNode.path("testCases");
+            if (casesNode.isArray()) {
+                for (JsonNode node : casesNode) {
+                    testCases.add(new ExecutionRequest.TestCase(node.path("input").asText(""),
+                            node.path("expectedOutput").asText("")));
+                }
+            }
+            String referenceSolution = suiteNode.path("referenceSolution").asText("");
+            return new GeneratedSuite(testCases, referenceSolution.isEmpty() ? null : referenceSolution);
+
+        } catch (Exception e) {
+            System.out.println("Error parsing test suite response: " + e.getMessage());
+            return null;
+        }
+    }
+
     private String cleanJsonResponse(String text) {
         // Remove markdown code blocks
         if (text.startsWith("```json")) {
@@ -182,4 +215,26 @@ public class TestValidationService {
                 fallbackResults,
                 "Unable to validate solution at this time. Please try again.");
     }
+
+    /**
+     * Test cases as generated, not yet checked, plus the Python reference
+     * solution they claim to describe (null if the model gave none).
+     */
+    public static class GeneratedSuite {
+        private final List<ExecutionRequest.TestCase> testCases;
+        private final String referenceSolution;
+
+        public GeneratedSuite(List<ExecutionRequest.TestCase> testCases, String referenceSolution) {
+            this.testCases = testCases;
+            this.referenceSolution = referenceSolution;
+        }
+
+        public List<ExecutionRequest.TestCase> getTestCases() {
+            return testCases;
+        }
+
+        public String getReferenceSolution() {
+            return referenceSolution;
+        }
+    }
 }
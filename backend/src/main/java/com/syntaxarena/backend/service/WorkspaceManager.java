@@ -0,0 +1,318 @@
+package com.syntaxarena.backend.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Hands out scratch directories for runs that need files on disk (cold
+ * interpreter runs and the javac fallback). Directories are wiped and reused
+ * after each run, and the bytes written through them are capped. Runs use
+ * their workspace as working directory, so what the user code writes there
+ * itself must be bounded too: each file by the governor's RLIMIT_FSIZE, and
+ * in all by the run's cgroup memory limit when the root is tmpfs. That is
+ * why /dev/shm is only the default root when the governor charges tmpfs
+ * writes to a cgroup; otherwise the root is on disk, unless
+ * execution.workspace.root names one (such as a size-limited tmpfs mount).
+ * Nothing bounds a disk root as a whole, so there leased workspaces are
+ * measured periodically and when they are closed: what user code wrote
+ * counts against the byte cap, a run whose workspace grows past it is
+ * stopped (see onOverflow), and the directory is discarded rather than
+ * reused. Between two measurements a run can still write about one interval
+ * worth of data past the cap.
+ * Workspaces that are never returned are reclaimed by a periodic sweep.
+ */
+@Service
+public class WorkspaceManager {
+
+    private static final String ROOT_PREFIX = "syntaxarena-";
+    // Every entry a run creates counts as at least one block, so empty files are not free
+    private static final long BLOCK_BYTES = 4096;
+
+    // Empty means /dev/shm when it is writable and runs are in cgroups, otherwise java.io.tmpdir
+    @Value("${execution.workspace.root:}")
+    private String configuredRoot;
+
+    @Value("${execution.workspace.pool-size:8}")
+    private int poolSize;
+
+    @Value("${execution.workspace.max-bytes:67108864}")
+    private long maxBytes;
+
+    @Value("${execution.workspace.max-lease-millis:120000}")
+    private long maxLeaseMillis;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ResourceGovernor resourceGovernor;
+
+    private Path root;
+    // False when the root is on disk, where only measuring keeps runs' own files in check
+    private boolean bounded;
+    private final ConcurrentLinkedDeque<Path> free = new ConcurrentLinkedDeque<>();
+    private final Map<Workspace, Long> leased = new ConcurrentHashMap<>();
+    private final AtomicLong bytesInUse = new AtomicLong();
+    private final AtomicInteger nextId = new AtomicInteger();
+    private Counter reclaimed;
+    private Counter discarded;
+
+    @PostConstruct
+    public void start() throws IOException {
+        Path base = configuredRoot.isEmpty() ? defaultBase() : Path.of(configuredRoot);
+        bounded = !configuredRoot.isEmpty() || base.equals(Path.of("/dev/shm"));
+        removeStaleRoots(base);
+        root = Files.createDirectories(base.resolve(ROOT_PREFIX + ProcessHandle.current().pid()));
+        for (int i = 0; i < poolSize; i++) {
+            free.offer(newDirectory());
+        }
+        System.out.println("Execution workspaces under " + root);
+        if (!bounded) {
+            System.out.println("Workspace root is on disk; files written by runs are measured, not capped."
+                    + " Set execution.workspace.root to a size-limited mount to bound them");
+        }
+
+        reclaimed = meterRegistry.counter("execution.workspace.reclaimed");
+        discarded = meterRegistry.counter("execution.workspace.discarded");
+        Gauge.builder("execution.workspace.bytes", bytesInUse, AtomicLong::get).register(meterRegistry);
+        Gauge.builder("execution.workspace.leased", leased, Map::size).register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        deleteTree(root);
+    }
+
+    /**
+     * Leases an empty directory. Close the workspace when the run is over.
+     */
+    public Workspace acquire() throws IOException {
+        Path directory = free.pollFirst();
+        if (directory == null) {
+            directory = newDirectory();
+        }
+        Workspace workspace = new Workspace(directory);
+        leased.put(workspace, System.nanoTime());
+        return workspace;
+    }
+
+    public long getBytesInUse() {
+        return bytesInUse.get();
+    }
+
+    /**
+     * Reclaims workspaces held longer than any run can take; their owner
+     * failed to close them.
+     */
+    @Scheduled(fixedDelayString = "${execution.workspace.sweep-interval-ms:30000}")
+    public void sweep() {
+        long cutoff = System.nanoTime() - maxLeaseMillis * 1_000_000;
+        for (Map.Entry<Workspace, Long> lease : leased.entrySet()) {
+            if (lease.getValue() < cutoff) {
+                System.out.println("Reclaiming leaked workspace " + lease.getKey().getDirectory());
+                lease.getKey().close();
+                reclaimed.increment();
+            }
+        }
+    }
+
+    /**
+     * Counts what runs wrote into their workspaces on a disk root against
+     * the byte cap, and stops runs whose workspace went past it.
+     */
+    @Scheduled(fixedDelayString = "${execution.workspace.measure-interval-ms:1000}")
+    public void measure() {
+        if (bounded) {
+            return;
+        }
+        for (Workspace workspace : leased.keySet()) {
+            workspace.measure();
+        }
+    }
+
+    private Path newDirectory() throws IOException {
+        return Files.createDirectory(root.resolve("ws-" + nextId.incrementAndGet()));
+    }
+
+    private void recycle(Path directory) {
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+            for (Path entry : entries) {
+                deleteTree(entry);
+            }
+        } catch (IOException e) {
+            deleteTree(directory);
+            return;
+        }
+        if (free.size() < poolSize) {
+            free.offerFirst(directory);
+        } else {
+            deleteTree(directory);
+        }
+    }
+
+    private Path defaultBase() {
+        Path shm = Path.of("/dev/shm");
+        if (resourceGovernor.chargesTmpfs() && Files.isDirectory(shm) && Files.isWritable(shm)) {
+            return shm;
+        }
+        return Path.of(System.getProperty("java.io.tmpdir"));
+    }
+
+    // Roots left behind by backend processes that are no longer running
+    private static void removeStaleRoots(Path base) throws IOException {
+        if (!Files.isDirectory(base)) {
+            return;
+        }
+        try (DirectoryStream<Path> roots = Files.newDirectoryStream(base, ROOT_PREFIX + "*")) {
+            for (Path stale : roots) {
+                String pid = stale.getFileName().toString().substring(ROOT_PREFIX.length());
+                boolean alive;
+                try {
+                    alive = ProcessHandle.of(Long.parseLong(pid)).isPresent();
+                } catch (NumberFormatException e) {
+                    continue;
+                }
+                if (!alive) {
+                    deleteTree(stale);
+                }
+            }
+        }
+    }
+
+    // Bytes in the tree, each entry at least a block; stops counting once past limit
+    private static long usage(Path directory, long limit) {
+        long total = 0;
+        try (Stream<Path> tree = Files.walk(directory)) {
+            Iterator<Path> entries = tree.iterator();
+            while (entries.hasNext() && total <= limit) {
+                Path entry = entries.next();
+                long size = 0;
+                try {
+                    size = Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS).size();
+                } catch (IOException e) {
+                    // Deleted while walking
+                }
+                total += Math.max(size, BLOCK_BYTES);
+            }
+        } catch (IOException | UncheckedIOException e) {
+            // The run is still changing the tree; what was counted so far stands
+        }
+        return total;
+    }
+
+    private static void deleteTree(Path path) {
+        try (Stream<Path> tree = Files.walk(path)) {
+            tree.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        } catch (IOException e) {
+            // Already gone
+        }
+    }
+
+    /**
+     * A leased scratch directory. Files written through writeFile, and on a
+     * disk root whatever else was measured in it, count against the shared
+     * byte budget until the workspace is closed.
+     */
+    public class Workspace implements AutoCloseable {
+        private final Path directory;
+        private final AtomicLong reserved = new AtomicLong();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        // Bytes beyond the reserved ones found by the last measurement
+        private long measured;
+        private boolean overflowed;
+        private volatile Runnable overflowAction;
+
+        private Workspace(Path directory) {
+            this.directory = directory;
+        }
+
+        public Path getDirectory() {
+            return directory;
+        }
+
+        public Path writeFile(String name, String content) throws IOException {
+            byte[] data = content.getBytes(StandardCharsets.UTF_8);
+            if (bytesInUse.addAndGet(data.length) > maxBytes) {
+                bytesInUse.addAndGet(-data.length);
+                throw new IOException("Execution workspace space exhausted; please retry shortly");
+            }
+            reserved.addAndGet(data.length);
+            return Files.write(directory.resolve(name), data);
+        }
+
+        /**
+         * What to do when the workspace grows past the byte cap while
+         * leased, typically killing the run that writes into it.
+         */
+        public void onOverflow(Runnable action) {
+            overflowAction = action;
+        }
+
+        public synchronized boolean isOverflowed() {
+            return overflowed;
+        }
+
+        private synchronized void measure() {
+            if (closed.get()) {
+                return;
+            }
+            long usage = usage(directory, maxBytes);
+            long extra = Math.max(0, usage - reserved.get());
+            bytesInUse.addAndGet(extra - measured);
+            measured = extra;
+            if (usage > maxBytes && !overflowed) {
+                overflowed = true;
+                System.out.println("Workspace " + directory + " went past " + maxBytes + " bytes; stopping its run");
+                Runnable action = overflowAction;
+                if (action != null) {
+                    action.run();
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            // The sweeper may race the owner; only the first close recycles
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+            leased.remove(this);
+            synchronized (this) {
+                bytesInUse.addAndGet(-reserved.get() - measured);
+                measured = 0;
+                if (!bounded && (overflowed || usage(directory, maxBytes) > maxBytes)) {
+                    System.out.println("Discarding workspace " + directory + ": its run wrote past the byte cap");
+                    discarded.increment();
+                    deleteTree(directory);
+                    return;
+                }
+            }
+            recycle(directory);
+        }
+    }
+}
@@ -0,0 +1,449 @@
+// Long-lived Node.js worker used by InterpreterPool.
+//
+// Protocol (all lengths are byte counts of UTF-8 data):
+//   request:  "<codeLen> <stdinLen> <nonce>\n" <code> <stdin>
+//   reply:    "<stdoutLen>\n" <stdout> "<stderrLen>\n" <stderr>
+//             "<nonce> <status> <elapsedNanos> <truncated> <cpuNanos> <peakRssBytes> <leak>\n"
+//
+// Requests arrive on stdin and replies go out on fd 3; InterpreterWorker
+// starts the worker with fd 1 pointing at /dev/null, so a submission writing
+// to the real stdout cannot forge a reply. The nonce ties each reply to its
+// request. peakRssBytes is the worker's peak resident set during the run, or
+// -1 if that cannot be measured.
+//
+// Every submission runs in a fresh vm context, so globals defined by one run
+// are not visible to the next. Its process and fs are plain objects that
+// only offer what a solution needs: no raw fd access, no event listeners on
+// the real process. Modules that reach the process or other file
+// descriptors (child_process, net, fs/promises, ...) cannot be required. A
+// vm context is not a security boundary, though: the worker's own objects
+// (modules, Buffer, the host realm's globals and prototypes) are still
+// reachable from a submission. If a run changes any of them, adds listeners
+// to one of their event emitters, or leaves handles or timers behind, the
+// leak field names it ("-" when clean) and the pool retires the worker
+// before anyone else's request reaches it. The worker waits for timers and
+// stdin readers started by the submission before replying. Captured output
+// per stream is capped at the character count given as the first argument.
+'use strict';
+
+const EventEmitter = require('events');
+const fs = require('fs');
+const util = require('util');
+const vm = require('vm');
+const { Readable } = require('stream');
+
+const MAX_OUTPUT = Number(process.argv[1]) || 65536;
+const REPLY_FD = 3;
+
+// Keeps the first MAX_OUTPUT characters written and drops the rest
+class CappedOutput {
+    constructor() {
+        this.parts = [];
+        this.size = 0;
+        this.truncated = false;
+    }
+
+    push(text) {
+        const room = MAX_OUTPUT - this.size;
+        if (text.length > room) {
+            this.truncated = true;
+        }
+        const kept = text.slice(0, Math.max(room, 0));
+        if (kept) {
+            this.parts.push(kept);
+            this.size += kept.length;
+        }
+        return true;
+    }
+
+    text() {
+        return this.parts.join('');
+    }
+}
+
+class ExitSignal {
+    constructor(code) {
+        this.code = code;
+    }
+}
+
+let current = null;
+let buffered = Buffer.alloc(0);
+let queue = Promise.resolve();
+
+function report(error) {
+    if (!current) {
+        return;
+    }
+    if (error instanceof ExitSignal) {
+        current.status = error.code;
+        current.exited = true;
+        return;
+    }
+    current.err.push(describe(error) + '\n');
+    current.status = 1;
+}
+
+function describe(error) {
+    if (!error || !error.stack) {
+        return String(error);
+    }
+    // Drop the worker's own frames so the trace ends at the user's code
+    const lines = String(error.stack).split('\n');
+    const cut = lines.findIndex((line) => /at (new Script|Script\.runInContext) /.test(line));
+    return (cut < 0 ? lines : lines.slice(0, cut)).join('\n');
+}
+
+process.on('uncaughtException', report);
+process.on('unhandledRejection', report);
+
+// Own properties (and prototype) of every host object a run could reach, as they were before any run
+const baseline = new Map();
+// Listeners of every host event emitter a run could reach, by event name
+const listenerBaseline = new Map();
+// node -e exposes every builtin module as a lazy global; modules are remembered when a run requires them
+const builtinModules = new Set(require('module').builtinModules);
+
+function remember(target, skipped = new Set()) {
+    if (target === null || (typeof target !== 'object' && typeof target !== 'function') || baseline.has(target)) {
+        return;
+    }
+    const keys = () => Reflect.ownKeys(target).filter((key) => !skipped.has(key));
+    // Some properties are getters that replace themselves (or add others) on first use
+    for (const key of keys()) {
+        try {
+            void target[key];
+        } catch (e) {
+            // Nothing to materialize
+        }
+    }
+    const properties = new Map();
+    for (const key of keys()) {
+        properties.set(key, slot(target, key));
+    }
+    baseline.set(target, { proto: Object.getPrototypeOf(target), properties, skipped });
+    if (target instanceof EventEmitter) {
+        listenerBaseline.set(target, listeners(target));
+    }
+}
+
+function listeners(emitter) {
+    const byEvent = new Map();
+    for (const name of emitter.eventNames()) {
+        byEvent.set(name, emitter.rawListeners(name));
+    }
+    return byEvent;
+}
+
+function listenersChanged() {
+    for (const [emitter, before] of listenerBaseline) {
+        const now = listeners(emitter);
+        if (now.size !== before.size) {
+            return true;
+        }
+        for (const [name, list] of now) {
+            const old = before.get(name);
+            if (!old || old.length !== list.length || list.some((listener, i) => listener !== old[i])) {
+                return true;
+            }
+        }
+    }
+    return false;
+}
+
+// A data property's value or an accessor's getter, so lazy getters are not triggered
+function slot(target, key) {
+    const descriptor = Object.getOwnPropertyDescriptor(target, key);
+    if (!descriptor) {
+        return undefined;
+    }
+    return 'value' in descriptor ? descriptor.value : descriptor.get;
+}
+
+function rememberHost() {
+    remember(globalThis, builtinModules);
+    for (const key of baseline.get(globalThis).properties.keys()) {
+        const value = globalThis[key];
+        remember(value);
+        if (typeof value === 'function') {
+            remember(value.prototype);
+        }
+    }
+    for (const root of [process, Object.getPrototypeOf(process), process.env, process.stdin, process.stdout,
+        process.stderr, fs, util]) {
+        remember(root);
+    }
+}
+
+// Timers count too: the worker has none of its own left when a run ends, and the sandbox clears the run's
+function openHandles() {
+    return process.getActiveResourcesInfo().length;
+}
+
+function detectLeak(handlesBefore) {
+    for (const [target, before] of baseline) {
+        if (Object.getPrototypeOf(target) !== before.proto) {
+            return 'globals';
+        }
+        for (const key of Reflect.ownKeys(target)) {
+            if (!before.properties.has(key) && !before.skipped.has(key)) {
+                return 'globals';
+            }
+        }
+        for (const [key, value] of before.properties) {
+            if (!Object.is(slot(target, key), value)) {
+                return 'globals';
+            }
+        }
+    }
+    if (listenersChanged()) {
+        return 'listeners';
+    }
+    return openHandles() > handlesBefore ? 'handles' : '-';
+}
+
+// Raw file descriptors, other processes, the network and the inspector
+const blockedModules = new Set(['child_process', 'cluster', 'dgram', 'diagnostics_channel', 'dns', 'fs/promises',
+    'http', 'http2', 'https', 'inspector', 'module', 'net', 'process', 'repl', 'tls', 'trace_events', 'v8', 'vm',
+    'wasi', 'worker_threads']);
+
+// Modules are shared with the worker, so each is remembered before a run first gets it
+function sandboxRequire(name) {
+    if (blockedModules.has(String(name).replace(/^node:/, ''))) {
+        throw new Error(`Cannot find module '${name}'`);
+    }
+    const module = require(name);
+    remember(module);
+    return module;
+}
+
+// Paths that lead to the worker's own file descriptors, where the request and reply pipes are
+function isDescriptorPath(path) {
+    return typeof path === 'number' || (typeof path === 'string' && /^\/(dev|proc)\//.test(path));
+}
+
+function createSandbox(run, input) {
+    const write = (target) => (...args) => target.push(util.format(...args) + '\n');
+    const guard = (fn, args) => {
+        if (run.exited) {
+            return;
+        }
+        try {
+            fn(...args);
+        } catch (e) {
+            report(e);
+        }
+    };
+    const track = (schedule, cancel, repeat) => [
+        (fn, delay, ...args) => {
+            const handle = schedule(() => {
+                if (!repeat) {
+                    run.timers.delete(handle);
+                }
+                guard(fn, args);
+            }, delay);
+            run.timers.add(handle);
+            return handle;
+        },
+        (handle) => {
+            run.timers.delete(handle);
+            cancel(handle);
+        },
+    ];
+    const [sandboxSetTimeout, sandboxClearTimeout] = track(setTimeout, clearTimeout, false);
+    const [sandboxSetInterval, sandboxClearInterval] = track(setInterval, clearInterval, true);
+    const [sandboxSetImmediate, sandboxClearImmediate] = track((fn) => setImmediate(fn), clearImmediate, false);
+
+    const stdin = Readable.from([input]);
+    run.stdin = stdin;
+
+    // Reading only; stdin is the run's input, and no other descriptor is reachable
+    const noDescriptors = (name) => (path, ...rest) => {
+        if (isDescriptorPath(path)) {
+            throw new Error(`${name} is not available for '${path}'`);
+        }
+        return fs[name](path, ...rest);
+    };
+    const sandboxFs = {
+        readFileSync(path, ...rest) {
+            if (path === 0 || path === '/dev/stdin') {
+                const encoding = typeof rest[0] === 'string' ? rest[0] : rest[0] && rest[0].encoding;
+                return encoding ? input : Buffer.from(input, 'utf8');
+            }
+            return noDescriptors('readFileSync')(path, ...rest);
+        },
+        existsSync: noDescriptors('existsSync'),
+        readdirSync: noDescriptors('readdirSync'),
+        statSync: noDescriptors('statSync'),
+        lstatSync: noDescriptors('lstatSync'),
+        constants: fs.constants,
+    };
+
+    // A plain object, so nothing reaches the real process through its prototype
+    const hrtime = (previous) => process.hrtime(previous);
+    hrtime.bigint = () => process.hrtime.bigint();
+    const sandboxProcess = {
+        argv: [process.argv[0], 'script.js'],
+        env: Object.assign({}, process.env),
+        platform: process.platform,
+        arch: process.arch,
+        version: process.version,
+        versions: Object.assign({}, process.versions),
+        exitCode: undefined,
+        stdin,
+        stdout: { write: (chunk) => run.out.push(String(chunk)) },
+        stderr: { write: (chunk) => run.err.push(String(chunk)) },
+        hrtime,
+        nextTick: (fn, ...args) => process.nextTick(() => guard(fn, args)),
+        memoryUsage: () => process.memoryUsage(),
+        cpuUsage: (previous) => process.cpuUsage(previous),
+        uptime: () => process.uptime(),
+        cwd: () => '.',
+        // Exit and signal handlers have nothing to attach to
+        on: () => sandboxProcess,
+        once: () => sandboxProcess,
+        off: () => sandboxProcess,
+        removeListener: () => sandboxProcess,
+        exit: (code) => {
+            throw new ExitSignal(code === undefined ? 0 : code);
+        },
+    };
+
+    const sandboxModule = { exports: {} };
+    const sandbox = {
+        console: {
+            log: write(run.out),
+            info: write(run.out),
+            debug: write(run.out),
+            error: write(run.err),
+            warn: write(run.err),
+        },
+        process: sandboxProcess,
+        require: (name) => (name === 'fs' || name === 'node:fs' ? sandboxFs : sandboxRequire(name)),
+        module: sandboxModule,
+        exports: sandboxModule.exports,
+        __filename: 'script.js',
+        __dirname: '.',
+        Buffer,
+        URL,
+        TextEncoder,
+        TextDecoder,
+        queueMicrotask,
+        setTimeout: sandboxSetTimeout,
+        clearTimeout: sandboxClearTimeout,
+        setInterval: sandboxSetInterval,
+        clearInterval: sandboxClearInterval,
+        setImmediate: sandboxSetImmediate,
+        clearImmediate: sandboxClearImmediate,
+    };
+    sandbox.global = sandbox;
+    return sandbox;
+}
+
+function stdinPending(run) {
+    const stdin = run.stdin;
+    if (!stdin) {
+        return false;
+    }
+    const listening = stdin.listenerCount('data') + stdin.listenerCount('readable') > 0;
+    return listening && !stdin.readableEnded;
+}
+
+const tick = () => new Promise((resolve) => setImmediate(resolve));
+
+// Writing 5 to clear_refs restarts VmHWM at the current resident set, so the
+// peak read after a run is that run's
+function resetPeakRss() {
+    try {
+        fs.writeFileSync('/proc/self/clear_refs', '5');
+        return true;
+    } catch (e) {
+        return false;
+    }
+}
+
+function peakRss() {
+    const match = /^VmHWM:\s*(\d+)/m.exec(fs.readFileSync('/proc/self/status', 'utf8'));
+    return match ? Number(match[1]) * 1024 : -1;
+}
+
+async function run(code, input) {
+    const state = { out: new CappedOutput(), err: new CappedOutput(), status: 0, exited: false, timers: new Set(), stdin: null };
+    current = state;
+    const handlesBefore = openHandles();
+    const measured = resetPeakRss();
+    const start = process.hrtime.bigint();
+    const cpuStart = process.cpuUsage();
+    try {
+        const script = new vm.Script(code, { filename: 'script.js' });
+        script.runInContext(vm.createContext(createSandbox(state, input)));
+    } catch (e) {
+        report(e);
+    }
+    while (!state.exited && (state.timers.size > 0 || stdinPending(state))) {
+        await tick();
+    }
+    // Let close/end callbacks scheduled by readers run before reporting
+    await tick();
+    await tick();
+    for (const handle of state.timers) {
+        clearTimeout(handle);
+        clearInterval(handle);
+    }
+    const elapsed = process.hrtime.bigint() - start;
+    const cpu = process.cpuUsage(cpuStart);
+    current = null;
+    return {
+        out: state.out.text(),
+        err: state.err.text(),
+        status: state.status,
+        elapsed,
+        cpuNanos: (cpu.user + cpu.system) * 1000,
+        peakRss: measured ? peakRss() : -1,
+        truncated: state.out.truncated || state.err.truncated,
+        leak: detectLeak(handlesBefore),
+    };
+}
+
+function reply(nonce, result) {
+    const parts = [];
+    for (const text of [result.out, result.err]) {
+        const data = Buffer.from(text, 'utf8');
+        parts.push(Buffer.from(data.length + '\n'), data);
+    }
+    const peak = result.peakRss !== undefined ? result.peakRss : -1;
+    parts.push(Buffer.from(`${nonce} ${result.status} ${result.elapsed} ${result.truncated ? 1 : 0} ${result.cpuNanos} ${peak} ${result.leak}\n`));
+    const frame = Buffer.concat(parts);
+    for (let written = 0; written < frame.length;) {
+        written += fs.writeSync(REPLY_FD, frame, written);
+    }
+}
+
+function drain() {
+    for (;;) {
+        const newline = buffered.indexOf(10);
+        if (newline < 0) {
+            return;
+        }
+        const [codeLen, stdinLen, nonce] = buffered.toString('utf8', 0, newline).trim().split(/\s+/);
+        const total = newline + 1 + Number(codeLen) + Number(stdinLen);
+        if (buffered.length < total) {
+            return;
+        }
+        const code = buffered.toString('utf8', newline + 1, newline + 1 + Number(codeLen));
+        const input = buffered.toString('utf8', newline + 1 + Number(codeLen), total);
+        buffered = buffered.subarray(total);
+        queue = queue
+            .then(() => run(code, input))
+            .catch((e) => ({ out: '', err: describe(e) + '\n', status: 1, elapsed: 0n, truncated: false, cpuNanos: 0, leak: 'error' }))
+            .then((result) => reply(nonce, result));
+    }
+}
+
+process.stdin.on('data', (chunk) => {
+    buffered = Buffer.concat([buffered, chunk]);
+    drain();
+});
+process.stdin.on('end', () => queue.then(() => process.exit(0)));
+// After the worker's own listeners are in place, so only a run's are reported
+rememberHost();
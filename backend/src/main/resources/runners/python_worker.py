@@ -0,0 +1,209 @@
+# Long-lived Python worker used by InterpreterPool.
+#
+# Protocol (all lengths are byte counts of UTF-8 data):
+#   request:  "<codeLen> <stdinLen> <nonce>\n" <code> <stdin>
+#   reply:    "<stdoutLen>\n" <stdout> "<stderrLen>\n" <stderr>
+#             "<nonce> <status> <elapsedNanos> <truncated> <cpuNanos> <peakRssBytes> <leak>\n"
+#
+# Requests arrive on stdin and replies go out on fd 3; InterpreterWorker
+# starts the worker with fd 1 pointing at /dev/null, so a submission writing
+# to the real stdout cannot forge a reply. The nonce ties each reply to its
+# request.
+#
+# Every submission runs with a fresh __main__ namespace, so nothing defined by
+# one run is visible to the next. Modules a run imports are dropped afterwards
+# so the next run imports them afresh. State a run can change for later runs
+# (patched modules, threads left running, signal handlers and interval
+# timers, interpreter settings) is reported in the leak field ("-" when
+# clean) and the pool retires the worker; signal handlers and timers are put
+# back first, so none of them fires during the reply. The nonce is never a
+# local of a frame that is live while a submission runs.
+# peakRssBytes is the worker's peak resident set during the run (the kernel's
+# high-water mark is reset before each one), or -1 if that cannot be measured.
+# Captured output per stream is capped at the character count given as the
+# first argument.
+import contextlib
+import io
+import os
+import signal
+import sys
+import threading
+import time
+import traceback
+
+MAX_OUTPUT = int(sys.argv[1]) if len(sys.argv) > 1 else 65536
+TIMERS = (signal.ITIMER_REAL, signal.ITIMER_VIRTUAL, signal.ITIMER_PROF)
+
+
+class CappedWriter(io.TextIOBase):
+    """Keeps the first MAX_OUTPUT characters written and drops the rest."""
+
+    def __init__(self):
+        self.parts = []
+        self.size = 0
+        self.truncated = False
+
+    def writable(self):
+        return True
+
+    def write(self, text):
+        room = MAX_OUTPUT - self.size
+        if len(text) > room:
+            self.truncated = True
+        kept = text[:max(room, 0)]
+        if kept:
+            self.parts.append(kept)
+            self.size += len(kept)
+        return len(text)
+
+    def getvalue(self):
+        return ''.join(self.parts)
+
+
+class Baseline:
+    """What the worker looked like before the first run."""
+
+    def __init__(self):
+        self.modules = {name: (module, dict(module.__dict__))
+                        for name, module in sys.modules.items() if module is not None}
+        self.recursion_limit = sys.getrecursionlimit()
+        self.cwd = os.getcwd()
+        self.environ = dict(os.environ)
+        self.handlers = {signum: signal.getsignal(signum) for signum in signal.valid_signals()}
+        self.timers = {timer: signal.getitimer(timer) for timer in TIMERS}
+        self.mask = signal.pthread_sigmask(signal.SIG_BLOCK, [])
+
+    def reset_signals(self):
+        """Puts back the signal handlers, interval timers and signal mask, and says whether a run changed any."""
+        changed = False
+        for timer, before in self.timers.items():
+            if signal.getitimer(timer) != before:
+                signal.setitimer(timer, *before)
+                changed = True
+        if signal.pthread_sigmask(signal.SIG_SETMASK, self.mask) != self.mask:
+            changed = True
+        for signum, before in self.handlers.items():
+            if signal.getsignal(signum) is not before:
+                changed = True
+                # Handlers installed outside Python (None) cannot be put back; the worker is retired anyway
+                with contextlib.suppress(OSError, TypeError, ValueError):
+                    signal.signal(signum, before)
+        return changed
+
+    def reset(self):
+        """Drops the modules a run imported and returns what it left behind, or '-'."""
+        if self.reset_signals():
+            return 'signals'
+        for name in list(sys.modules):
+            if name not in self.modules:
+                del sys.modules[name]
+        if threading.active_count() > 1:
+            return 'threads'
+        for name, (module, snapshot) in self.modules.items():
+            namespace = module.__dict__
+            if sys.modules.get(name) is not module or len(namespace) != len(snapshot):
+                return 'modules'
+            for key, value in snapshot.items():
+                if namespace.get(key, snapshot) is not value:
+                    return 'modules'
+        # Deep recursion is common enough in submissions that the limit is put back rather than reported
+        sys.setrecursionlimit(self.recursion_limit)
+        if sys.gettrace() or sys.getprofile():
+            return 'interpreter'
+        if os.getcwd() != self.cwd or os.environ != self.environ:
+            return 'environment'
+        return '-'
+
+
+def read_request(stream, replies):
+    """Returns the code, its stdin and a function that sends the reply, which alone holds the nonce."""
+    header = stream.readline()
+    if not header:
+        return None
+    code_len, stdin_len, nonce = header.split()
+    code = stream.read(int(code_len)).decode('utf-8')
+    stdin = stream.read(int(stdin_len)).decode('utf-8')
+
+    def reply(out, err, status, elapsed, truncated, cpu, peak, leak):
+        write_blob(replies, out)
+        write_blob(replies, err)
+        replies.write(b'%s %d %d %d %d %d %s\n' % (nonce, status, elapsed, truncated, cpu, peak,
+                                                   leak.encode('ascii')))
+        replies.flush()
+
+    return code, stdin, reply
+
+
+def write_blob(stream, text):
+    data = text.encode('utf-8', 'replace')
+    stream.write(b'%d\n' % len(data))
+    stream.write(data)
+
+
+def reset_peak_rss():
+    # Writing 5 to clear_refs restarts VmHWM at the current resident set
+    try:
+        with open('/proc/self/clear_refs', 'w') as f:
+            f.write('5')
+        return True
+    except OSError:
+        return False
+
+
+def peak_rss():
+    with open('/proc/self/status') as f:
+        for line in f:
+            if line.startswith('VmHWM:'):
+                return int(line.split()[1]) * 1024
+    return -1
+
+
+def run(code, stdin):
+    out, err = CappedWriter(), CappedWriter()
+    status = 0
+    sys.stdin = io.StringIO(stdin)
+    start = time.perf_counter_ns()
+    cpu_start = time.process_time_ns()
+    with contextlib.redirect_stdout(out), contextlib.redirect_stderr(err):
+        try:
+            exec(compile(code, 'script.py', 'exec'), {'__name__': '__main__', '__builtins__': __builtins__})
+            # Like a plain interpreter, the program is not over until its non-daemon threads are
+            for thread in threading.enumerate():
+                if thread is not threading.main_thread() and not thread.daemon:
+                    thread.join()
+        except SystemExit as e:
+            if isinstance(e.code, int):
+                status = e.code
+            elif e.code is not None:
+                print(e.code, file=sys.stderr)
+                status = 1
+        except BaseException:
+            etype, value, tb = sys.exc_info()
+            # Skip this frame so the trace starts at the user's code
+            traceback.print_exception(etype, value, tb.tb_next)
+            status = 1
+    elapsed = time.perf_counter_ns() - start
+    cpu = time.process_time_ns() - cpu_start
+    sys.stdin = sys.__stdin__
+    return out.getvalue(), err.getvalue(), status, elapsed, out.truncated or err.truncated, cpu
+
+
+def main():
+    requests = sys.stdin.buffer
+    replies = os.fdopen(3, 'wb')
+    # Keep the reply pipe out of processes a submission starts
+    os.set_inheritable(3, False)
+    baseline = Baseline()
+    while True:
+        request = read_request(requests, replies)
+        if request is None:
+            break
+        code, stdin, reply = request
+        measured = reset_peak_rss()
+        out, err, status, elapsed, truncated, cpu = run(code, stdin)
+        peak = peak_rss() if measured else -1
+        leak = baseline.reset()
+        reply(out, err, status, elapsed, truncated, cpu, peak, leak)
+
+
+main()